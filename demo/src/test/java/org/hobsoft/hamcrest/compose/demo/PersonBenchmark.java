@@ -0,0 +1,315 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose.demo;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.hobsoft.hamcrest.compose.MismatchCollector;
+
+import static org.hobsoft.hamcrest.compose.demo.PersonMatchers.personEqualTo;
+
+/**
+ * Macro benchmark of matching many people with {@code PersonMatchers}.
+ * <p>
+ * Generates a reproducible population of expected people together with actual people, a controlled proportion of
+ * which differ from their expected person in one name. Each actual person is then matched against
+ * {@code personEqualTo} of its expected person in the following modes:
+ * <ul>
+ * <li>single-threaded, which also measures the latency of a sample of matches
+ * <li>bulk, which checks every person with a {@code MismatchCollector} and so also describes mismatches, rather than
+ * evaluating them with {@code matchesBatch}
+ * <li>parallel, which matches people with a parallel stream
+ * </ul>
+ * Each mode is warmed up before it is measured and reports its throughput. Sampled latencies are measured with
+ * {@code System.nanoTime} around each match, and so include the overhead of reading the clock, which is reported
+ * alongside them. The single-threaded and bulk modes also report the bytes allocated per match, for which thread
+ * allocation measurement is enabled when the JVM supports it; otherwise the report says that it was not measured.
+ * <p>
+ * Run with the {@code benchmark} profile, for example:
+ * <pre>
+ * mvn -Pbenchmark -pl demo -am test -DskipTests -Dbenchmark.args="1000000 0.1"
+ * </pre>
+ * The optional arguments are the number of people, the proportion of mismatches, the number of measured iterations
+ * and the random seed, which default to {@code 1000000 0.1 5 0}.
+ */
+public final class PersonBenchmark
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final String[] TITLES = {"Mr", "Mrs", "Ms", "Dr"};
+	
+	private static final String[] FIRST_NAMES = {"Alice", "Bob", "Carol", "Dave", "Eve", "Frank", "Grace", "Heidi"};
+	
+	private static final String[] LAST_NAMES = {"Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Evans"};
+	
+	private static final int WARMUP_ITERATIONS = 2;
+	
+	private static final int LATENCY_SAMPLE_INTERVAL = 16;
+	
+	private static final int MAXIMUM_FAILURES = 100;
+	
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	
+	// the benchmark reports to the console
+	// SUPPRESS CHECKSTYLE RegexpSinglelineJava
+	private static final PrintStream OUT = System.out;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Person[] expected;
+	
+	private final Person[] actual;
+	
+	private final int iterations;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private PersonBenchmark(int size, double mismatchRatio, int iterations, long seed)
+	{
+		Random random = new Random(seed);
+		
+		expected = new Person[size];
+		actual = new Person[size];
+		this.iterations = iterations;
+		
+		for (int index = 0; index < size; index++)
+		{
+			expected[index] = new Person(pick(TITLES, random), pick(FIRST_NAMES, random), pick(LAST_NAMES, random));
+			actual[index] = (random.nextDouble() < mismatchRatio) ? mismatch(expected[index], random)
+				: copy(expected[index]);
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	public static void main(String[] args)
+	{
+		int size = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		double mismatchRatio = (args.length > 1) ? Double.parseDouble(args[1]) : 0.1;
+		int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+		long seed = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+		
+		OUT.printf("%d people, %.1f%% mismatched, %d iterations%n", size, 100 * mismatchRatio, iterations);
+		
+		if (!enableAllocationMeasurement())
+		{
+			OUT.println("allocation not measured: thread allocated memory is not supported by this JVM");
+		}
+		
+		PersonBenchmark benchmark = new PersonBenchmark(size, mismatchRatio, iterations, seed);
+		benchmark.runSingleThreaded();
+		benchmark.runBulk();
+		benchmark.runParallel();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private void runSingleThreaded()
+	{
+		long[] latencies = new long[(actual.length + LATENCY_SAMPLE_INTERVAL - 1) / LATENCY_SAMPLE_INTERVAL];
+		
+		run("single-threaded", true, () -> IntStream.range(0, actual.length)
+			.filter(index -> !matchesTimed(index, latencies))
+			.count());
+		
+		Arrays.sort(latencies);
+		OUT.printf("  sampled latencies include System.nanoTime overhead of about %,d ns%n", nanoTimeOverhead());
+		
+		for (double percentile : PERCENTILES)
+		{
+			int rank = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			OUT.printf("  p%-5s %,10d ns%n", percentile, latencies[Math.max(0, rank)]);
+		}
+	}
+	
+	private void runBulk()
+	{
+		run("bulk (MismatchCollector)", true, () ->
+		{
+			MismatchCollector collector = new MismatchCollector(MAXIMUM_FAILURES);
+			
+			for (int index = 0; index < actual.length; index++)
+			{
+				collector.checkThat(actual[index], personEqualTo(expected[index]));
+			}
+			
+			return collector.getFailureCount();
+		});
+	}
+	
+	private void runParallel()
+	{
+		run("parallel", false, () -> IntStream.range(0, actual.length)
+			.parallel()
+			.filter(index -> !matches(index))
+			.count());
+	}
+	
+	private void run(String mode, boolean measureAllocation, Workload workload)
+	{
+		long failures = 0;
+		
+		for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++)
+		{
+			failures = workload.run();
+		}
+		
+		long startBytes = allocatedBytes();
+		long startNanos = System.nanoTime();
+		
+		for (int iteration = 0; iteration < iterations; iteration++)
+		{
+			failures = workload.run();
+		}
+		
+		long elapsedNanos = System.nanoTime() - startNanos;
+		long allocated = allocatedBytes() - startBytes;
+		long matches = (long) iterations * actual.length;
+		
+		OUT.printf("%s: %,.0f matches/s, %,d failures", mode, matches * 1e9 / elapsedNanos, failures);
+		
+		if (measureAllocation && startBytes >= 0)
+		{
+			OUT.printf(", %,.1f bytes/match", (double) allocated / matches);
+		}
+		
+		OUT.println();
+	}
+	
+	private boolean matches(int index)
+	{
+		return personEqualTo(expected[index]).matches(actual[index]);
+	}
+	
+	private boolean matchesTimed(int index, long[] latencies)
+	{
+		if (index % LATENCY_SAMPLE_INTERVAL != 0)
+		{
+			return matches(index);
+		}
+		
+		long startNanos = System.nanoTime();
+		boolean matches = matches(index);
+		latencies[index / LATENCY_SAMPLE_INTERVAL] = System.nanoTime() - startNanos;
+		return matches;
+	}
+	
+	/**
+	 * Enables measuring the memory allocated by threads and returns whether the JVM supports it.
+	 */
+	private static boolean enableAllocationMeasurement()
+	{
+		com.sun.management.ThreadMXBean threadBean = allocationThreadBean();
+		
+		if (threadBean == null)
+		{
+			return false;
+		}
+		
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		return true;
+	}
+	
+	private static long allocatedBytes()
+	{
+		com.sun.management.ThreadMXBean threadBean = allocationThreadBean();
+		
+		return (threadBean != null && threadBean.isThreadAllocatedMemoryEnabled())
+			? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+			: -1;
+	}
+	
+	private static com.sun.management.ThreadMXBean allocationThreadBean()
+	{
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+		{
+			return null;
+		}
+		
+		com.sun.management.ThreadMXBean threadBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		
+		return threadBean.isThreadAllocatedMemorySupported() ? threadBean : null;
+	}
+	
+	/**
+	 * Estimates the time taken by a pair of {@code System.nanoTime} calls, as used to measure a sampled latency.
+	 */
+	private static long nanoTimeOverhead()
+	{
+		long[] overheads = new long[LATENCY_SAMPLE_INTERVAL * LATENCY_SAMPLE_INTERVAL];
+		
+		for (int index = 0; index < overheads.length; index++)
+		{
+			long startNanos = System.nanoTime();
+			overheads[index] = System.nanoTime() - startNanos;
+		}
+		
+		Arrays.sort(overheads);
+		return overheads[overheads.length / 2];
+	}
+	
+	private static Person mismatch(Person person, Random random)
+	{
+		String firstName = person.getFirstName();
+		String lastName = person.getLastName();
+		
+		if (random.nextBoolean())
+		{
+			firstName += "x";
+		}
+		else
+		{
+			lastName += "x";
+		}
+		
+		return new Person(person.getTitle(), firstName, lastName);
+	}
+	
+	private static Person copy(Person person)
+	{
+		return new Person(person.getTitle(), person.getFirstName(), person.getLastName());
+	}
+	
+	private static String pick(String[] values, Random random)
+	{
+		return values[random.nextInt(values.length)];
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * A single iteration of a benchmark mode that returns the number of failures.
+	 */
+	private interface Workload
+	{
+		long run();
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.hamcrest.Matcher;
+
+/**
+ * Matches a batch of objects against the leaf matchers of a composition one matcher at a time.
+ * <p>
+ * Each feature matcher first extracts its feature from every remaining object into a column and then matches the
+ * column in a separate loop, so that each loop calls a single function or matcher. Feature path matchers extract each
+ * function of their path in turn, and objects with a {@code null} intermediate value do not match. Matchers with a
+ * cost are unwrapped so that their features are extracted in the same way. Feature value matchers compare their
+ * column directly with their value. Any other matcher is tested against each remaining object by its predicate.
+ * When matching, matchers are evaluated in cost order and objects that have not matched are not evaluated again. When
+ * finding failures, every matcher is evaluated against every object.
+ */
+final class BatchEvaluator
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Matcher<?>[] matchers;
+	
+	private final Matcher<?>[] evaluationOrder;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	BatchEvaluator(List<Matcher<?>> matchers)
+	{
+		this.matchers = matchers.toArray(new Matcher<?>[0]);
+		evaluationOrder = this.matchers.clone();
+		
+		// stable sort so that matchers of equal cost keep their composed order
+		Arrays.sort(evaluationOrder, Comparator.comparing(Cost::of));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Matches each of the specified objects against every matcher.
+	 */
+	boolean[] matches(List<?> actuals)
+	{
+		Object[] rows = actuals.toArray();
+		boolean[] matches = nonNull(rows);
+		Object[] column = new Object[rows.length];
+		
+		for (Matcher<?> matcher : evaluationOrder)
+		{
+			evaluate(matcher, rows, matches, column);
+		}
+		
+		return matches;
+	}
+	
+	/**
+	 * Finds the indices of the specified objects that do not match each matcher, in the order that the matchers were
+	 * composed. A {@code null} object does not match any matcher.
+	 */
+	BitSet[] failures(List<?> actuals)
+	{
+		Object[] rows = actuals.toArray();
+		boolean[] nonNull = nonNull(rows);
+		Object[] column = new Object[rows.length];
+		BitSet[] failures = new BitSet[matchers.length];
+		
+		for (int index = 0; index < matchers.length; index++)
+		{
+			boolean[] matches = nonNull.clone();
+			evaluate(matchers[index], rows, matches, column);
+			
+			failures[index] = new BitSet(rows.length);
+			
+			for (int row = 0; row < rows.length; row++)
+			{
+				failures[index].set(row, !matches[row]);
+			}
+		}
+		
+		return failures;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static boolean[] nonNull(Object[] rows)
+	{
+		boolean[] nonNull = new boolean[rows.length];
+		
+		for (int row = 0; row < rows.length; row++)
+		{
+			nonNull[row] = (rows[row] != null);
+		}
+		
+		return nonNull;
+	}
+	
+	private static void evaluate(Matcher<?> matcher, Object[] rows, boolean[] matches, Object[] column)
+	{
+		Matcher<?> unwrappedMatcher = unwrap(matcher);
+		
+		if (unwrappedMatcher instanceof HasFeatureMatcher)
+		{
+			HasFeatureMatcher<?, ?> featureMatcher = (HasFeatureMatcher<?, ?>) unwrappedMatcher;
+			
+			extract(featureMatcher.getFeatureFunction(), rows, matches, column);
+			matchColumn(featureMatcher, column, matches);
+		}
+		else if (unwrappedMatcher instanceof HasFeaturePathMatcher)
+		{
+			HasFeaturePathMatcher<?, ?> pathMatcher = (HasFeaturePathMatcher<?, ?>) unwrappedMatcher;
+			
+			extractPath(pathMatcher.getFeaturePath(), rows, matches, column);
+			test(asPredicate(pathMatcher.getFeatureMatcher()), column, matches);
+		}
+		else
+		{
+			test(asPredicate(unwrappedMatcher), rows, matches);
+		}
+	}
+	
+	private static Matcher<?> unwrap(Matcher<?> matcher)
+	{
+		Matcher<?> unwrappedMatcher = matcher;
+		
+		while (unwrappedMatcher instanceof CostMatcher)
+		{
+			unwrappedMatcher = ((CostMatcher<?>) unwrappedMatcher).getMatcher();
+		}
+		
+		return unwrappedMatcher;
+	}
+	
+	/**
+	 * Extracts the feature of the specified path from every remaining object into the column, one function of the path
+	 * at a time. Objects with a {@code null} intermediate value no longer match.
+	 */
+	private static void extractPath(FeaturePath<?, ?> featurePath, Object[] rows, boolean[] matches, Object[] column)
+	{
+		FeaturePath<?, ?>[] prefixes = featurePath.getPrefixes();
+		
+		extract(prefixes[0].getFunction(), rows, matches, column);
+		
+		for (int index = 1; index < prefixes.length; index++)
+		{
+			for (int row = 0; row < column.length; row++)
+			{
+				matches[row] = matches[row] && column[row] != null;
+			}
+			
+			extract(prefixes[index].getFunction(), column, matches, column);
+		}
+	}
+	
+	/**
+	 * Applies the specified function to every remaining value and writes the results into the column, which may be
+	 * the same array as the values. Values that no longer match are skipped.
+	 */
+	private static void extract(Function<?, ?> function, Object[] values, boolean[] matches, Object[] column)
+	{
+		@SuppressWarnings("unchecked")
+		Function<Object, ?> typedFunction = (Function<Object, ?>) function;
+		
+		for (int row = 0; row < values.length; row++)
+		{
+			if (matches[row])
+			{
+				column[row] = typedFunction.apply(values[row]);
+			}
+		}
+	}
+	
+	private static void matchColumn(HasFeatureMatcher<?, ?> featureMatcher, Object[] column, boolean[] matches)
+	{
+		if (featureMatcher instanceof HasFeatureValueMatcher)
+		{
+			Object featureValue = ((HasFeatureValueMatcher<?, ?>) featureMatcher).getFeatureValue();
+			
+			for (int row = 0; row < column.length; row++)
+			{
+				matches[row] = matches[row] && Objects.deepEquals(column[row], featureValue);
+			}
+		}
+		else
+		{
+			test(asPredicate(featureMatcher.getFeatureMatcher()), column, matches);
+		}
+	}
+	
+	private static Predicate<Object> asPredicate(Matcher<?> matcher)
+	{
+		@SuppressWarnings("unchecked")
+		Matcher<Object> typedMatcher = (Matcher<Object>) matcher;
+		
+		return ComposeMatchers.asPredicate(typedMatcher);
+	}
+	
+	private static void test(Predicate<Object> predicate, Object[] values, boolean[] matches)
+	{
+		for (int row = 0; row < values.length; row++)
+		{
+			matches[row] = matches[row] && predicate.test(values[row]);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.hamcrest.Matcher;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * The objects of a batch that failed each child matcher of a composition.
+ * <p>
+ * For example:
+ * <pre>
+ * BatchResult result = compose(hasFeature(Person::getAge, greaterThan(18)))
+ *     .and(hasFeature(Person::getName, notNullValue()))
+ *     .matchesBatchByChild(people);
+ *
+ * BitSet underageWithName = result.getFailures(0);
+ * underageWithName.andNot(result.getFailures(1));
+ * </pre>
+ * Failures are recorded as a bit set of the indices of the objects in the batch, so that reports, filters and
+ * combinations of checks can use bitwise operations rather than matching the objects again. The returned bit sets are
+ * copies that may be freely modified.
+ * <p>
+ * Results are immutable and safe for concurrent use.
+ * <p>
+ * Use {@code ConjunctionMatcher.matchesBatchByChild} to obtain instances of this class.
+ *
+ * @see ConjunctionMatcher#matchesBatchByChild(List)
+ */
+public final class BatchResult
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final List<Matcher<?>> matchers;
+	
+	private final int size;
+	
+	private final BitSet[] failures;
+	
+	private final BitSet allFailures;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	BatchResult(List<Matcher<?>> matchers, int size, BitSet[] failures)
+	{
+		this.matchers = unmodifiableList(matchers);
+		this.size = size;
+		this.failures = failures;
+		
+		allFailures = new BitSet(size);
+		
+		for (BitSet childFailures : failures)
+		{
+			allFailures.or(childFailures);
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the number of objects in the batch.
+	 *
+	 * @return the number of objects
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Gets the child matchers that the batch was matched against, in the order that they were composed.
+	 *
+	 * @return an unmodifiable list of the child matchers
+	 */
+	public List<Matcher<?>> getMatchers()
+	{
+		return matchers;
+	}
+	
+	/**
+	 * Gets the indices of the objects that failed the specified child matcher.
+	 *
+	 * @param index
+	 *            the index of the child matcher within {@code getMatchers}
+	 * @return a copy of the indices of the failed objects
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not that of a child matcher
+	 */
+	public BitSet getFailures(int index)
+	{
+		return (BitSet) failures[checkIndex(index)].clone();
+	}
+	
+	/**
+	 * Gets the indices of the objects that failed any child matcher, which is the union of the failures of every
+	 * child matcher.
+	 *
+	 * @return a copy of the indices of the failed objects
+	 */
+	public BitSet getFailures()
+	{
+		return (BitSet) allFailures.clone();
+	}
+	
+	/**
+	 * Gets the number of objects that failed any child matcher.
+	 *
+	 * @return the number of failed objects
+	 */
+	public int getFailureCount()
+	{
+		return allFailures.cardinality();
+	}
+	
+	/**
+	 * Gets whether the specified object matched every child matcher.
+	 *
+	 * @param row
+	 *            the index of the object within the batch
+	 * @return {@code true} if the object matched
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not that of an object in the batch
+	 */
+	public boolean matches(int row)
+	{
+		if (row < 0 || row >= size)
+		{
+			throw new IndexOutOfBoundsException("row: " + row);
+		}
+		
+		return !allFailures.get(row);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Object methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d of %d objects failed", getFailureCount(), size);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private int checkIndex(int index)
+	{
+		if (index < 0 || index >= failures.length)
+		{
+			throw new IndexOutOfBoundsException("index: " + index);
+		}
+		
+		return index;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Function that memoizes the results of another function in a bounded concurrent cache.
+ * <p>
+ * When the cache is full an arbitrary entry is evicted. Concurrent calls for the same uncached key may each apply the
+ * function, but all callers receive the same result.
+ * <p>
+ * Use {@code ComposeMatchers.cached} to obtain instances of this class.
+ * 
+ * @param <K>
+ *            the type of the input to the function
+ * @param <V>
+ *            the type of the result of the function
+ * @see ComposeMatchers#cached(Function)
+ */
+final class CachingFunction<K, V> implements Function<K, V>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Function<? super K, ? extends V> function;
+	
+	private final int maximumSize;
+	
+	private final ConcurrentMap<K, V> cache;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	CachingFunction(Function<? super K, ? extends V> function, int maximumSize)
+	{
+		if (maximumSize < 1)
+		{
+			throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+		}
+		
+		this.function = requireNonNull(function, "function");
+		this.maximumSize = maximumSize;
+		cache = new ConcurrentHashMap<>();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Function methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public V apply(K key)
+	{
+		requireNonNull(key, "key");
+		
+		V value = cache.get(key);
+		
+		if (value == null)
+		{
+			value = requireNonNull(function.apply(key), "value");
+			
+			V existing = cache.putIfAbsent(key, value);
+			
+			if (existing != null)
+			{
+				return existing;
+			}
+			
+			evict(key);
+		}
+		
+		return value;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	int size()
+	{
+		return cache.size();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private void evict(K retainedKey)
+	{
+		Iterator<K> keys = cache.keySet().iterator();
+		
+		while (cache.size() > maximumSize && keys.hasNext())
+		{
+			K key = keys.next();
+			
+			if (!key.equals(retainedKey))
+			{
+				keys.remove();
+			}
+		}
+	}
+}
@@ -13,9 +13,17 @@
  */
 package org.hobsoft.hamcrest.compose;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.BaseStream;
 
 import org.hamcrest.Matcher;
+import org.hamcrest.core.IsAnything;
 
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
@@ -27,6 +35,12 @@ import static org.hamcrest.CoreMatchers.equalTo;
  */
 public final class ComposeMatchers
 {
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int DEFAULT_CACHE_SIZE = 1000;
+	
 	// ----------------------------------------------------------------------------------------------------------------
 	// constructors
 	// ----------------------------------------------------------------------------------------------------------------
@@ -237,6 +251,82 @@ public final class ComposeMatchers
 		return new HasFeatureMatcher<>(featureDescription, featureName, featureFunction, featureMatcher);
 	}
 	
+	/**
+	 * Returns a matcher that matches the specified nested feature of an object.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(order, hasFeature(path(Order::getCustomer).then(Customer::getName), equalTo("ham")));
+	 * </pre>
+	 * <p>
+	 * The feature is extracted in a single traversal of the path. When an intermediate feature is {@code null} the
+	 * mismatch is described by the part of the path that was {@code null}, rather than throwing an exception.
+	 *
+	 * @param featurePath
+	 *            a path to extract the feature from the object. The dotted name of this path is used by
+	 *            {@code describeTo} and {@code describeMismatch}.
+	 * @param featureMatcher
+	 *            the matcher to apply to the specified feature
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @param <U>
+	 *            the type of the feature to be matched
+	 * @return the feature matcher
+	 */
+	public static <T, U> Matcher<T> hasFeature(FeaturePath<T, U> featurePath, Matcher<? super U> featureMatcher)
+	{
+		return new HasFeaturePathMatcher<>(featurePath, featureMatcher);
+	}
+
+	/**
+	 * Returns a feature path that starts with the specified function.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * FeaturePath&lt;Order, String&gt; postcode = path(Order::getCustomer)
+	 *     .then(Customer::getAddress)
+	 *     .then(Address::getPostcode);
+	 * </pre>
+	 *
+	 * @param featureFunction
+	 *            a method reference to extract the first feature from the object. The compiler will generate a
+	 *            serialized lambda that is used to obtain the feature name.
+	 * @param <T>
+	 *            the type of the object to extract the feature from
+	 * @param <U>
+	 *            the type of the first feature
+	 * @return the feature path
+	 */
+	public static <T, U> FeaturePath<T, U> path(SerializableFunction<T, U> featureFunction)
+	{
+		return path(featureFunction.getName(), featureFunction);
+	}
+
+	/**
+	 * Returns a feature path that starts with the specified named function.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * FeaturePath&lt;Order, String&gt; postcode = path("customer", Order::getCustomer)
+	 *     .then("address", Customer::getAddress)
+	 *     .then("postcode", Address::getPostcode);
+	 * </pre>
+	 *
+	 * @param featureName
+	 *            the name of the first feature
+	 * @param featureFunction
+	 *            a function to extract the first feature from the object
+	 * @param <T>
+	 *            the type of the object to extract the feature from
+	 * @param <U>
+	 *            the type of the first feature
+	 * @return the feature path
+	 */
+	public static <T, U> FeaturePath<T, U> path(String featureName, Function<T, U> featureFunction)
+	{
+		return FeaturePath.of(featureName, featureFunction);
+	}
+
 	/**
 	 * Returns a matcher that matches the specified feature value of an object.
 	 * <p>
@@ -260,7 +350,7 @@ public final class ComposeMatchers
 	 */
 	public static <T, U> Matcher<T> hasFeatureValue(Function<T, U> featureFunction, U featureValue)
 	{
-		return hasFeature(featureFunction, equalTo(featureValue));
+		return hasFeatureValue(featureFunction.toString(), featureFunction, featureValue);
 	}
 	
 	/**
@@ -286,7 +376,7 @@ public final class ComposeMatchers
 	 */
 	public static <T, U> Matcher<T> hasFeatureValue(SerializableFunction<T, U> featureFunction, U featureValue)
 	{
-		return hasFeature(featureFunction, equalTo(featureValue));
+		return hasFeatureValue(featureFunction.getName(), featureFunction, featureValue);
 	}
 
 	/**
@@ -313,7 +403,7 @@ public final class ComposeMatchers
 	 */
 	public static <T, U> Matcher<T> hasFeatureValue(String featureName, Function<T, U> featureFunction, U featureValue)
 	{
-		return hasFeature(featureName, featureFunction, equalTo(featureValue));
+		return hasFeatureValue(featureName, featureName, featureFunction, featureValue);
 	}
 	
 	/**
@@ -344,6 +434,510 @@ public final class ComposeMatchers
 	public static <T, U> Matcher<T> hasFeatureValue(String featureDescription, String featureName,
 		Function<T, U> featureFunction, U featureValue)
 	{
-		return hasFeature(featureDescription, featureName, featureFunction, equalTo(featureValue));
+		return new HasFeatureValueMatcher<>(featureDescription, featureName, featureFunction, featureValue);
+	}
+	
+	/**
+	 * Returns a matcher that matches the specified asynchronous feature of an object.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(order, hasAsyncFeature(o -&gt; service.fetchStatus(o), equalTo(SHIPPED), Duration.ofSeconds(1)));
+	 * </pre>
+	 *
+	 * @param featureFunction
+	 *            a function to asynchronously extract the feature from the object. The string representation of this
+	 *            function is used as the feature name for {@code describeTo} and {@code describeMismatch}.
+	 * @param featureMatcher
+	 *            the matcher to apply to the specified feature
+	 * @param timeout
+	 *            the maximum time to wait for the feature to be extracted
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @param <U>
+	 *            the type of the feature to be matched
+	 * @return the asynchronous feature matcher
+	 */
+	public static <T, U> Matcher<T> hasAsyncFeature(Function<T, ? extends CompletionStage<U>> featureFunction,
+		Matcher<? super U> featureMatcher, Duration timeout)
+	{
+		return hasAsyncFeature(featureFunction.toString(), featureFunction, featureMatcher, timeout);
+	}
+
+	/**
+	 * Returns a matcher that matches the specified asynchronous feature of an object.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(order, hasAsyncFeature(Order::fetchStatus, equalTo(SHIPPED), Duration.ofSeconds(1)));
+	 * </pre>
+	 *
+	 * @param featureFunction
+	 *            a method reference to asynchronously extract the feature from the object. The compiler will generate a
+	 *            serialized lambda that is used to obtain the feature name for {@code describeTo} and
+	 *            {@code describeMismatch}.
+	 * @param featureMatcher
+	 *            the matcher to apply to the specified feature
+	 * @param timeout
+	 *            the maximum time to wait for the feature to be extracted
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @param <U>
+	 *            the type of the feature to be matched
+	 * @return the asynchronous feature matcher
+	 */
+	public static <T, U> Matcher<T> hasAsyncFeature(
+		SerializableFunction<T, ? extends CompletionStage<U>> featureFunction, Matcher<? super U> featureMatcher,
+		Duration timeout)
+	{
+		return hasAsyncFeature(featureFunction.getName(), featureFunction, featureMatcher, timeout);
+	}
+
+	/**
+	 * Returns a matcher that matches the specified asynchronous feature of an object.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(order, hasAsyncFeature("status", service::fetchStatus, equalTo(SHIPPED), Duration.ofSeconds(1)));
+	 * </pre>
+	 * <p>
+	 * A feature that does not complete within the timeout, or that completes exceptionally, is described as a
+	 * mismatch. Asynchronous features composed by {@code compose} are all started before any of them are waited upon.
+	 *
+	 * @param featureName
+	 *            the name of this feature used by {@code describeTo} and {@code describeMismatch}
+	 * @param featureFunction
+	 *            a function to asynchronously extract the feature from the object
+	 * @param featureMatcher
+	 *            the matcher to apply to the specified feature
+	 * @param timeout
+	 *            the maximum time to wait for the feature to be extracted
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @param <U>
+	 *            the type of the feature to be matched
+	 * @return the asynchronous feature matcher
+	 */
+	public static <T, U> Matcher<T> hasAsyncFeature(String featureName,
+		Function<T, ? extends CompletionStage<U>> featureFunction, Matcher<? super U> featureMatcher, Duration timeout)
+	{
+		return new HasAsyncFeatureMatcher<>(featureName, featureFunction, featureMatcher, timeout);
+	}
+
+	/**
+	 * Returns a matcher that matches every element published by a reactive stream.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(events, publishesEvery(isValidEvent()).withCount(equalTo(1_000_000L)));
+	 * </pre>
+	 * <p>
+	 * Elements are matched as they arrive and are not buffered. Note that this method requires the optional
+	 * {@code org.reactivestreams:reactive-streams} dependency.
+	 *
+	 * @param elementMatcher
+	 *            the matcher to apply to each published element
+	 * @param <T>
+	 *            the type of the published elements to be matched
+	 * @return the publisher matcher
+	 */
+	public static <T> PublisherMatcher<T> publishesEvery(Matcher<? super T> elementMatcher)
+	{
+		return new PublisherMatcher<>(elementMatcher);
+	}
+
+	/**
+	 * Returns a matcher that matches a stream whose items match the specified matchers in order.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(Stream.of("ham", "jam"), streamContains(equalTo("ham"), equalTo("jam")));
+	 * </pre>
+	 * <p>
+	 * The stream is consumed once and its items are not collected.
+	 *
+	 * @param itemMatchers
+	 *            the matchers to apply to each item of the stream in turn
+	 * @param <E>
+	 *            the type of the stream items to be matched
+	 * @return the stream matcher
+	 */
+	@SafeVarargs
+	public static <E> Matcher<BaseStream<? extends E, ?>> streamContains(Matcher<? super E>... itemMatchers)
+	{
+		return StreamMatcher.contains(asList(itemMatchers));
+	}
+
+	/**
+	 * Returns a matcher that matches a stream whose every item matches the specified matcher.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(people.stream(), streamEveryItem(hasFeature(Person::getAge, greaterThan(17))));
+	 * </pre>
+	 * <p>
+	 * The stream is consumed once and its items are not collected. Matching stops at the first item that does not
+	 * match.
+	 *
+	 * @param itemMatcher
+	 *            the matcher to apply to every item of the stream
+	 * @param <E>
+	 *            the type of the stream items to be matched
+	 * @return the stream matcher
+	 */
+	public static <E> Matcher<BaseStream<? extends E, ?>> streamEveryItem(Matcher<? super E> itemMatcher)
+	{
+		return StreamMatcher.everyItem(itemMatcher);
+	}
+
+	/**
+	 * Returns a matcher that matches a stream with a number of items that matches the specified matcher.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(Files.lines(path), streamHasSize(greaterThan(1000L)));
+	 * </pre>
+	 * <p>
+	 * The stream is consumed once and its items are not collected. The stream is closed once it has been consumed.
+	 *
+	 * @param sizeMatcher
+	 *            the matcher to apply to the number of items in the stream
+	 * @return the stream matcher
+	 */
+	public static Matcher<BaseStream<?, ?>> streamHasSize(Matcher<? super Long> sizeMatcher)
+	{
+		return StreamMatcher.hasSize(sizeMatcher);
+	}
+
+	/**
+	 * Returns a matcher that matches a stream with the specified number of items.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(Stream.of("ham", "jam"), streamHasSize(2));
+	 * </pre>
+	 * <p>
+	 * This is equivalent to {@code streamHasSize(equalTo(size))}.
+	 *
+	 * @param size
+	 *            the number of items in the stream
+	 * @return the stream matcher
+	 */
+	public static Matcher<BaseStream<?, ?>> streamHasSize(long size)
+	{
+		return streamHasSize(equalTo(size));
+	}
+
+	/**
+	 * Returns a function whose results are shared by every matcher that applies it while a composition is matching a
+	 * single object.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * SerializableFunction&lt;Order, Money&gt; total = memoize(Order::computeTotal);
+	 *
+	 * compose(hasFeature(total, greaterThan(ZERO)))
+	 *     .and(hasFeature(total, lessThan(LIMIT)))
+	 * </pre>
+	 * <p>
+	 * While the outermost composite matcher is matching an object, the function is applied to it at most once however
+	 * many matchers use it. Memoized functions of equal method references share their results even when they are
+	 * different instances. Results are discarded once the match completes and the function is simply applied when it
+	 * is used outside of a composition.
+	 * 
+	 * @param featureFunction
+	 *            a method reference to extract a feature from an object
+	 * @param <T>
+	 *            the type of the object to extract the feature from
+	 * @param <U>
+	 *            the type of the feature
+	 * @return the memoized function
+	 */
+	public static <T, U> SerializableFunction<T, U> memoize(SerializableFunction<T, U> featureFunction)
+	{
+		return new MemoizedFunction<>(featureFunction);
+	}
+	
+	/**
+	 * Returns a matcher that gives the specified matcher a cost hint.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * compose(withCost(hasFeature(Document::getBody, matchesSignature(key)), Cost.HIGH))
+	 *     .and(hasFeature(Document::getAuthor, equalTo("Smith")))
+	 * </pre>
+	 * <p>
+	 * The returned matcher matches and describes itself exactly as the specified matcher does. When a composite matcher
+	 * only needs to know whether an object matches, it evaluates its cheapest matchers first. Matchers without a cost
+	 * hint have a cost inferred from their type.
+	 * 
+	 * @param matcher
+	 *            the matcher to give a cost hint
+	 * @param cost
+	 *            how expensive the matcher is to evaluate
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @return the matcher with a cost hint
+	 * @see Cost
+	 */
+	public static <T> Matcher<T> withCost(Matcher<T> matcher, Cost cost)
+	{
+		return new CostMatcher<>(matcher, cost);
+	}
+	
+	/**
+	 * Returns a matcher that bounds the time taken by the specified matcher.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * compose(withTimeout(hasFeature(Document::getBody, matchesPattern(regex)), Duration.ofMillis(100)))
+	 *     .and(hasFeature(Document::getAuthor, equalTo("Smith")))
+	 * </pre>
+	 * <p>
+	 * The specified matcher is evaluated on a separate daemon thread. When it does not complete within the timeout
+	 * its thread is interrupted and the mismatch is described as {@code timed out after 100 ms}. A composition can be
+	 * given a time budget as a whole by passing it to this method.
+	 * <p>
+	 * A matcher that does not respond to interruption keeps running in the background after it times out. Once too
+	 * many such matches are running, further matches fail immediately until one of them completes.
+	 * 
+	 * @param matcher
+	 *            the matcher to bound
+	 * @param timeout
+	 *            the maximum time to wait for the matcher
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @return the matcher with a timeout
+	 */
+	public static <T> Matcher<T> withTimeout(Matcher<T> matcher, Duration timeout)
+	{
+		return new TimeoutMatcher<>(matcher, timeout);
+	}
+	
+	/**
+	 * Returns a predicate that tests objects against the specified matcher without describing it or any mismatch.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * people.stream().filter(asPredicate(hasFeature(Person::getAge, greaterThan(18))))
+	 * </pre>
+	 * <p>
+	 * Composite and feature matchers are unwrapped so that their features are tested directly and compositions short
+	 * circuit at the first matcher that does not match, testing their cheapest matchers first. Any other matcher is
+	 * tested by {@code Matcher.matches}. Composite and feature predicates do not match {@code null}.
+	 *
+	 * @param matcher
+	 *            the matcher to test objects against
+	 * @param <T>
+	 *            the type of the objects to be tested
+	 * @return the predicate
+	 * @see ConjunctionMatcher#asPredicate()
+	 */
+	public static <T> Predicate<T> asPredicate(Matcher<? super T> matcher)
+	{
+		requireNonNull(matcher, "matcher");
+		
+		Predicate<?> predicate;
+		
+		if (matcher instanceof ConjunctionMatcher)
+		{
+			predicate = ((ConjunctionMatcher<?>) matcher).asPredicate();
+		}
+		else if (matcher instanceof HasFeatureMatcher)
+		{
+			predicate = ((HasFeatureMatcher<?, ?>) matcher).asPredicate();
+		}
+		else if (matcher instanceof HasFeaturePathMatcher)
+		{
+			predicate = ((HasFeaturePathMatcher<?, ?>) matcher).asPredicate();
+		}
+		else if (matcher instanceof CostMatcher)
+		{
+			predicate = ((CostMatcher<?>) matcher).asPredicate();
+		}
+		else if (matcher instanceof IsAnything)
+		{
+			predicate = actual -> true;
+		}
+		else
+		{
+			predicate = (Predicate<T>) matcher::matches;
+		}
+		
+		@SuppressWarnings("unchecked")
+		Predicate<T> typedPredicate = (Predicate<T>) predicate;
+		
+		return typedPredicate;
+	}
+	
+	/**
+	 * Returns an index of the specified objects that can be queried by matchers.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * MatcherIndex&lt;Person&gt; index = index(people).withIndex(Person::getLastName);
+	 * List&lt;Person&gt; smiths = index.findAll(hasFeatureValue(Person::getLastName, "Smith"));
+	 * </pre>
+	 * <p>
+	 * The objects are copied so that later changes to the collection do not affect the index.
+	 *
+	 * @param objects
+	 *            the objects to index, none of which may be {@code null}
+	 * @param <T>
+	 *            the type of the objects to index
+	 * @return the index
+	 */
+	public static <T> MatcherIndex<T> index(Collection<? extends T> objects)
+	{
+		return new MatcherIndex<>(objects);
+	}
+	
+	/**
+	 * Returns a feature snapshot that records objects to, and matches them against, the specified golden file.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * FeatureSnapshot&lt;Person&gt; snapshot = snapshot(Paths.get("people.snapshot"), Person::getId)
+	 *     .withFeature(Person::getFirstName)
+	 *     .withFeature(Person::getLastName);
+	 * </pre>
+	 * <p>
+	 * Objects are identified within the snapshot by the string value of their key.
+	 *
+	 * @param file
+	 *            the file to record the features to and match them against
+	 * @param keyFunction
+	 *            a function to extract the unique key of each object
+	 * @param <T>
+	 *            the type of the objects to be recorded and matched
+	 * @return the feature snapshot
+	 */
+	public static <T> FeatureSnapshot<T> snapshot(Path file, Function<T, ?> keyFunction)
+	{
+		return new FeatureSnapshot<>(file, keyFunction);
+	}
+	
+	/**
+	 * Returns a matcher that matches text equal to the specified text and describes any mismatch as a line diff.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(person, hasFeature("biography", Person::getBiography, diffEqualTo(expectedBiography)));
+	 * </pre>
+	 * <p>
+	 * Any mismatch is described by only the differing lines together with a few lines of context. The diff is computed
+	 * in linear space so that it remains fast for large text.
+	 * 
+	 * @param expected
+	 *            the text to match
+	 * @return the text matcher
+	 */
+	public static Matcher<CharSequence> diffEqualTo(CharSequence expected)
+	{
+		return DiffMatcher.text(expected);
+	}
+	
+	/**
+	 * Returns a matcher that matches a list equal to the specified list and describes any mismatch as an element diff.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(order, hasFeature("items", Order::getItems, diffEqualTo(expectedItems)));
+	 * </pre>
+	 * <p>
+	 * Any mismatch is described by only the differing elements together with a few elements of context. The diff is
+	 * computed in linear space so that it remains fast for large lists.
+	 * 
+	 * @param expected
+	 *            the list to match
+	 * @param <E>
+	 *            the type of the list elements
+	 * @return the list matcher
+	 */
+	public static <E> Matcher<List<E>> diffEqualTo(List<E> expected)
+	{
+		return DiffMatcher.list(expected);
+	}
+	
+	/**
+	 * Returns a matcher that matches an array equal to the specified array and describes any mismatch as an element
+	 * diff.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * assertThat(order, hasFeature("items", Order::getItemArray, diffEqualTo(expectedItems)));
+	 * </pre>
+	 * <p>
+	 * Any mismatch is described by only the differing elements together with a few elements of context. The diff is
+	 * computed in linear space so that it remains fast for large arrays.
+	 * 
+	 * @param expected
+	 *            the array to match
+	 * @param <E>
+	 *            the type of the array elements
+	 * @return the array matcher
+	 */
+	public static <E> Matcher<E[]> diffEqualTo(E[] expected)
+	{
+		return DiffMatcher.array(expected);
+	}
+	
+	/**
+	 * Returns a function that caches the matchers created by the specified matcher factory.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * Function&lt;Person, Matcher&lt;Person&gt;&gt; personEqualTo = cached(PersonMatchers::personEqualTo);
+	 * </pre>
+	 * Matchers are cached by their factory argument using its {@code equals} and {@code hashCode} methods, so that
+	 * equal arguments return the same shared matcher instance. At most 1000 matchers are cached, beyond which
+	 * arbitrary matchers are evicted. The returned function is safe for concurrent use.
+	 * <p>
+	 * Note that the cache does not depend on the equality of the matchers themselves. Arguments that are not equal
+	 * create separate matchers, which are typically not equal to each other either, since many matchers such as
+	 * Hamcrest 1.3's {@code equalTo} are only equal to themselves.
+	 * 
+	 * @param factory
+	 *            the function that creates matchers
+	 * @param <K>
+	 *            the type of the factory argument
+	 * @param <M>
+	 *            the type of the matchers created
+	 * @return the caching matcher factory
+	 */
+	public static <K, M extends Matcher<?>> Function<K, M> cached(Function<? super K, ? extends M> factory)
+	{
+		return cached(factory, DEFAULT_CACHE_SIZE);
+	}
+	
+	/**
+	 * Returns a function that caches up to the specified number of matchers created by the specified matcher factory.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * Function&lt;Person, Matcher&lt;Person&gt;&gt; personEqualTo = cached(PersonMatchers::personEqualTo, 100);
+	 * </pre>
+	 * Matchers are cached by their factory argument using its {@code equals} and {@code hashCode} methods, so that
+	 * equal arguments return the same shared matcher instance. Once the maximum size is reached arbitrary matchers are
+	 * evicted. The returned function is safe for concurrent use.
+	 * <p>
+	 * Note that the cache does not depend on the equality of the matchers themselves. Arguments that are not equal
+	 * create separate matchers, which are typically not equal to each other either, since many matchers such as
+	 * Hamcrest 1.3's {@code equalTo} are only equal to themselves.
+	 * 
+	 * @param factory
+	 *            the function that creates matchers
+	 * @param maximumSize
+	 *            the maximum number of matchers to cache
+	 * @param <K>
+	 *            the type of the factory argument
+	 * @param <M>
+	 *            the type of the matchers created
+	 * @return the caching matcher factory
+	 */
+	public static <K, M extends Matcher<?>> Function<K, M> cached(Function<? super K, ? extends M> factory,
+		int maximumSize)
+	{
+		return new CachingFunction<>(factory, maximumSize);
 	}
 }
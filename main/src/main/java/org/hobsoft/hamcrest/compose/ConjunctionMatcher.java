@@ -14,11 +14,19 @@
 package org.hobsoft.hamcrest.compose;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.hamcrest.Description;
+import org.hamcrest.DiagnosingMatcher;
 import org.hamcrest.Matcher;
-import org.hamcrest.TypeSafeDiagnosingMatcher;
+import org.hamcrest.StringDescription;
+import org.hamcrest.core.IsAnything;
 
 import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
@@ -28,27 +36,59 @@ import static java.util.Objects.requireNonNull;
  * <p>
  * This matcher differs from {@code CoreMatchers.allOf} and {@code CoreMatchers.both} in the following ways:
  * <ul>
- * <li>It does not short circuit. This means that all mismatches are reported, not just the first one.
+ * <li>It does not short circuit when describing a mismatch. This means that all mismatches are reported, not just the
+ * first one.
+ * <li>It evaluates its cheapest matchers first when only matching, and then stops at the first that does not match
  * <li>It does not describe itself using parenthesis. This produces more readable descriptions.
  * <li>It describes each matcher on a separate line
  * <li>It supports an optional description to help describe the composition
  * <li>It does not repeat the matcher's description when describing a mismatch
+ * <li>It starts extracting all asynchronous features before waiting upon any of them
+ * <li>It extracts each feature path prefix that is shared by several matchers only once
+ * <li>It applies each memoized function only once to the object being matched
  * </ul>
  * <p>
+ * Asynchronous features and feature paths that are nested within another composition are only started concurrently
+ * with, or share prefixes with, those of the outer composition once it has been flattened by {@link #freeze()}.
+ * <p>
+ * The cost of each matcher is given by {@code ComposeMatchers.withCost} or otherwise inferred from its type, as
+ * described by {@link Cost}. Matchers of equal cost are evaluated in the order that they were composed.
+ * <p>
+ * Composite matchers are equal when they have equal descriptions and equal matchers in the same order. Since many
+ * matchers, such as Hamcrest 1.3's {@code equalTo}, are only equal to themselves, separately built compositions are
+ * typically only equal when they share the same matcher instances.
+ * <p>
+ * Matching an object without describing a mismatch allocates nothing beyond what the composed matchers do, unless the
+ * composition has asynchronous features or shared feature path prefixes.
+ * <p>
+ * The description of a composite matcher is rendered once, when it is first described, and then replayed as text
+ * into every description. The composed matchers must therefore always describe themselves in the same way.
+ * <p>
+ * Composite matchers are immutable and safe for concurrent use, provided that the matchers that they compose are. Any
+ * state of a single match, such as started asynchronous features or shared feature path values, is confined to the
+ * thread that is matching.
+ * <p>
+ * When a composition with asynchronous features fails to match, any features that are still outstanding are
+ * cancelled. The features are kept on the thread until the mismatch is described, so that describing it waits only
+ * for the features that were cancelled, which are started again, rather than for every feature. Matching the same
+ * object again before then reuses the failed match.
+ * <p>
  * Use {@code ComposeMatchers.compose} to obtain instances of this class. 
  * 
  * @param <T>
  *            the type of the object to be matched
  * @see ComposeMatchers#compose(Matcher...)
  */
-public final class ConjunctionMatcher<T> extends TypeSafeDiagnosingMatcher<T>
+public final class ConjunctionMatcher<T> extends DiagnosingMatcher<T>
 {
 	// ----------------------------------------------------------------------------------------------------------------
 	// constants
 	// ----------------------------------------------------------------------------------------------------------------
 
 	//                                         Expected: <description>
-	private static final String SEPARATOR = "\n          and ";
+	static final String SEPARATOR = "\n          and ";
+	
+	private static final int DEFAULT_MEMOIZED_SIZE = 1000;
 	
 	// ----------------------------------------------------------------------------------------------------------------
 	// fields
@@ -58,6 +98,21 @@ public final class ConjunctionMatcher<T> extends TypeSafeDiagnosingMatcher<T>
 	
 	private final List<Matcher<? super T>> matchers;
 	
+	private final Matcher<?>[] evaluationMatchers;
+	
+	private final int[] evaluationOrder;
+	
+	private final boolean async;
+	
+	private final FeatureTrie featureTrie;
+	
+	private final boolean memoizing;
+	
+	// the evaluations of failed matches with asynchronous features, kept until their mismatches are described
+	private final MismatchHandoff<Evaluation> pendingEvaluations;
+	
+	private volatile String renderedDescription;
+	
 	// ----------------------------------------------------------------------------------------------------------------
 	// constructors
 	// ----------------------------------------------------------------------------------------------------------------
@@ -69,6 +124,26 @@ public final class ConjunctionMatcher<T> extends TypeSafeDiagnosingMatcher<T>
 		
 		this.compositeDescription = compositeDescription;
 		this.matchers = unmodifiableList(toList(matchers));
+		evaluationMatchers = this.matchers.toArray(new Matcher<?>[0]);
+		evaluationOrder = costOrder(evaluationMatchers);
+		async = hasAsyncFeature(evaluationMatchers);
+		featureTrie = FeatureTrie.of(evaluationMatchers);
+		memoizing = usesMemoizedFunction(evaluationMatchers);
+		pendingEvaluations = async ? new MismatchHandoff<>() : null;
+	}
+	
+	private ConjunctionMatcher(String compositeDescription, List<Matcher<? super T>> matchers,
+		Matcher<?>[] evaluationMatchers, String renderedDescription)
+	{
+		this.compositeDescription = compositeDescription;
+		this.matchers = matchers;
+		this.evaluationMatchers = evaluationMatchers;
+		evaluationOrder = costOrder(evaluationMatchers);
+		async = hasAsyncFeature(evaluationMatchers);
+		featureTrie = FeatureTrie.of(evaluationMatchers);
+		memoizing = usesMemoizedFunction(evaluationMatchers);
+		pendingEvaluations = async ? new MismatchHandoff<>() : null;
+		this.renderedDescription = renderedDescription;
 	}
 	
 	// ----------------------------------------------------------------------------------------------------------------
@@ -91,12 +166,255 @@ public final class ConjunctionMatcher<T> extends TypeSafeDiagnosingMatcher<T>
 		return new ConjunctionMatcher<>(compositeDescription, concat(matchers, matcher));
 	}
 	
+	/**
+	 * Returns an equivalent matcher that is optimised for repeated evaluation.
+	 * <p>
+	 * Any nested compositions are flattened into a single array of matchers and any matchers that match anything are
+	 * removed. The returned matcher still describes itself and any mismatches exactly as this matcher does.
+	 * <p>
+	 * Note that this method returns a new matcher and does not modify this instance.
+	 * 
+	 * @return the optimised matcher
+	 */
+	public ConjunctionMatcher<T> freeze()
+	{
+		return new ConjunctionMatcher<>(compositeDescription, matchers, getLeafMatchers().toArray(new Matcher<?>[0]),
+			renderedDescription);
+	}
+	
+	/**
+	 * Returns an equivalent matcher that remembers whether each object matched, for at most 1000 objects.
+	 * 
+	 * @return the memoizing matcher
+	 * @see #memoized(int)
+	 */
+	public Matcher<T> memoized()
+	{
+		return memoized(DEFAULT_MEMOIZED_SIZE);
+	}
+	
+	/**
+	 * Returns an equivalent matcher that remembers whether each object matched, for at most the specified number of
+	 * objects.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * private static final Matcher&lt;Currency&gt; VALID_CURRENCY = compose(...).memoized(10000);
+	 * </pre>
+	 * <p>
+	 * Results are remembered by object identity, so that matching the same instance again costs a single lookup. The
+	 * objects must therefore be immutable. Objects are only weakly referenced and can still be garbage collected. When
+	 * more objects have been matched than the maximum size, the results of arbitrary objects are forgotten. Only the
+	 * results are remembered, so any mismatch is described by matching the object again.
+	 * <p>
+	 * The returned matcher is safe for concurrent use, provided that this matcher is.
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of objects whose results are remembered
+	 * @return the memoizing matcher
+	 */
+	public Matcher<T> memoized(int maximumSize)
+	{
+		return new MemoizingMatcher<>(this, maximumSize);
+	}
+	
+	/**
+	 * Matches a batch of objects against this matcher without describing any mismatch.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * boolean[] matches = compose(hasFeature(Person::getAge, greaterThan(18))).and(...).matchesBatch(people);
+	 * </pre>
+	 * <p>
+	 * The batch is evaluated column by column rather than object by object. Any nested compositions are flattened and
+	 * each feature is extracted from every object in the batch before its matcher is applied to all of the extracted
+	 * values, so that each pass over the batch calls a single function or matcher. Matchers are evaluated in cost
+	 * order and an object that does not match is not evaluated by any subsequent matcher.
+	 * 
+	 * @param actuals
+	 *            the objects to match
+	 * @return whether each object matches, in the same order as the objects
+	 */
+	public boolean[] matchesBatch(List<? extends T> actuals)
+	{
+		requireNonNull(actuals, "actuals");
+		
+		return inScope(() -> new BatchEvaluator(getLeafMatchers()).matches(actuals));
+	}
+	
+	/**
+	 * Matches a batch of objects against each of this matcher's child matchers and records which objects fail each
+	 * child.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * BatchResult result = compose(hasFeature(Person::getAge, greaterThan(18))).and(...).matchesBatchByChild(people);
+	 * BitSet underage = result.getFailures(0);
+	 * </pre>
+	 * <p>
+	 * Any nested compositions are flattened, so that the children are the leaf matchers of this composition in the
+	 * order that they were composed. Unlike {@link #matchesBatch(List)}, every child is evaluated against every object
+	 * so that each child's failures are complete. Each child is evaluated column by column and no mismatch is
+	 * described.
+	 * 
+	 * @param actuals
+	 *            the objects to match
+	 * @return the indices of the objects that fail each child and their union
+	 */
+	public BatchResult matchesBatchByChild(List<? extends T> actuals)
+	{
+		requireNonNull(actuals, "actuals");
+		
+		List<Matcher<?>> leafMatchers = getLeafMatchers();
+		
+		return new BatchResult(leafMatchers, actuals.size(),
+			inScope(() -> new BatchEvaluator(leafMatchers).failures(actuals)));
+	}
+	
+	/**
+	 * Returns a predicate that tests objects against this matcher without describing it or any mismatch.
+	 * <p>
+	 * For example:
+	 * <pre>
+	 * people.stream().filter(compose(hasFeature(Person::getAge, greaterThan(18))).and(...).asPredicate())
+	 * </pre>
+	 * <p>
+	 * Like {@code Matcher.matches}, the predicate tests the cheapest matchers first and short circuits at the first
+	 * matcher that does not match. Any composite and
+	 * feature matchers within this matcher are unwrapped so that their features are tested directly, rather than
+	 * through {@code Matcher.matches}. The predicate does not match {@code null}.
+	 * 
+	 * @return the predicate
+	 * @see ComposeMatchers#asPredicate(Matcher)
+	 */
+	public Predicate<T> asPredicate()
+	{
+		Predicate<Object>[] predicates = toPredicates(evaluationMatchers, evaluationOrder);
+		
+		if (memoizing)
+		{
+			return actual -> actual != null && testAllInScope(predicates, actual);
+		}
+		
+		return actual -> actual != null && testAll(predicates, actual);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Object methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(compositeDescription, matchers);
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof ConjunctionMatcher))
+		{
+			return false;
+		}
+		
+		ConjunctionMatcher<?> that = (ConjunctionMatcher<?>) object;
+		
+		return Objects.equals(compositeDescription, that.compositeDescription)
+			&& matchers.equals(that.matchers);
+	}
+	
 	// ----------------------------------------------------------------------------------------------------------------
 	// SelfDescribing methods
 	// ----------------------------------------------------------------------------------------------------------------
 
 	@Override
 	public void describeTo(Description description)
+	{
+		if (description == Description.NONE)
+		{
+			return;
+		}
+		
+		String text = renderedDescription;
+		
+		if (text == null)
+		{
+			StringDescription rendered = new StringDescription();
+			render(rendered);
+			text = rendered.toString();
+			renderedDescription = text;
+		}
+		
+		description.appendText(text);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// DiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matches(Object actual, Description mismatch)
+	{
+		if (actual == null)
+		{
+			mismatch.appendText("was null");
+			return false;
+		}
+		
+		@SuppressWarnings("unchecked")
+		T typedActual = (T) actual;
+		
+		if (memoizing && MemoizedFunction.enterScope())
+		{
+			try
+			{
+				return matchesAll(typedActual, mismatch);
+			}
+			finally
+			{
+				MemoizedFunction.exitScope();
+			}
+		}
+		
+		return matchesAll(typedActual, mismatch);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the matchers that this matcher composes once any nested compositions have been flattened and any matchers
+	 * that match anything have been removed.
+	 */
+	List<Matcher<?>> getLeafMatchers()
+	{
+		List<Matcher<?>> leaves = new ArrayList<>();
+		flatten(this, leaves);
+		return leaves;
+	}
+	
+	/**
+	 * Gets the cost of this matcher, which is that of its most expensive matcher.
+	 */
+	Cost getCost()
+	{
+		Cost cost = Cost.LOW;
+		
+		for (Matcher<?> matcher : evaluationMatchers)
+		{
+			Cost matcherCost = Cost.of(matcher);
+			cost = (matcherCost.compareTo(cost) > 0) ? matcherCost : cost;
+		}
+		
+		return cost;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private void render(Description description)
 	{
 		if (matchers.isEmpty())
 		{
@@ -105,23 +423,36 @@ public final class ConjunctionMatcher<T> extends TypeSafeDiagnosingMatcher<T>
 		else
 		{
 			String start = (compositeDescription != null) ? compositeDescription + " " : "";
-		
+			
 			description.appendList(start, SEPARATOR, "", matchers);
 		}
 	}
 	
-	// ----------------------------------------------------------------------------------------------------------------
-	// TypeSafeDiagnosingMatcher methods
-	// ----------------------------------------------------------------------------------------------------------------
-
-	@Override
-	protected boolean matchesSafely(T actual, Description mismatch)
+	private boolean matchesAll(T actual, Description mismatch)
 	{
+		if (mismatch == Description.NONE)
+		{
+			return matchesInCostOrder(actual);
+		}
+		
+		Evaluation evaluation = async ? pendingEvaluations.take(actual) : null;
+		
+		if (evaluation != null)
+		{
+			evaluation.resume();
+		}
+		else if (async || featureTrie != null)
+		{
+			evaluation = new Evaluation(actual);
+		}
+		
 		boolean matches = true;
 		
-		for (Matcher<? super T> matcher : matchers)
+		for (int index = 0; index < evaluationMatchers.length; index++)
 		{
-			if (!matcher.matches(actual))
+			Matcher<?> matcher = evaluationMatchers[index];
+			
+			if (!((evaluation != null) ? evaluation.matches(index) : matcher.matches(actual)))
 			{
 				if (!matches)
 				{
@@ -130,17 +461,189 @@ public final class ConjunctionMatcher<T> extends TypeSafeDiagnosingMatcher<T>
 				
 				matches = false;
 				
-				matcher.describeMismatch(actual, mismatch);
+				if (evaluation != null)
+				{
+					evaluation.describeMismatch(index, mismatch);
+				}
+				else
+				{
+					matcher.describeMismatch(actual, mismatch);
+				}
 			}
 		}
 		
 		return matches;
 	}
 	
-	// ----------------------------------------------------------------------------------------------------------------
-	// private methods
-	// ----------------------------------------------------------------------------------------------------------------
-
+	private boolean matchesInCostOrder(T actual)
+	{
+		if (async && pendingEvaluations.peek(actual) != null)
+		{
+			return false;
+		}
+		
+		Evaluation evaluation = (async || featureTrie != null) ? new Evaluation(actual) : null;
+		
+		for (int index : evaluationOrder)
+		{
+			if (!((evaluation != null) ? evaluation.matches(index) : evaluationMatchers[index].matches(actual)))
+			{
+				if (async)
+				{
+					evaluation.cancel();
+					pendingEvaluations.put(actual, evaluation);
+				}
+				
+				return false;
+			}
+		}
+		
+		if (async)
+		{
+			pendingEvaluations.clear();
+		}
+		
+		return true;
+	}
+	
+	private static int[] costOrder(Matcher<?>[] matchers)
+	{
+		Cost[] costs = new Cost[matchers.length];
+		Integer[] order = new Integer[matchers.length];
+		
+		for (int index = 0; index < matchers.length; index++)
+		{
+			costs[index] = Cost.of(matchers[index]);
+			order[index] = index;
+		}
+		
+		// stable sort so that matchers of equal cost keep their composed order
+		Arrays.sort(order, Comparator.comparing(index -> costs[index]));
+		
+		return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+	}
+	
+	private static boolean hasAsyncFeature(Matcher<?>[] matchers)
+	{
+		for (Matcher<?> matcher : matchers)
+		{
+			if (matcher instanceof HasAsyncFeatureMatcher)
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private CompletableFuture<?>[] startFeatures(T actual)
+	{
+		CompletableFuture<?>[] features = new CompletableFuture<?>[evaluationMatchers.length];
+		
+		for (int index = 0; index < evaluationMatchers.length; index++)
+		{
+			if (evaluationMatchers[index] instanceof HasAsyncFeatureMatcher)
+			{
+				features[index] = ((HasAsyncFeatureMatcher<?, ?>) evaluationMatchers[index]).start(actual);
+			}
+		}
+		
+		return features;
+	}
+	
+	private static boolean usesMemoizedFunction(Matcher<?>[] matchers)
+	{
+		for (Matcher<?> matcher : matchers)
+		{
+			boolean nested = (matcher instanceof ConjunctionMatcher) && ((ConjunctionMatcher<?>) matcher).memoizing;
+			
+			if (nested || MemoizedFunction.isUsedBy(matcher))
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private static Predicate<Object>[] toPredicates(Matcher<?>[] matchers, int[] order)
+	{
+		@SuppressWarnings("unchecked")
+		Predicate<Object>[] predicates = (Predicate<Object>[]) new Predicate<?>[matchers.length];
+		
+		for (int index = 0; index < matchers.length; index++)
+		{
+			@SuppressWarnings("unchecked")
+			Matcher<Object> matcher = (Matcher<Object>) matchers[order[index]];
+			
+			predicates[index] = ComposeMatchers.asPredicate(matcher);
+		}
+		
+		return predicates;
+	}
+	
+	private static boolean testAll(Predicate<Object>[] predicates, Object actual)
+	{
+		for (Predicate<Object> predicate : predicates)
+		{
+			if (!predicate.test(actual))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private <R> R inScope(Supplier<R> supplier)
+	{
+		if (memoizing && MemoizedFunction.enterScope())
+		{
+			try
+			{
+				return supplier.get();
+			}
+			finally
+			{
+				MemoizedFunction.exitScope();
+			}
+		}
+		
+		return supplier.get();
+	}
+	
+	private static boolean testAllInScope(Predicate<Object>[] predicates, Object actual)
+	{
+		if (!MemoizedFunction.enterScope())
+		{
+			return testAll(predicates, actual);
+		}
+		
+		try
+		{
+			return testAll(predicates, actual);
+		}
+		finally
+		{
+			MemoizedFunction.exitScope();
+		}
+	}
+	
+	private static void flatten(ConjunctionMatcher<?> matcher, List<Matcher<?>> leaves)
+	{
+		for (Matcher<?> child : matcher.matchers)
+		{
+			if (child instanceof ConjunctionMatcher)
+			{
+				flatten((ConjunctionMatcher<?>) child, leaves);
+			}
+			else if (!(child instanceof IsAnything))
+			{
+				leaves.add(child);
+			}
+		}
+	}
+	
 	private static <E> List<E> toList(Iterable<E> iterable)
 	{
 		List<E> list = new ArrayList<>();
@@ -154,4 +657,98 @@ public final class ConjunctionMatcher<T> extends TypeSafeDiagnosingMatcher<T>
 		newList.add(element);
 		return newList;
 	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The state shared by the matchers of a composition while matching a single object.
+	 */
+	private final class Evaluation
+	{
+		private final T actual;
+		
+		private long startNanos;
+		
+		private final CompletableFuture<?>[] features;
+		
+		private final Object[] featureValues;
+		
+		Evaluation(T actual)
+		{
+			this.actual = actual;
+			startNanos = System.nanoTime();
+			features = async ? startFeatures(actual) : null;
+			featureValues = (featureTrie != null) ? featureTrie.newValues() : null;
+		}
+		
+		boolean matches(int index)
+		{
+			return isExtracted(index)
+				? matchesExtracted(index, Description.NONE)
+				: evaluationMatchers[index].matches(actual);
+		}
+		
+		/**
+		 * Cancels any asynchronous features that have yet to complete once the match has failed.
+		 */
+		void cancel()
+		{
+			for (CompletableFuture<?> feature : features)
+			{
+				if (feature != null)
+				{
+					feature.cancel(false);
+				}
+			}
+		}
+		
+		/**
+		 * Restarts any cancelled asynchronous features, keeping those that completed, so that the mismatch can be
+		 * described.
+		 */
+		void resume()
+		{
+			startNanos = System.nanoTime();
+			
+			for (int index = 0; index < features.length; index++)
+			{
+				if (features[index] != null && features[index].isCancelled())
+				{
+					features[index] = ((HasAsyncFeatureMatcher<?, ?>) evaluationMatchers[index]).start(actual);
+				}
+			}
+		}
+		
+		void describeMismatch(int index, Description mismatch)
+		{
+			if (isExtracted(index))
+			{
+				matchesExtracted(index, mismatch);
+			}
+			else
+			{
+				evaluationMatchers[index].describeMismatch(actual, mismatch);
+			}
+		}
+		
+		private boolean isExtracted(int index)
+		{
+			return (features != null && features[index] != null)
+				|| (featureValues != null && evaluationMatchers[index] instanceof HasFeaturePathMatcher);
+		}
+		
+		private boolean matchesExtracted(int index, Description mismatch)
+		{
+			Matcher<?> matcher = evaluationMatchers[index];
+			
+			if (features != null && features[index] != null)
+			{
+				return ((HasAsyncFeatureMatcher<?, ?>) matcher).matchesFeature(features[index], startNanos, mismatch);
+			}
+			
+			return ((HasFeaturePathMatcher<?, ?>) matcher).matches(actual, featureTrie, featureValues, mismatch);
+		}
+	}
 }
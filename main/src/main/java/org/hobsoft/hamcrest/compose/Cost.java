@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.core.IsAnything;
+import org.hamcrest.core.IsEqual;
+import org.hamcrest.core.IsInstanceOf;
+import org.hamcrest.core.IsNull;
+import org.hamcrest.core.IsSame;
+
+/**
+ * A hint of how expensive a matcher is to evaluate.
+ * <p>
+ * When a composite matcher only needs to know whether an object matches, rather than to describe a mismatch, it
+ * evaluates its cheapest matchers first and stops at the first that does not match. A matcher is given a cost by
+ * {@code ComposeMatchers.withCost}, otherwise its cost is inferred from its type:
+ * <ul>
+ * <li>Equality, identity, null and type checks are {@link #LOW}
+ * <li>Feature matchers cost as much as the matcher of their feature
+ * <li>Composite matchers cost as much as their most expensive matcher
+ * <li>Asynchronous feature, stream, publisher, diff, snapshot and timeout matchers are {@link #HIGH}
+ * <li>Any other matcher is {@link #MEDIUM}
+ * </ul>
+ *
+ * @see ComposeMatchers#withCost(Matcher, Cost)
+ */
+public enum Cost
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * A matcher that is cheap to evaluate, such as a field equality check.
+	 */
+	LOW,
+	
+	/**
+	 * A matcher of unknown cost.
+	 */
+	MEDIUM,
+	
+	/**
+	 * A matcher that is expensive to evaluate, such as a regular expression over a large body of text.
+	 */
+	HIGH;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the cost of the specified matcher, as given by {@code withCost} or otherwise inferred from its type.
+	 */
+	static Cost of(Matcher<?> matcher)
+	{
+		if (matcher instanceof CostMatcher)
+		{
+			return ((CostMatcher<?>) matcher).getCost();
+		}
+		
+		if (matcher instanceof HasFeatureMatcher)
+		{
+			return of(((HasFeatureMatcher<?, ?>) matcher).getFeatureMatcher());
+		}
+		
+		if (matcher instanceof HasFeaturePathMatcher)
+		{
+			return of(((HasFeaturePathMatcher<?, ?>) matcher).getFeatureMatcher());
+		}
+		
+		if (matcher instanceof ConjunctionMatcher)
+		{
+			return ((ConjunctionMatcher<?>) matcher).getCost();
+		}
+		
+		return ofType(matcher);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static Cost ofType(Matcher<?> matcher)
+	{
+		if (matcher instanceof IsEqual || matcher instanceof IsSame || matcher instanceof IsNull
+			|| matcher instanceof IsInstanceOf || matcher instanceof IsAnything)
+		{
+			return LOW;
+		}
+		
+		if (matcher instanceof HasAsyncFeatureMatcher || matcher instanceof StreamMatcher
+			|| matcher instanceof PublisherMatcher || matcher instanceof DiffMatcher
+			|| matcher instanceof SnapshotMatcher || matcher instanceof TimeoutMatcher)
+		{
+			return HIGH;
+		}
+		
+		return MEDIUM;
+	}
+}
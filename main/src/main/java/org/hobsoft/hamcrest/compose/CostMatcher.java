@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Matcher that gives another matcher a cost hint.
+ * <p>
+ * This matcher matches and describes itself and any mismatch exactly as the matcher that it decorates.
+ * <p>
+ * Use {@code ComposeMatchers.withCost} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to be matched
+ * @see ComposeMatchers#withCost(Matcher, Cost)
+ */
+final class CostMatcher<T> extends BaseMatcher<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Matcher<T> matcher;
+	
+	private final Cost cost;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	CostMatcher(Matcher<T> matcher, Cost cost)
+	{
+		this.matcher = requireNonNull(matcher, "matcher");
+		this.cost = requireNonNull(cost, "cost");
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Object methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(matcher, cost);
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof CostMatcher))
+		{
+			return false;
+		}
+		
+		CostMatcher<?> that = (CostMatcher<?>) object;
+		
+		return matcher.equals(that.matcher)
+			&& cost == that.cost;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		matcher.describeTo(description);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Matcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public boolean matches(Object actual)
+	{
+		return matcher.matches(actual);
+	}
+	
+	@Override
+	public void describeMismatch(Object actual, Description mismatch)
+	{
+		matcher.describeMismatch(actual, mismatch);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	Matcher<T> getMatcher()
+	{
+		return matcher;
+	}
+	
+	Cost getCost()
+	{
+		return cost;
+	}
+	
+	/**
+	 * Returns a predicate that tests objects against the decorated matcher without describing it.
+	 */
+	Predicate<T> asPredicate()
+	{
+		return ComposeMatchers.asPredicate(matcher);
+	}
+}
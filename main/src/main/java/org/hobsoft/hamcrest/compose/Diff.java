@@ -0,0 +1,380 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Difference between two sequences computed by Myers' O(ND) algorithm in linear space.
+ * <p>
+ * The difference is represented as the ordered runs of elements that are common to both sequences. The first run
+ * always starts at the beginning of both sequences and the last run always ends at the end of both sequences, either
+ * of which may be empty. Consecutive runs are separated by elements that were deleted from the first sequence and/or
+ * inserted into the second.
+ * <p>
+ * The search is bounded by a maximum cost so that large, mostly differing sequences do not take quadratic time. Once
+ * the cost is exceeded, any ranges that remain to be compared are reported as a single change rather than the
+ * smallest one.
+ */
+final class Diff
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int NO_OVERLAP = Integer.MIN_VALUE;
+	
+	private static final int MAX_COST = 10_000_000;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final int[] a;
+	
+	private final int[] b;
+	
+	private final int maxCost;
+	
+	// number of diagonals and snake steps searched so far
+	private int cost;
+	
+	// triples of a start, b start and length
+	private int[] runs;
+	
+	private int runCount;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private Diff(int[] a, int[] b, int maxCost)
+	{
+		this.a = a;
+		this.b = b;
+		this.maxCost = maxCost;
+		runs = new int[3 * 8];
+		
+		appendRun(0, 0, 0);
+		diff(0, a.length, 0, b.length);
+		
+		if (aEnd(runCount - 1) != a.length || bEnd(runCount - 1) != b.length)
+		{
+			appendRun(a.length, b.length, 0);
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	static Diff of(List<?> a, List<?> b)
+	{
+		return of(a, b, false);
+	}
+	
+	static Diff of(List<?> a, List<?> b, boolean deep)
+	{
+		return of(a, b, deep, MAX_COST);
+	}
+	
+	/**
+	 * Computes the difference between the specified sequences.
+	 * 
+	 * @param a
+	 *            the first sequence
+	 * @param b
+	 *            the second sequence
+	 * @param deep
+	 *            whether elements are compared by {@code Objects.deepEquals} rather than {@code equals}
+	 * @param maxCost
+	 *            the number of search steps after which remaining ranges are reported as a single change
+	 * @return the difference
+	 */
+	static Diff of(List<?> a, List<?> b, boolean deep, int maxCost)
+	{
+		requireNonNull(a, "a");
+		requireNonNull(b, "b");
+		
+		Map<Object, Integer> ids = new HashMap<>();
+		
+		return new Diff(toIds(a, ids, deep), toIds(b, ids, deep), maxCost);
+	}
+	
+	int size()
+	{
+		return runCount;
+	}
+	
+	int aStart(int run)
+	{
+		return runs[3 * run];
+	}
+	
+	int bStart(int run)
+	{
+		return runs[3 * run + 1];
+	}
+	
+	int length(int run)
+	{
+		return runs[3 * run + 2];
+	}
+	
+	int aEnd(int run)
+	{
+		return aStart(run) + length(run);
+	}
+	
+	int bEnd(int run)
+	{
+		return bStart(run) + length(run);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static int[] toIds(List<?> elements, Map<Object, Integer> ids, boolean deep)
+	{
+		int[] result = new int[elements.size()];
+		int index = 0;
+		
+		for (Object element : elements)
+		{
+			Object key = deep ? new DeepKey(element) : element;
+			Integer id = ids.get(key);
+			
+			if (id == null)
+			{
+				id = ids.size();
+				ids.put(key, id);
+			}
+			
+			result[index++] = id;
+		}
+		
+		return result;
+	}
+	
+	private void diff(int aFrom, int aTo, int bFrom, int bTo)
+	{
+		int prefix = 0;
+		while (aFrom + prefix < aTo && bFrom + prefix < bTo && a[aFrom + prefix] == b[bFrom + prefix])
+		{
+			prefix++;
+		}
+		
+		int suffix = 0;
+		while (aFrom + prefix < aTo - suffix && bFrom + prefix < bTo - suffix
+			&& a[aTo - suffix - 1] == b[bTo - suffix - 1])
+		{
+			suffix++;
+		}
+		
+		addRun(aFrom, bFrom, prefix);
+		
+		if (aFrom + prefix < aTo - suffix && bFrom + prefix < bTo - suffix)
+		{
+			bisect(aFrom + prefix, aTo - suffix, bFrom + prefix, bTo - suffix);
+		}
+		
+		addRun(aTo - suffix, bTo - suffix, suffix);
+	}
+	
+	/**
+	 * Finds the middle snake of the specified ranges and recursively diffs either side of it.
+	 * <p>
+	 * Both ranges must be non-empty and must differ in their first and last elements. The ranges are left as a single
+	 * change if the maximum cost is exceeded before the snake is found.
+	 */
+	private void bisect(int aFrom, int aTo, int bFrom, int bTo)
+	{
+		int n = aTo - aFrom;
+		int m = bTo - bFrom;
+		int maxD = (n + m + 1) / 2;
+		boolean odd = ((n - m) % 2 != 0);
+		
+		Frontier forward = new Frontier(aFrom, aTo, bFrom, bTo, maxD, false);
+		Frontier reverse = new Frontier(aFrom, aTo, bFrom, bTo, maxD, true);
+		
+		for (int d = 0; d <= maxD && cost <= maxCost; d++)
+		{
+			// the reverse paths have only been extended to d - 1 when the forward paths reach d
+			int k = forward.advance(d, odd ? reverse : null, d - 1);
+			
+			if (k != NO_OVERLAP)
+			{
+				int x = forward.get(k);
+				split(aFrom, aTo, bFrom, bTo, x, x - k);
+				return;
+			}
+			
+			k = reverse.advance(d, odd ? null : forward, d);
+			
+			if (k != NO_OVERLAP)
+			{
+				int x = reverse.get(k);
+				split(aFrom, aTo, bFrom, bTo, n - x, m - x + k);
+				return;
+			}
+		}
+	}
+	
+	private void split(int aFrom, int aTo, int bFrom, int bTo, int x, int y)
+	{
+		diff(aFrom, aFrom + x, bFrom, bFrom + y);
+		diff(aFrom + x, aTo, bFrom + y, bTo);
+	}
+	
+	private void addRun(int aStart, int bStart, int length)
+	{
+		int last = runCount - 1;
+		
+		if (aEnd(last) == aStart && bEnd(last) == bStart)
+		{
+			runs[3 * last + 2] += length;
+		}
+		else if (length > 0)
+		{
+			appendRun(aStart, bStart, length);
+		}
+	}
+	
+	private void appendRun(int aStart, int bStart, int length)
+	{
+		if (3 * runCount == runs.length)
+		{
+			runs = Arrays.copyOf(runs, 2 * runs.length);
+		}
+		
+		runs[3 * runCount] = aStart;
+		runs[3 * runCount + 1] = bStart;
+		runs[3 * runCount + 2] = length;
+		runCount++;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The furthest reaching D-paths in each diagonal, searched either forwards from the start of the ranges or in
+	 * reverse from their end.
+	 */
+	private final class Frontier
+	{
+		private final int aFrom;
+		
+		private final int aTo;
+		
+		private final int bFrom;
+		
+		private final int bTo;
+		
+		private final int offset;
+		
+		private final boolean reversed;
+		
+		private final int[] v;
+		
+		Frontier(int aFrom, int aTo, int bFrom, int bTo, int maxD, boolean reversed)
+		{
+			this.aFrom = aFrom;
+			this.aTo = aTo;
+			this.bFrom = bFrom;
+			this.bTo = bTo;
+			this.reversed = reversed;
+			offset = maxD + 1;
+			v = new int[2 * maxD + 3];
+		}
+		
+		int get(int k)
+		{
+			return v[offset + k];
+		}
+		
+		/**
+		 * Extends the paths to D differences and returns the diagonal on which they overlap the opposite frontier's
+		 * paths of the specified number of differences, if any.
+		 */
+		int advance(int d, Frontier opposite, int oppositeD)
+		{
+			int n = aTo - aFrom;
+			int m = bTo - bFrom;
+			
+			for (int k = -d; k <= d; k += 2)
+			{
+				int x = (k == -d || (k != d && get(k - 1) < get(k + 1))) ? get(k + 1) : get(k - 1) + 1;
+				int y = x - k;
+				int start = x;
+				
+				while (x < n && y < m && equal(x, y))
+				{
+					x++;
+					y++;
+				}
+				
+				v[offset + k] = x;
+				cost += 1 + x - start;
+				
+				// the opposite diagonal in the opposite direction's coordinates
+				int c = n - m - k;
+				
+				if (opposite != null && Math.abs(c) <= oppositeD && x + opposite.get(c) >= n)
+				{
+					return k;
+				}
+			}
+			
+			return NO_OVERLAP;
+		}
+		
+		private boolean equal(int x, int y)
+		{
+			return reversed ? a[aTo - x - 1] == b[bTo - y - 1] : a[aFrom + x] == b[bFrom + y];
+		}
+	}
+	
+	/**
+	 * Key that compares an element, including any array, by deep equality.
+	 */
+	private static final class DeepKey
+	{
+		private final Object element;
+		
+		DeepKey(Object element)
+		{
+			this.element = element;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return Arrays.deepHashCode(new Object[] {element});
+		}
+		
+		@Override
+		public boolean equals(Object object)
+		{
+			return object instanceof DeepKey && Objects.deepEquals(element, ((DeepKey) object).element);
+		}
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import org.hamcrest.Description;
+import org.hamcrest.StringDescription;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Matcher that matches an object that is equal to an expected sequence and describes any mismatch as a diff.
+ * <p>
+ * Mismatches are rendered as unified diff hunks that show only the differing elements together with a few elements of
+ * context. Text is compared line by line, whereas lists and arrays are compared element by element. Large diffs are
+ * truncated after a fixed number of lines and long lines or values are abbreviated around their first difference.
+ * <p>
+ * Use {@code ComposeMatchers.diffEqualTo} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to be matched
+ * @see ComposeMatchers#diffEqualTo(CharSequence)
+ */
+final class DiffMatcher<T> extends TypeSafeDiagnosingMatcher<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int CONTEXT = 3;
+	
+	private static final int MAX_DIFF_LINES = 100;
+	
+	private static final int MAX_VALUE_LENGTH = 80;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final T expected;
+	
+	private final BiPredicate<T, T> equality;
+	
+	private final Function<T, List<?>> elementsFunction;
+	
+	private final boolean text;
+	
+	private final boolean deep;
+	
+	private final List<?> expectedElements;
+	
+	private final String expectedDescription;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private DiffMatcher(Class<?> expectedType, T expected, BiPredicate<T, T> equality,
+		Function<T, List<?>> elementsFunction, boolean text, boolean deep)
+	{
+		super(expectedType);
+		
+		this.expected = requireNonNull(expected, "expected");
+		this.equality = equality;
+		this.elementsFunction = elementsFunction;
+		this.text = text;
+		this.deep = deep;
+		
+		expectedElements = elementsFunction.apply(expected);
+		expectedDescription = describeExpected();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		description.appendText("equal to ").appendText(expectedDescription);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// TypeSafeDiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matchesSafely(T actual, Description mismatch)
+	{
+		if (equality.test(expected, actual))
+		{
+			return true;
+		}
+		
+		if (!(mismatch instanceof Description.NullDescription))
+		{
+			describeDiff(elementsFunction.apply(actual), mismatch);
+		}
+		
+		return false;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	static DiffMatcher<CharSequence> text(CharSequence expected)
+	{
+		return new DiffMatcher<>(CharSequence.class, expected, (x, y) -> x.toString().contentEquals(y),
+			DiffMatcher::lines, true, false);
+	}
+	
+	static <E> DiffMatcher<List<E>> list(List<E> expected)
+	{
+		return new DiffMatcher<>(List.class, expected, Objects::equals, list -> list, false, false);
+	}
+	
+	static <E> DiffMatcher<E[]> array(E[] expected)
+	{
+		return new DiffMatcher<>(Object[].class, expected, Arrays::deepEquals, Arrays::asList, false, true);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static List<?> lines(CharSequence text)
+	{
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		
+		for (int index = 0; index < text.length(); index++)
+		{
+			if (text.charAt(index) == '\n')
+			{
+				lines.add(text.subSequence(start, index).toString());
+				start = index + 1;
+			}
+		}
+		
+		lines.add(text.subSequence(start, text.length()).toString());
+		
+		return lines;
+	}
+	
+	private String describeExpected()
+	{
+		String value = new StringDescription().appendValue(expected).toString();
+		
+		if (value.length() <= MAX_VALUE_LENGTH)
+		{
+			return value;
+		}
+		
+		if (expectedElements.size() > 1)
+		{
+			return String.format("%d %s", expectedElements.size(), text ? "lines" : "elements");
+		}
+		
+		return abbreviate(value, 0);
+	}
+	
+	private void describeDiff(List<?> actualElements, Description mismatch)
+	{
+		Diff diff = Diff.of(expectedElements, actualElements, deep);
+		DiffOutput output = new DiffOutput(mismatch);
+		
+		mismatch.appendText("differed:");
+		
+		int first = 0;
+		
+		while (first < diff.size() - 1)
+		{
+			// group changes separated by little enough common context into one hunk
+			int last = first + 1;
+			while (last < diff.size() - 1 && diff.length(last) <= 2 * CONTEXT)
+			{
+				last++;
+			}
+			
+			if (!describeHunk(diff, first, last, actualElements, output))
+			{
+				mismatch.appendText("\n...");
+				return;
+			}
+			
+			first = last;
+		}
+	}
+	
+	/**
+	 * Describes a hunk of the diff, or returns {@code false} if the diff must be truncated within it.
+	 */
+	private boolean describeHunk(Diff diff, int first, int last, List<?> actualElements, DiffOutput output)
+	{
+		int before = Math.min(CONTEXT, diff.length(first));
+		int after = Math.min(CONTEXT, diff.length(last));
+		int expectedStart = diff.aEnd(first) - before;
+		int actualStart = diff.bEnd(first) - before;
+		int expectedEnd = diff.aStart(last) + after;
+		int actualEnd = diff.bStart(last) + after;
+		
+		boolean complete = output.appendHeader(String.format("@@ -%d,%d +%d,%d @@", expectedStart + 1,
+			expectedEnd - expectedStart, actualStart + 1, actualEnd - actualStart))
+			&& describeElements("  ", expectedElements.subList(expectedStart, diff.aEnd(first)), 0, output);
+		
+		for (int run = first; complete && run < last; run++)
+		{
+			List<?> removed = expectedElements.subList(diff.aEnd(run), diff.aStart(run + 1));
+			List<?> added = actualElements.subList(diff.bEnd(run), diff.bStart(run + 1));
+			
+			// abbreviate a single changed element around its first difference
+			int focus = (removed.size() == 1 && added.size() == 1)
+				? firstDifference(render(removed.get(0)), render(added.get(0)))
+				: 0;
+			
+			int contextEnd = (run + 1 < last) ? diff.aEnd(run + 1) : expectedEnd;
+			
+			complete = describeElements("- ", removed, focus, output)
+				&& describeElements("+ ", added, focus, output)
+				&& describeElements("  ", expectedElements.subList(diff.aStart(run + 1), contextEnd), 0, output);
+		}
+		
+		return complete;
+	}
+	
+	private boolean describeElements(String prefix, List<?> elements, int focus, DiffOutput output)
+	{
+		for (Object element : elements)
+		{
+			if (!output.appendLine(prefix + abbreviate(render(element), focus)))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private String render(Object element)
+	{
+		return text ? (String) element : new StringDescription().appendValue(element).toString();
+	}
+	
+	private static int firstDifference(String expectedValue, String actualValue)
+	{
+		int length = Math.min(expectedValue.length(), actualValue.length());
+		int index = 0;
+		
+		while (index < length && expectedValue.charAt(index) == actualValue.charAt(index))
+		{
+			index++;
+		}
+		
+		return index;
+	}
+	
+	private static String abbreviate(String value, int focus)
+	{
+		if (value.length() <= MAX_VALUE_LENGTH)
+		{
+			return value;
+		}
+		
+		int start = Math.max(0, Math.min(focus - MAX_VALUE_LENGTH / 2, value.length() - MAX_VALUE_LENGTH));
+		int end = start + MAX_VALUE_LENGTH;
+		
+		return (start > 0 ? "..." : "") + value.substring(start, end) + (end < value.length() ? "..." : "");
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The lines of a diff that has been described so far, up to the maximum number of lines.
+	 */
+	private static final class DiffOutput
+	{
+		private final Description mismatch;
+		
+		private int lineCount;
+		
+		DiffOutput(Description mismatch)
+		{
+			this.mismatch = mismatch;
+		}
+		
+		boolean appendHeader(String header)
+		{
+			if (lineCount >= MAX_DIFF_LINES)
+			{
+				return false;
+			}
+			
+			mismatch.appendText("\n").appendText(header);
+			return true;
+		}
+		
+		boolean appendLine(String line)
+		{
+			if (!appendHeader(line))
+			{
+				return false;
+			}
+			
+			lineCount++;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A chain of functions that extracts a nested feature of an object.
+ * <p>
+ * For example:
+ * <pre>
+ * FeaturePath&lt;Order, String&gt; postcode = path("customer", Order::getCustomer)
+ *     .then("address", Customer::getAddress)
+ *     .then("postcode", Address::getPostcode);
+ * </pre>
+ * A path is named by joining the names of its functions with dots, for example {@code customer.address.postcode}.
+ * Applying a path returns {@code null} as soon as any intermediate feature is {@code null}, rather than throwing an
+ * exception.
+ * <p>
+ * Paths are immutable and safe for concurrent use. A path can be extended any number of times, so that a common
+ * prefix can be shared between several paths.
+ * <p>
+ * Use {@code ComposeMatchers.path} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to extract the feature from
+ * @param <U>
+ *            the type of the feature
+ * @see ComposeMatchers#path(String, Function)
+ */
+public final class FeaturePath<T, U> implements Function<T, U>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Function<Object, U> function;
+	
+	private final String name;
+	
+	private final FeaturePath<?, ?>[] prefixes;
+	
+	private volatile Object key;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private FeaturePath(FeaturePath<T, ?> parent, String featureName, Function<Object, U> function)
+	{
+		FeaturePath<?, ?>[] parentPrefixes = (parent != null) ? parent.prefixes : new FeaturePath<?, ?>[0];
+		
+		this.function = function;
+		name = (parent != null) ? parent.name + "." + featureName : featureName;
+		prefixes = Arrays.copyOf(parentPrefixes, parentPrefixes.length + 1);
+		prefixes[parentPrefixes.length] = this;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns a path that extends this path with the specified function.
+	 * <p>
+	 * Note that this method returns a new path and does not modify this instance.
+	 *
+	 * @param featureFunction
+	 *            a method reference to extract the next feature from this path's feature. The compiler will generate a
+	 *            serialized lambda that is used to obtain the feature name.
+	 * @param <V>
+	 *            the type of the next feature
+	 * @return the extended path
+	 */
+	public <V> FeaturePath<T, V> then(SerializableFunction<? super U, V> featureFunction)
+	{
+		return then(featureFunction.getName(), featureFunction);
+	}
+	
+	/**
+	 * Returns a path that extends this path with the specified named function.
+	 * <p>
+	 * Note that this method returns a new path and does not modify this instance.
+	 *
+	 * @param featureName
+	 *            the name of the next feature
+	 * @param featureFunction
+	 *            a function to extract the next feature from this path's feature
+	 * @param <V>
+	 *            the type of the next feature
+	 * @return the extended path
+	 */
+	public <V> FeaturePath<T, V> then(String featureName, Function<? super U, V> featureFunction)
+	{
+		return new FeaturePath<>(this, featureName, erase(featureFunction));
+	}
+	
+	/**
+	 * Gets the dotted name of this path.
+	 *
+	 * @return the name of each function in this path separated by dots
+	 */
+	public String getName()
+	{
+		return name;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Function methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public U apply(T actual)
+	{
+		Object value = actual;
+		
+		for (FeaturePath<T, ?> prefix : getPrefixes())
+		{
+			if (value == null)
+			{
+				return null;
+			}
+			
+			value = prefix.applySegment(value);
+		}
+		
+		@SuppressWarnings("unchecked")
+		U feature = (U) value;
+		
+		return feature;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Object methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	static <T, U> FeaturePath<T, U> of(String featureName, Function<T, U> featureFunction)
+	{
+		return new FeaturePath<>(null, featureName, erase(featureFunction));
+	}
+	
+	/**
+	 * Gets the paths that this path extends followed by this path, starting with the first function. The returned
+	 * array must not be modified.
+	 */
+	FeaturePath<T, ?>[] getPrefixes()
+	{
+		@SuppressWarnings("unchecked")
+		FeaturePath<T, ?>[] typedPrefixes = (FeaturePath<T, ?>[]) prefixes;
+		
+		return typedPrefixes;
+	}
+	
+	/**
+	 * Gets a key that is equal for separately built paths whose functions are equal method references, as given by
+	 * {@code SerializedLambdas.key}.
+	 */
+	Object getKey()
+	{
+		Object pathKey = key;
+		
+		if (pathKey == null)
+		{
+			Object functionKey = SerializedLambdas.key(function);
+			pathKey = (prefixes.length > 1) ? asList(prefixes[prefixes.length - 2].getKey(), functionKey)
+				: singletonList(functionKey);
+			key = pathKey;
+		}
+		
+		return pathKey;
+	}
+	
+	/**
+	 * Gets only the last function of this path.
+	 */
+	Function<Object, U> getFunction()
+	{
+		return function;
+	}
+	
+	/**
+	 * Applies only the last function of this path to the specified value of its parent path.
+	 */
+	U applySegment(Object parentValue)
+	{
+		return function.apply(parentValue);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static <U> Function<Object, U> erase(Function<?, U> function)
+	{
+		requireNonNull(function, "featureFunction");
+		
+		@SuppressWarnings("unchecked")
+		Function<Object, U> erasedFunction = (Function<Object, U>) function;
+		
+		return erasedFunction;
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hamcrest.Matcher;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Golden file of the feature values of many objects that they can later be matched against.
+ * <p>
+ * For example:
+ * <pre>
+ * FeatureSnapshot&lt;Person&gt; snapshot = snapshot(Paths.get("people.snapshot"), Person::getId)
+ *     .withFeature(Person::getFirstName)
+ *     .withFeature(Person::getLastName);
+ *
+ * snapshot.record(people);
+ * ...
+ * people.forEach(person -&gt; assertThat(person, snapshot.matchesRecorded()));
+ * </pre>
+ * Each object is identified by a key and its features are recorded as strings in a compact binary file. Objects are
+ * matched by memory-mapping the file and finding the record of their key through an index, so that neither the file
+ * nor the expected objects need to be read onto the heap. A recorded object is matched by a composition of
+ * {@code hasFeature} matchers that compare the string value of each feature to the recorded value.
+ * <p>
+ * Snapshots are immutable and a snapshot file must be smaller than 2 GB. The matchers returned by
+ * {@code matchesRecorded} are safe for concurrent use, but a snapshot must not be recorded while it is being matched.
+ * <p>
+ * Use {@code ComposeMatchers.snapshot} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the objects to be recorded and matched
+ * @see ComposeMatchers#snapshot(Path, Function)
+ */
+public final class FeatureSnapshot<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Path file;
+	
+	private final Function<T, ?> keyFunction;
+	
+	private final List<String> featureNames;
+	
+	private final List<Function<T, ?>> featureFunctions;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	FeatureSnapshot(Path file, Function<T, ?> keyFunction)
+	{
+		this(requireNonNull(file, "file"), requireNonNull(keyFunction, "keyFunction"), new ArrayList<>(),
+			new ArrayList<>());
+	}
+	
+	private FeatureSnapshot(Path file, Function<T, ?> keyFunction, List<String> featureNames,
+		List<Function<T, ?>> featureFunctions)
+	{
+		this.file = file;
+		this.keyFunction = keyFunction;
+		this.featureNames = unmodifiableList(featureNames);
+		this.featureFunctions = unmodifiableList(featureFunctions);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns a snapshot that also records the specified feature.
+	 * <p>
+	 * Note that this method returns a new snapshot and does not modify this instance.
+	 *
+	 * @param featureFunction
+	 *            a method reference to extract the feature from each object. The compiler will generate a serialized
+	 *            lambda that is used to obtain the feature name.
+	 * @return the snapshot
+	 */
+	public FeatureSnapshot<T> withFeature(SerializableFunction<T, ?> featureFunction)
+	{
+		return withFeature(featureFunction.getName(), featureFunction);
+	}
+	
+	/**
+	 * Returns a snapshot that also records the specified nested feature.
+	 * <p>
+	 * Note that this method returns a new snapshot and does not modify this instance.
+	 *
+	 * @param featurePath
+	 *            a path to extract the feature from each object. The dotted name of this path is used as the feature
+	 *            name.
+	 * @return the snapshot
+	 */
+	public FeatureSnapshot<T> withFeature(FeaturePath<T, ?> featurePath)
+	{
+		return withFeature(featurePath.getName(), featurePath);
+	}
+	
+	/**
+	 * Returns a snapshot that also records the specified named feature.
+	 * <p>
+	 * Note that this method returns a new snapshot and does not modify this instance.
+	 *
+	 * @param featureName
+	 *            the name of the feature that is recorded and used by {@code describeMismatch}
+	 * @param featureFunction
+	 *            a function to extract the feature from each object
+	 * @return the snapshot
+	 */
+	public FeatureSnapshot<T> withFeature(String featureName, Function<T, ?> featureFunction)
+	{
+		requireNonNull(featureName, "featureName");
+		requireNonNull(featureFunction, "featureFunction");
+		
+		return new FeatureSnapshot<>(file, keyFunction, concat(featureNames, featureName),
+			concat(featureFunctions, featureFunction));
+	}
+	
+	/**
+	 * Records the key and feature values of the specified objects into this snapshot's file, replacing any existing
+	 * file.
+	 * <p>
+	 * The objects are iterated once and are not retained. Keys must be unique. The file is only replaced once every
+	 * object has been recorded, so that any existing file is left unchanged if recording fails.
+	 *
+	 * @param objects
+	 *            the objects to record
+	 * @throws UncheckedIOException
+	 *             if the file cannot be written
+	 * @throws IllegalArgumentException
+	 *             if two objects have the same key
+	 */
+	public void record(Iterable<? extends T> objects)
+	{
+		Iterator<? extends T> iterator = objects.iterator();
+		
+		Iterator<String[]> records = new Iterator<String[]>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return iterator.hasNext();
+			}
+			
+			@Override
+			public String[] next()
+			{
+				return toRecord(iterator.next());
+			}
+		};
+		
+		try
+		{
+			SnapshotFile.write(file, featureNames, records);
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException(exception);
+		}
+	}
+	
+	/**
+	 * Returns a matcher that matches an object whose features are equal to those recorded for its key.
+	 * <p>
+	 * The snapshot file is memory-mapped when this method is called, so that the returned matcher can be reused to
+	 * match many objects.
+	 *
+	 * @return the snapshot matcher
+	 * @throws UncheckedIOException
+	 *             if the file cannot be read
+	 * @throws IllegalStateException
+	 *             if the file records different features to this snapshot
+	 */
+	public Matcher<T> matchesRecorded()
+	{
+		SnapshotFile snapshotFile;
+		
+		try
+		{
+			snapshotFile = SnapshotFile.map(file);
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException(exception);
+		}
+		
+		if (!snapshotFile.getFeatureNames().equals(featureNames))
+		{
+			throw new IllegalStateException(String.format("Snapshot %s records features %s rather than %s", file,
+				snapshotFile.getFeatureNames(), featureNames));
+		}
+		
+		return new SnapshotMatcher<>(file.getFileName().toString(), snapshotFile, this::toKey, featureNames,
+			featureFunctions);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private String toKey(T object)
+	{
+		return String.valueOf(keyFunction.apply(object));
+	}
+	
+	private String[] toRecord(T object)
+	{
+		String[] record = new String[1 + featureFunctions.size()];
+		record[0] = toKey(object);
+		
+		for (int index = 0; index < featureFunctions.size(); index++)
+		{
+			record[1 + index] = String.valueOf(featureFunctions.get(index).apply(object));
+		}
+		
+		return record;
+	}
+	
+	private static <E> List<E> concat(List<E> list, E element)
+	{
+		List<E> newList = new ArrayList<>(list);
+		newList.add(element);
+		return newList;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.hamcrest.Matcher;
+
+/**
+ * The feature path prefixes that are shared by the feature path matchers of a composition.
+ * <p>
+ * Feature paths form a trie whose nodes are the prefixes that they extend. Each node that is shared by more than one
+ * matcher is assigned a slot, so that its feature value can be extracted once per match and then reused by every
+ * matcher below it. Prefixes are identified structurally by their key, in the same way as {@code MatcherIndex}
+ * identifies features, so that separately built paths of the same method references share a prefix. Each prefix
+ * instance is then mapped to its slot, so that a slot is found by identity during a match.
+ */
+final class FeatureTrie
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final Object UNEXTRACTED = new Object();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Map<FeaturePath<?, ?>, Integer> slots;
+	
+	private final int slotCount;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private FeatureTrie(Map<FeaturePath<?, ?>, Integer> slots, int slotCount)
+	{
+		this.slots = slots;
+		this.slotCount = slotCount;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Builds the trie of the feature path matchers within the specified matchers, or returns {@code null} if they do
+	 * not share any prefixes.
+	 */
+	static FeatureTrie of(Matcher<?>[] matchers)
+	{
+		Map<Object, Integer> counts = new HashMap<>();
+		forEachPrefix(matchers, prefix -> counts.merge(prefix.getKey(), 1, Integer::sum));
+		
+		Map<Object, Integer> keySlots = new HashMap<>();
+		Map<FeaturePath<?, ?>, Integer> slots = new IdentityHashMap<>();
+		
+		forEachPrefix(matchers, prefix ->
+		{
+			Object key = prefix.getKey();
+			
+			if (counts.get(key) > 1)
+			{
+				Integer slot = keySlots.get(key);
+				
+				if (slot == null)
+				{
+					slot = keySlots.size();
+					keySlots.put(key, slot);
+				}
+				
+				slots.put(prefix, slot);
+			}
+		});
+		
+		return slots.isEmpty() ? null : new FeatureTrie(slots, keySlots.size());
+	}
+	
+	/**
+	 * Creates the array that holds the shared feature values extracted during a single match.
+	 */
+	Object[] newValues()
+	{
+		Object[] values = new Object[slotCount];
+		Arrays.fill(values, UNEXTRACTED);
+		return values;
+	}
+	
+	/**
+	 * Extracts the feature of the specified prefix from the specified value of its parent, reusing any value that has
+	 * already been extracted during this match.
+	 */
+	Object extract(FeaturePath<?, ?> prefix, Object parentValue, Object[] values)
+	{
+		Integer slot = slots.get(prefix);
+		
+		if (slot == null)
+		{
+			return prefix.applySegment(parentValue);
+		}
+		
+		if (values[slot] == UNEXTRACTED)
+		{
+			values[slot] = prefix.applySegment(parentValue);
+		}
+		
+		return values[slot];
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static void forEachPrefix(Matcher<?>[] matchers, Consumer<FeaturePath<?, ?>> action)
+	{
+		for (Matcher<?> matcher : matchers)
+		{
+			if (matcher instanceof HasFeaturePathMatcher)
+			{
+				for (FeaturePath<?, ?> prefix : ((HasFeaturePathMatcher<?, ?>) matcher).getFeaturePath().getPrefixes())
+				{
+					action.accept(prefix);
+				}
+			}
+		}
+	}
+}
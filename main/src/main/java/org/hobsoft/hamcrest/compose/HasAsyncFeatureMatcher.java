@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Matcher that matches a feature of an object that is extracted asynchronously by a function.
+ * <p>
+ * The feature function returns a {@code CompletionStage} that is waited upon for at most the timeout. A feature that
+ * does not complete in time, or that completes exceptionally, is reported as a mismatch, as is a function that throws
+ * an exception or returns {@code null} rather than a stage. When composed by a {@code ConjunctionMatcher} all
+ * asynchronous features are started before any are waited upon, so that a composition takes only as long as its
+ * slowest feature.
+ * <p>
+ * The mismatch of a failed match is kept on the same thread until it is described, in the same way as the stream
+ * matchers, so that describing the mismatch does not extract the feature again.
+ * <p>
+ * Use {@code ComposeMatchers.hasAsyncFeature} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to be matched
+ * @param <U>
+ *            the type of the feature to be matched
+ * @see ComposeMatchers#hasAsyncFeature(String, Function, Matcher, Duration)
+ */
+final class HasAsyncFeatureMatcher<T, U> extends TypeSafeDiagnosingMatcher<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final String featureName;
+	
+	private final Function<T, ? extends CompletionStage<U>> featureFunction;
+	
+	private final Matcher<? super U> featureMatcher;
+	
+	private final Duration timeout;
+	
+	private final MismatchHandoff<String> handoff;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	HasAsyncFeatureMatcher(String featureName, Function<T, ? extends CompletionStage<U>> featureFunction,
+		Matcher<? super U> featureMatcher, Duration timeout)
+	{
+		this.featureName = featureName;
+		this.featureFunction = requireNonNull(featureFunction, "featureFunction");
+		this.featureMatcher = requireNonNull(featureMatcher, "featureMatcher");
+		this.timeout = requireNonNull(timeout, "timeout");
+		handoff = new MismatchHandoff<>();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		description.appendText(featureName).appendText(" ").appendDescriptionOf(featureMatcher);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// TypeSafeDiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matchesSafely(T actual, Description mismatch)
+	{
+		if (mismatch instanceof Description.NullDescription)
+		{
+			if (handoff.peek(actual) != null)
+			{
+				return false;
+			}
+			
+			StringDescription featureMismatch = new StringDescription();
+			
+			if (matchesFeature(start(actual), System.nanoTime(), featureMismatch))
+			{
+				handoff.clear();
+				return true;
+			}
+			
+			handoff.put(actual, featureMismatch.toString());
+			return false;
+		}
+		
+		String pendingMismatch = handoff.take(actual);
+		
+		if (pendingMismatch != null)
+		{
+			mismatch.appendText(pendingMismatch);
+			return false;
+		}
+		
+		return matchesFeature(start(actual), System.nanoTime(), mismatch);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Starts extracting the feature from the specified object, which must be of the type matched by this matcher. A
+	 * function that throws an exception or returns {@code null} gives a feature that has failed.
+	 */
+	CompletableFuture<?> start(Object actual)
+	{
+		@SuppressWarnings("unchecked")
+		T typedActual = (T) actual;
+		CompletionStage<U> feature;
+		
+		try
+		{
+			feature = featureFunction.apply(typedActual);
+		}
+		catch (RuntimeException exception)
+		{
+			return failed(exception);
+		}
+		
+		if (feature == null)
+		{
+			return failed(new IllegalStateException("feature function returned null"));
+		}
+		
+		return feature.toCompletableFuture();
+	}
+	
+	/**
+	 * Waits for the specified feature until the timeout has elapsed since the specified start time and then matches it.
+	 */
+	boolean matchesFeature(CompletableFuture<?> feature, long startNanos, Description mismatch)
+	{
+		Object value;
+		
+		try
+		{
+			long remainingNanos = startNanos + timeout.toNanos() - System.nanoTime();
+			value = feature.get(Math.max(0, remainingNanos), NANOSECONDS);
+		}
+		catch (TimeoutException exception)
+		{
+			mismatch.appendText(featureName).appendText(String.format(" timed out after %d ms", timeout.toMillis()));
+			return false;
+		}
+		catch (ExecutionException exception)
+		{
+			mismatch.appendText(featureName).appendText(" failed with ").appendValue(exception.getCause());
+			return false;
+		}
+		catch (CancellationException exception)
+		{
+			mismatch.appendText(featureName).appendText(" was cancelled");
+			return false;
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			mismatch.appendText(featureName).appendText(" was interrupted");
+			return false;
+		}
+		
+		if (!featureMatcher.matches(value))
+		{
+			mismatch.appendText(featureName).appendText(" ");
+			featureMatcher.describeMismatch(value, mismatch);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static CompletableFuture<?> failed(Throwable throwable)
+	{
+		CompletableFuture<?> future = new CompletableFuture<>();
+		future.completeExceptionally(throwable);
+		return future;
+	}
+}
@@ -13,9 +13,12 @@
  */
 package org.hobsoft.hamcrest.compose;
 
+import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
-import org.hamcrest.FeatureMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.DiagnosingMatcher;
 import org.hamcrest.Matcher;
 
 import static java.util.Objects.requireNonNull;
@@ -23,6 +26,17 @@ import static java.util.Objects.requireNonNull;
 /**
  * Matcher that matches a feature of an object that is extracted by a function.
  * <p>
+ * Unlike {@code FeatureMatcher}, this matcher does not allocate a description when it is matched without describing a
+ * mismatch, so that matching an object that has the feature allocates nothing beyond what its function and matcher do.
+ * <p>
+ * Feature matchers are equal when they have equal descriptions, names, functions and matchers. Method references
+ * and serializable lambdas are equal when they are implemented by the same method with equal captured arguments, but
+ * any other function is only equal to itself. Note that many matchers, such as Hamcrest 1.3's {@code equalTo}, are
+ * also only equal to themselves, so feature matchers are typically only equal when they share the same matcher
+ * instance.
+ * <p>
+ * Feature matchers are immutable and safe for concurrent use, provided that their function and matcher are.
+ * <p>
  * Use {@code ComposeMatchers.hasFeature} to obtain instances of this class. 
  * 
  * @param <T>
@@ -31,14 +45,22 @@ import static java.util.Objects.requireNonNull;
  *            the type of the feature to be matched
  * @see ComposeMatchers#hasFeature(String, Function, Matcher)
  */
-class HasFeatureMatcher<T, U> extends FeatureMatcher<T, U>
+class HasFeatureMatcher<T, U> extends DiagnosingMatcher<T>
 {
 	// ----------------------------------------------------------------------------------------------------------------
 	// fields
 	// ----------------------------------------------------------------------------------------------------------------
 
+	private final String featureDescription;
+	
+	private final String featureName;
+	
 	private final Function<T, U> featureFunction;
 	
+	private final Matcher<? super U> featureMatcher;
+	
+	private volatile Object featureFunctionKey;
+	
 	// ----------------------------------------------------------------------------------------------------------------
 	// constructors
 	// ----------------------------------------------------------------------------------------------------------------
@@ -46,18 +68,119 @@ class HasFeatureMatcher<T, U> extends FeatureMatcher<T, U>
 	HasFeatureMatcher(String featureDescription, String featureName, Function<T, U> featureFunction,
 		Matcher<? super U> featureMatcher)
 	{
-		super(featureMatcher, featureDescription, featureName);
-		
+		this.featureDescription = featureDescription;
+		this.featureName = featureName;
 		this.featureFunction = requireNonNull(featureFunction, "featureFunction");
+		this.featureMatcher = featureMatcher;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Object methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(featureDescription, featureName, getFeatureFunctionKey(), featureMatcher);
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (object == null || object.getClass() != getClass())
+		{
+			return false;
+		}
+		
+		HasFeatureMatcher<?, ?> that = (HasFeatureMatcher<?, ?>) object;
+		
+		return Objects.equals(featureDescription, that.featureDescription)
+			&& Objects.equals(featureName, that.featureName)
+			&& getFeatureFunctionKey().equals(that.getFeatureFunctionKey())
+			&& Objects.equals(featureMatcher, that.featureMatcher);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public final void describeTo(Description description)
+	{
+		description.appendText(featureDescription).appendText(" ").appendDescriptionOf(featureMatcher);
 	}
 	
 	// ----------------------------------------------------------------------------------------------------------------
-	// FeatureMatcher methods
+	// DiagnosingMatcher methods
 	// ----------------------------------------------------------------------------------------------------------------
 
 	@Override
-	protected final U featureValueOf(T actual)
+	protected final boolean matches(Object actual, Description mismatch)
 	{
-		return featureFunction.apply(actual);
+		if (actual == null)
+		{
+			mismatch.appendText("was null");
+			return false;
+		}
+		
+		U featureValue = featureValueOf(actual);
+		
+		if (!featureMatcher.matches(featureValue))
+		{
+			mismatch.appendText(featureName).appendText(" ");
+			featureMatcher.describeMismatch(featureValue, mismatch);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	Function<T, U> getFeatureFunction()
+	{
+		return featureFunction;
+	}
+	
+	Matcher<? super U> getFeatureMatcher()
+	{
+		return featureMatcher;
+	}
+	
+	/**
+	 * Returns a predicate that tests the feature of an object without describing it.
+	 */
+	Predicate<T> asPredicate()
+	{
+		Predicate<U> featurePredicate = ComposeMatchers.asPredicate(featureMatcher);
+		
+		return actual -> actual != null && featurePredicate.test(featureFunction.apply(actual));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private U featureValueOf(Object actual)
+	{
+		@SuppressWarnings("unchecked")
+		T typedActual = (T) actual;
+		
+		return featureFunction.apply(typedActual);
+	}
+	
+	private Object getFeatureFunctionKey()
+	{
+		Object key = featureFunctionKey;
+		
+		if (key == null)
+		{
+			key = SerializedLambdas.key(featureFunction);
+			featureFunctionKey = key;
+		}
+		
+		return key;
 	}
 }
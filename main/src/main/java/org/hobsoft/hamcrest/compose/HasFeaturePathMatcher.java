@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.function.Predicate;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Matcher that matches a nested feature of an object that is extracted by a feature path.
+ * <p>
+ * The feature is extracted in a single traversal of the path. When an intermediate feature is {@code null} the
+ * traversal stops and the mismatch names the part of the path that was {@code null}, for example
+ * {@code customer.address was null}.
+ * <p>
+ * Use {@code ComposeMatchers.hasFeature} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to be matched
+ * @param <U>
+ *            the type of the feature to be matched
+ * @see ComposeMatchers#hasFeature(FeaturePath, Matcher)
+ */
+final class HasFeaturePathMatcher<T, U> extends TypeSafeDiagnosingMatcher<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final FeaturePath<T, U> featurePath;
+	
+	private final Matcher<? super U> featureMatcher;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	HasFeaturePathMatcher(FeaturePath<T, U> featurePath, Matcher<? super U> featureMatcher)
+	{
+		this.featurePath = requireNonNull(featurePath, "featurePath");
+		this.featureMatcher = requireNonNull(featureMatcher, "featureMatcher");
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		description.appendText(featurePath.getName()).appendText(" ").appendDescriptionOf(featureMatcher);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// TypeSafeDiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matchesSafely(T actual, Description mismatch)
+	{
+		return matches(actual, null, null, mismatch);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	FeaturePath<T, U> getFeaturePath()
+	{
+		return featurePath;
+	}
+	
+	Matcher<? super U> getFeatureMatcher()
+	{
+		return featureMatcher;
+	}
+	
+	/**
+	 * Matches the specified non-null object, reusing the feature values of any prefixes that are shared within the
+	 * specified trie.
+	 */
+	boolean matches(Object actual, FeatureTrie trie, Object[] values, Description mismatch)
+	{
+		FeaturePath<T, ?>[] prefixes = featurePath.getPrefixes();
+		Object value = actual;
+		
+		for (int index = 0; index < prefixes.length; index++)
+		{
+			if (index > 0 && value == null)
+			{
+				mismatch.appendText(prefixes[index - 1].getName()).appendText(" was null");
+				return false;
+			}
+			
+			value = (trie != null) ? trie.extract(prefixes[index], value, values) : prefixes[index].applySegment(value);
+		}
+		
+		return matchesFeature(value, mismatch);
+	}
+	
+	/**
+	 * Returns a predicate that tests the feature of an object without describing it.
+	 */
+	Predicate<T> asPredicate()
+	{
+		Predicate<U> featurePredicate = ComposeMatchers.asPredicate(featureMatcher);
+		
+		return actual -> actual != null && test(featurePredicate, actual);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private boolean test(Predicate<U> featurePredicate, Object actual)
+	{
+		FeaturePath<T, ?>[] prefixes = featurePath.getPrefixes();
+		Object value = actual;
+		
+		for (int index = 0; index < prefixes.length; index++)
+		{
+			if (index > 0 && value == null)
+			{
+				return false;
+			}
+			
+			value = prefixes[index].applySegment(value);
+		}
+		
+		@SuppressWarnings("unchecked")
+		U feature = (U) value;
+		
+		return featurePredicate.test(feature);
+	}
+	
+	private boolean matchesFeature(Object value, Description mismatch)
+	{
+		if (!featureMatcher.matches(value))
+		{
+			mismatch.appendText(featurePath.getName()).appendText(" ");
+			featureMatcher.describeMismatch(value, mismatch);
+			return false;
+		}
+		
+		return true;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+/**
+ * Matcher that matches a feature of an object that is equal to a value.
+ * <p>
+ * This matcher remembers its function and value so that a {@code MatcherIndex} can look up the objects that it matches
+ * rather than testing each object in turn.
+ * <p>
+ * Use {@code ComposeMatchers.hasFeatureValue} to obtain instances of this class.
+ * 
+ * @param <T>
+ *            the type of the object to be matched
+ * @param <U>
+ *            the type of the feature to be matched
+ * @see ComposeMatchers#hasFeatureValue(String, Function, Object)
+ */
+final class HasFeatureValueMatcher<T, U> extends HasFeatureMatcher<T, U>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final U featureValue;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	HasFeatureValueMatcher(String featureDescription, String featureName, Function<T, U> featureFunction,
+		U featureValue)
+	{
+		super(featureDescription, featureName, featureFunction, equalTo(featureValue));
+		
+		this.featureValue = featureValue;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	U getFeatureValue()
+	{
+		return featureValue;
+	}
+}
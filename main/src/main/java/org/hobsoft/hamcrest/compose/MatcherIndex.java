@@ -0,0 +1,277 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.hamcrest.Matcher;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collection of objects that can be queried by matchers using hash indexes of their features.
+ * <p>
+ * For example:
+ * <pre>
+ * MatcherIndex&lt;Person&gt; index = index(people)
+ *     .withIndex(Person::getLastName)
+ *     .withIndex(Person::getCity);
+ *
+ * List&lt;Person&gt; smiths = index.findAll(compose(hasFeatureValue(Person::getLastName, "Smith"))
+ *     .and(hasFeatureValue(Person::getCity, "London"))
+ *     .and(hasFeature(Person::getAge, greaterThan(18))));
+ * </pre>
+ * A query is answered by looking up the objects that match each {@code hasFeatureValue} matcher of an indexed feature
+ * and intersecting the results. Only these objects are then tested against the remaining matchers, so that a query
+ * takes time in proportion to the number of objects that it finds rather than the size of the collection. Features
+ * are indexed by the method that their function references, so a query can use a different method reference to the
+ * same method as the index. A query that has no indexed matchers tests every object.
+ * <p>
+ * Indexes are immutable and safe for concurrent use. The indexed objects must not be {@code null} and their indexed
+ * features must not change after they have been indexed.
+ * <p>
+ * Use {@code ComposeMatchers.index} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the indexed objects
+ * @see ComposeMatchers#index(Collection)
+ */
+public final class MatcherIndex<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int[] NO_POSITIONS = new int[0];
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final List<T> objects;
+	
+	private final Map<Object, Map<Object, int[]>> featureIndexes;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	MatcherIndex(Collection<? extends T> objects)
+	{
+		this(unmodifiableList(new ArrayList<>(requireNonNull(objects, "objects"))), emptyMap());
+		
+		this.objects.forEach(object -> requireNonNull(object, "object"));
+	}
+	
+	private MatcherIndex(List<T> objects, Map<Object, Map<Object, int[]>> featureIndexes)
+	{
+		this.objects = objects;
+		this.featureIndexes = featureIndexes;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns an index that also indexes the specified feature of each object.
+	 * <p>
+	 * Note that this method returns a new index and does not modify this instance.
+	 *
+	 * @param featureFunction
+	 *            a method reference to extract the feature from each object. The compiler will generate a serialized
+	 *            lambda that is used to match the feature to the {@code hasFeatureValue} matchers of a query.
+	 * @return the index
+	 */
+	public MatcherIndex<T> withIndex(SerializableFunction<T, ?> featureFunction)
+	{
+		requireNonNull(featureFunction, "featureFunction");
+		
+		Map<Object, Map<Object, int[]>> newFeatureIndexes = new HashMap<>(featureIndexes);
+		newFeatureIndexes.put(SerializedLambdas.key(featureFunction), buildFeatureIndex(featureFunction));
+		
+		return new MatcherIndex<>(objects, unmodifiableMap(newFeatureIndexes));
+	}
+	
+	/**
+	 * Finds the objects that match the specified matcher.
+	 *
+	 * @param query
+	 *            the matcher to find objects by. Indexes are used for any {@code hasFeatureValue} matchers of indexed
+	 *            features that this matcher, or the composite matchers within it, comprise.
+	 * @return the matching objects in the order that they were indexed
+	 */
+	public List<T> findAll(Matcher<? super T> query)
+	{
+		requireNonNull(query, "query");
+		
+		List<Matcher<?>> matchers = (query instanceof ConjunctionMatcher)
+			? ((ConjunctionMatcher<?>) query).getLeafMatchers()
+			: singletonList(query);
+		
+		int[] positions = null;
+		Predicate<T> remainingPredicate = object -> true;
+		
+		for (Matcher<?> matcher : matchers)
+		{
+			int[] matcherPositions = lookup(matcher);
+			
+			if (matcherPositions != null)
+			{
+				positions = (positions != null) ? intersect(positions, matcherPositions) : matcherPositions;
+			}
+			else
+			{
+				remainingPredicate = remainingPredicate.and(toPredicate(matcher));
+			}
+		}
+		
+		return (positions != null) ? filter(positions, remainingPredicate) : filter(remainingPredicate);
+	}
+	
+	/**
+	 * Gets the number of indexed objects.
+	 *
+	 * @return the number of objects
+	 */
+	public int size()
+	{
+		return objects.size();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private Map<Object, int[]> buildFeatureIndex(Function<T, ?> featureFunction)
+	{
+		Map<Object, List<Integer>> positionLists = new HashMap<>();
+		
+		for (int position = 0; position < objects.size(); position++)
+		{
+			Object feature = featureFunction.apply(objects.get(position));
+			positionLists.computeIfAbsent(feature, key -> new ArrayList<>()).add(position);
+		}
+		
+		Map<Object, int[]> featureIndex = new HashMap<>(positionLists.size() * 4 / 3 + 1);
+		
+		positionLists.forEach((feature, positionList) ->
+			featureIndex.put(feature, positionList.stream().mapToInt(Integer::intValue).toArray()));
+		
+		return featureIndex;
+	}
+	
+	/**
+	 * Looks up the positions of the objects that match the specified matcher, or returns {@code null} if the matcher
+	 * cannot be answered by an index.
+	 */
+	private int[] lookup(Matcher<?> matcher)
+	{
+		if (!(matcher instanceof HasFeatureValueMatcher))
+		{
+			return null;
+		}
+		
+		HasFeatureValueMatcher<?, ?> featureValueMatcher = (HasFeatureValueMatcher<?, ?>) matcher;
+		Object featureValue = featureValueMatcher.getFeatureValue();
+		Map<Object, int[]> featureIndex = featureIndexes.get(SerializedLambdas.key(
+			featureValueMatcher.getFeatureFunction()));
+		
+		// arrays are matched by their elements rather than by equals
+		if (featureIndex == null || (featureValue != null && featureValue.getClass().isArray()))
+		{
+			return null;
+		}
+		
+		return featureIndex.getOrDefault(featureValue, NO_POSITIONS);
+	}
+	
+	private List<T> filter(int[] positions, Predicate<T> predicate)
+	{
+		List<T> found = new ArrayList<>();
+		
+		for (int position : positions)
+		{
+			T object = objects.get(position);
+			
+			if (predicate.test(object))
+			{
+				found.add(object);
+			}
+		}
+		
+		return found;
+	}
+	
+	private List<T> filter(Predicate<T> predicate)
+	{
+		List<T> found = new ArrayList<>();
+		
+		for (T object : objects)
+		{
+			if (predicate.test(object))
+			{
+				found.add(object);
+			}
+		}
+		
+		return found;
+	}
+	
+	private static <T> Predicate<T> toPredicate(Matcher<?> matcher)
+	{
+		@SuppressWarnings("unchecked")
+		Matcher<T> typedMatcher = (Matcher<T>) matcher;
+		
+		return ComposeMatchers.asPredicate(typedMatcher);
+	}
+	
+	/**
+	 * Intersects the specified sorted positions by searching the larger array for each of the smaller array's
+	 * positions.
+	 */
+	private static int[] intersect(int[] positions1, int[] positions2)
+	{
+		int[] smaller = (positions1.length <= positions2.length) ? positions1 : positions2;
+		int[] larger = (smaller == positions1) ? positions2 : positions1;
+		int[] intersection = new int[smaller.length];
+		int size = 0;
+		int from = 0;
+		
+		for (int position : smaller)
+		{
+			int index = Arrays.binarySearch(larger, from, larger.length, position);
+			
+			if (index >= 0)
+			{
+				intersection[size++] = position;
+			}
+			
+			from = (index >= 0) ? index + 1 : -index - 1;
+		}
+		
+		return Arrays.copyOf(intersection, size);
+	}
+}
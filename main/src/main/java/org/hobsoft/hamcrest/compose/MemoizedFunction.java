@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.hamcrest.Matcher;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Function whose results are shared by every matcher that applies it during a single match of a composition.
+ * <p>
+ * While a composite matcher that uses memoized functions is matching an object, it holds an evaluation scope on the
+ * matching thread. Within this scope each memoized function is applied at most once to each object, identified by
+ * reference. Memoized functions of equal method references share their results, as do those of the same instance.
+ * The scope is discarded once the outermost composition has matched, and outside of a scope the function is simply
+ * applied.
+ * <p>
+ * Use {@code ComposeMatchers.memoize} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the input to the function
+ * @param <U>
+ *            the type of the result of the function
+ * @see ComposeMatchers#memoize(SerializableFunction)
+ */
+final class MemoizedFunction<T, U> implements SerializableFunction<T, U>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final long serialVersionUID = 1L;
+	
+	private static final ThreadLocal<Map<Object, Map<Object, Object>>> SCOPE = new ThreadLocal<>();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final SerializableFunction<T, U> function;
+	
+	private final transient Object key;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	MemoizedFunction(SerializableFunction<T, U> function)
+	{
+		this.function = requireNonNull(function, "function");
+		key = SerializedLambdas.key(function);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Function methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public U apply(T actual)
+	{
+		Map<Object, Map<Object, Object>> scope = SCOPE.get();
+		
+		if (scope == null)
+		{
+			return function.apply(actual);
+		}
+		
+		Map<Object, Object> results = scope.computeIfAbsent(key, unused -> new IdentityHashMap<>());
+		
+		if (!results.containsKey(actual))
+		{
+			results.put(actual, function.apply(actual));
+		}
+		
+		@SuppressWarnings("unchecked")
+		U result = (U) results.get(actual);
+		
+		return result;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SerializableFunction methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public String getName()
+	{
+		return function.getName();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Object methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public String toString()
+	{
+		return function.toString();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// Serializable methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private Object readResolve()
+	{
+		return new MemoizedFunction<>(function);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Enters an evaluation scope on this thread, or returns {@code false} if this thread is already within one.
+	 */
+	static boolean enterScope()
+	{
+		if (SCOPE.get() != null)
+		{
+			return false;
+		}
+		
+		SCOPE.set(new HashMap<>());
+		return true;
+	}
+	
+	/**
+	 * Exits the evaluation scope on this thread and discards its results.
+	 */
+	static void exitScope()
+	{
+		SCOPE.remove();
+	}
+	
+	/**
+	 * Gets whether the specified matcher extracts a feature using a memoized function.
+	 */
+	static boolean isUsedBy(Matcher<?> matcher)
+	{
+		if (matcher instanceof HasFeatureMatcher)
+		{
+			return ((HasFeatureMatcher<?, ?>) matcher).getFeatureFunction() instanceof MemoizedFunction;
+		}
+		
+		if (matcher instanceof HasFeaturePathMatcher)
+		{
+			for (FeaturePath<?, ?> prefix : ((HasFeaturePathMatcher<?, ?>) matcher).getFeaturePath().getPrefixes())
+			{
+				if (prefix.getFunction() instanceof MemoizedFunction)
+				{
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hamcrest.Description;
+import org.hamcrest.DiagnosingMatcher;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Matcher that memoizes whether each object matches a composite matcher.
+ * <p>
+ * Results are cached by object identity in a bounded concurrent cache that only weakly references its objects, so
+ * that a cached object can still be garbage collected. When the cache is full an arbitrary entry is evicted. Only
+ * the result is cached, so any mismatch is described by matching the object again.
+ * <p>
+ * Use {@code ConjunctionMatcher.memoized} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to be matched
+ * @see ConjunctionMatcher#memoized(int)
+ */
+final class MemoizingMatcher<T> extends DiagnosingMatcher<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final ConjunctionMatcher<T> matcher;
+	
+	private final int maximumSize;
+	
+	private final ConcurrentMap<IdentityKey, Boolean> cache;
+	
+	private final ReferenceQueue<Object> collectedKeys;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	MemoizingMatcher(ConjunctionMatcher<T> matcher, int maximumSize)
+	{
+		if (maximumSize < 1)
+		{
+			throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+		}
+		
+		this.matcher = requireNonNull(matcher, "matcher");
+		this.maximumSize = maximumSize;
+		cache = new ConcurrentHashMap<>();
+		collectedKeys = new ReferenceQueue<>();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		matcher.describeTo(description);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// DiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matches(Object actual, Description mismatch)
+	{
+		if (actual == null)
+		{
+			return matcher.matches(null, mismatch);
+		}
+		
+		Boolean cached = cache.get(new IdentityKey(actual, null));
+		
+		if (cached != null && (cached || mismatch == Description.NONE))
+		{
+			return cached;
+		}
+		
+		boolean matches = matcher.matches(actual, mismatch);
+		
+		if (cached == null)
+		{
+			put(actual, matches);
+		}
+		
+		return matches;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	int size()
+	{
+		return cache.size();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private void put(Object actual, boolean matches)
+	{
+		expungeCollectedKeys();
+		
+		IdentityKey key = new IdentityKey(actual, collectedKeys);
+		cache.put(key, matches);
+		
+		Iterator<IdentityKey> keys = cache.keySet().iterator();
+		
+		while (cache.size() > maximumSize && keys.hasNext())
+		{
+			if (keys.next() != key)
+			{
+				keys.remove();
+			}
+		}
+	}
+	
+	private void expungeCollectedKeys()
+	{
+		for (Reference<?> key = collectedKeys.poll(); key != null; key = collectedKeys.poll())
+		{
+			cache.remove(key);
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * A weak reference to an object that is equal to any other reference to the same object.
+	 */
+	private static final class IdentityKey extends WeakReference<Object>
+	{
+		private final int hashCode;
+		
+		IdentityKey(Object referent, ReferenceQueue<Object> queue)
+		{
+			super(referent, queue);
+			hashCode = System.identityHashCode(referent);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object object)
+		{
+			if (object == this)
+			{
+				return true;
+			}
+			
+			if (!(object instanceof IdentityKey))
+			{
+				return false;
+			}
+			
+			Object referent = get();
+			
+			return referent != null && referent == ((IdentityKey) object).get();
+		}
+	}
+}
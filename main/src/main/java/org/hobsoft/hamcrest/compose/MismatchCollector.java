@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collects the mismatches of many assertions into a single report.
+ * <p>
+ * For example:
+ * <pre>
+ * MismatchCollector collector = new MismatchCollector(100);
+ * for (Person person : people) {
+ *     collector.checkThat(person.getLastName(), person, personEqualTo(expected.get(person.getLastName())));
+ * }
+ * collector.verify();
+ * </pre>
+ * Unlike {@code assertThat}, a failed check does not throw an exception so that all mismatches can be reported. Each
+ * mismatch is described directly into the report as it occurs and only the first mismatches up to a maximum are
+ * reported, so memory use is bounded however many checks fail. Calling {@code verify} then fails with a single
+ * {@code AssertionError} that summarises every failure.
+ * <p>
+ * Instances of this class are safe for concurrent use.
+ */
+public final class MismatchCollector
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int DEFAULT_MAXIMUM_FAILURES = 100;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final int maximumFailures;
+	
+	private final StringBuilder report;
+	
+	private int checkCount;
+	
+	private int failureCount;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a collector that reports the first 100 mismatches.
+	 */
+	public MismatchCollector()
+	{
+		this(DEFAULT_MAXIMUM_FAILURES);
+	}
+	
+	/**
+	 * Creates a collector that reports the specified number of mismatches.
+	 *
+	 * @param maximumFailures
+	 *            the maximum number of mismatches to describe in the report
+	 */
+	public MismatchCollector(int maximumFailures)
+	{
+		if (maximumFailures < 0)
+		{
+			throw new IllegalArgumentException("maximumFailures must not be negative: " + maximumFailures);
+		}
+		
+		this.maximumFailures = maximumFailures;
+		report = new StringBuilder();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Checks that the specified object matches the specified matcher and collects any mismatch.
+	 *
+	 * @param actual
+	 *            the object to match
+	 * @param matcher
+	 *            the matcher to apply
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @return whether the object matched
+	 */
+	public <T> boolean checkThat(T actual, Matcher<? super T> matcher)
+	{
+		return checkThat("", actual, matcher);
+	}
+	
+	/**
+	 * Checks that the specified object matches the specified matcher and collects any mismatch with a reason.
+	 *
+	 * @param reason
+	 *            a description of the check used to identify any mismatch
+	 * @param actual
+	 *            the object to match
+	 * @param matcher
+	 *            the matcher to apply
+	 * @param <T>
+	 *            the type of the object to be matched
+	 * @return whether the object matched
+	 */
+	public <T> boolean checkThat(String reason, T actual, Matcher<? super T> matcher)
+	{
+		requireNonNull(reason, "reason");
+		requireNonNull(matcher, "matcher");
+		
+		boolean matches = matcher.matches(actual);
+		
+		synchronized (this)
+		{
+			checkCount++;
+			
+			if (!matches && ++failureCount <= maximumFailures)
+			{
+				Description description = new StringDescription(report);
+				
+				description.appendText(String.format("\n\n%d)", failureCount))
+					.appendText(reason.isEmpty() ? "" : " " + reason)
+					.appendText("\nExpected: ")
+					.appendDescriptionOf(matcher)
+					.appendText("\n     but: ");
+				
+				matcher.describeMismatch(actual, description);
+			}
+		}
+		
+		return matches;
+	}
+	
+	/**
+	 * Gets the number of checks made.
+	 *
+	 * @return the number of checks
+	 */
+	public synchronized int getCheckCount()
+	{
+		return checkCount;
+	}
+	
+	/**
+	 * Gets the number of checks that failed.
+	 *
+	 * @return the number of failures
+	 */
+	public synchronized int getFailureCount()
+	{
+		return failureCount;
+	}
+	
+	/**
+	 * Throws an {@code AssertionError} that reports any collected mismatches.
+	 *
+	 * @throws AssertionError
+	 *             if any check has failed
+	 */
+	public synchronized void verify()
+	{
+		if (failureCount > 0)
+		{
+			throw new AssertionError(getReport());
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private String getReport()
+	{
+		String summary = String.format("%d of %d checks failed", failureCount, checkCount);
+		
+		if (failureCount > maximumFailures)
+		{
+			summary += String.format(" (showing first %d)", maximumFailures);
+		}
+		
+		return summary + report;
+	}
+}
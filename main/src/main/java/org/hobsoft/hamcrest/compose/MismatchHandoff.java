@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Hands the mismatch of an object from a failed match to the {@code describeMismatch} that follows it on the same
+ * thread.
+ * <p>
+ * Matchers that consume the object that they match, such as a stream, cannot match it again to describe its mismatch.
+ * A failed match therefore leaves its mismatch on the same thread until the mismatch is described. Matching the same
+ * object again before then, as a composing matcher does before it describes the mismatch, reuses the mismatch rather
+ * than consuming the object again, whereas describing the mismatch or matching another object discards it. The object
+ * is only weakly referenced, so that it can still be garbage collected when its mismatch is never described.
+ * <p>
+ * The mismatch is usually its description, but can be any state of the failed match from which it can be described.
+ *
+ * @param <M>
+ *            the type of the mismatch
+ */
+final class MismatchHandoff<M>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final ThreadLocal<Pending<M>> pending = new ThreadLocal<>();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Leaves the mismatch of the specified object for the next call on this thread, replacing any mismatch that was
+	 * left before.
+	 */
+	void put(Object actual, M mismatch)
+	{
+		pending.set(new Pending<>(actual, mismatch));
+	}
+	
+	/**
+	 * Discards any mismatch that was left on this thread.
+	 */
+	void clear()
+	{
+		pending.remove();
+	}
+	
+	/**
+	 * Gets the mismatch that was left on this thread for the specified object without taking it, or returns
+	 * {@code null} if there is none.
+	 */
+	M peek(Object actual)
+	{
+		Pending<M> left = pending.get();
+		
+		return (left != null && left.actual.get() == actual) ? left.mismatch : null;
+	}
+	
+	/**
+	 * Takes the mismatch that was left on this thread for the specified object, or returns {@code null} if there is
+	 * none. Any mismatch that was left for another object is discarded.
+	 */
+	M take(Object actual)
+	{
+		Pending<M> left = pending.get();
+		
+		if (left == null)
+		{
+			return null;
+		}
+		
+		pending.remove();
+		
+		return (left.actual.get() == actual) ? left.mismatch : null;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The mismatch of an object that has yet to be described.
+	 * 
+	 * @param <M>
+	 *            the type of the mismatch
+	 */
+	private static final class Pending<M>
+	{
+		private final WeakReference<Object> actual;
+		
+		private final M mismatch;
+		
+		Pending(Object actual, M mismatch)
+		{
+			this.actual = new WeakReference<>(actual);
+			this.mismatch = mismatch;
+		}
+	}
+}
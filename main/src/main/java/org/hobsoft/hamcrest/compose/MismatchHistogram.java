@@ -0,0 +1,539 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Aggregates the mismatches of many objects against a matcher into groups of similar failures.
+ * <p>
+ * For example:
+ * <pre>
+ * MismatchHistogram&lt;Person&gt; histogram = new MismatchHistogram&lt;&gt;(personEqualTo(expected));
+ * people.forEach(histogram::checkThat);
+ * histogram.verify();
+ * </pre>
+ * Mismatches are grouped by the matcher of a composition that failed and by a signature of the mismatch in which any
+ * quoted text, character values, numbers and values in angle or square brackets, however deeply nested, are replaced
+ * by {@code ?}. For example, {@code status was "PENDING"} and
+ * {@code status was "FAILED"} have the signature {@code status was "?"}. Each group counts its failures and keeps the
+ * first mismatch together with the indices of the first few objects that failed, so that memory use depends on the
+ * number of distinct failures rather than the number of objects.
+ * <p>
+ * Nested compositions are flattened so that failures are grouped by their innermost matchers. Any other matcher forms
+ * a single group of its own.
+ * <p>
+ * Instances of this class are safe for concurrent use.
+ *
+ * @param <T>
+ *            the type of the objects to be matched
+ */
+public final class MismatchHistogram<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int DEFAULT_MAXIMUM_EXAMPLES = 3;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final List<Matcher<?>> matchers;
+	
+	private final int maximumExamples;
+	
+	private final List<Map<String, GroupBuilder>> groupBuilders;
+	
+	private long checkCount;
+	
+	private long failureCount;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a histogram that keeps the indices of the first three failures of each group.
+	 *
+	 * @param matcher
+	 *            the matcher to check objects against
+	 */
+	public MismatchHistogram(Matcher<? super T> matcher)
+	{
+		this(matcher, DEFAULT_MAXIMUM_EXAMPLES);
+	}
+	
+	/**
+	 * Creates a histogram that keeps the indices of the specified number of failures of each group.
+	 *
+	 * @param matcher
+	 *            the matcher to check objects against
+	 * @param maximumExamples
+	 *            the maximum number of failure indices to keep for each group
+	 */
+	public MismatchHistogram(Matcher<? super T> matcher, int maximumExamples)
+	{
+		requireNonNull(matcher, "matcher");
+		
+		if (maximumExamples < 0)
+		{
+			throw new IllegalArgumentException("maximumExamples must not be negative: " + maximumExamples);
+		}
+		
+		matchers = (matcher instanceof ConjunctionMatcher)
+			? ((ConjunctionMatcher<?>) matcher).getLeafMatchers()
+			: singletonList(matcher);
+		this.maximumExamples = maximumExamples;
+		groupBuilders = new ArrayList<>();
+		matchers.forEach(child -> groupBuilders.add(new HashMap<>()));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Checks that the specified object matches this histogram's matcher and counts any mismatch.
+	 * <p>
+	 * Objects are indexed in the order that they are checked, starting at zero.
+	 *
+	 * @param actual
+	 *            the object to match
+	 * @return whether the object matched
+	 */
+	public boolean checkThat(T actual)
+	{
+		String[] mismatches = null;
+		
+		for (int index = 0; index < matchers.size(); index++)
+		{
+			Matcher<?> matcher = matchers.get(index);
+			
+			if (!matcher.matches(actual))
+			{
+				mismatches = (mismatches != null) ? mismatches : new String[matchers.size()];
+				
+				StringDescription description = new StringDescription();
+				matcher.describeMismatch(actual, description);
+				mismatches[index] = description.toString();
+			}
+		}
+		
+		record(mismatches);
+		
+		return mismatches == null;
+	}
+	
+	/**
+	 * Gets the number of checks made.
+	 *
+	 * @return the number of checks
+	 */
+	public synchronized long getCheckCount()
+	{
+		return checkCount;
+	}
+	
+	/**
+	 * Gets the number of checks that failed.
+	 *
+	 * @return the number of failures
+	 */
+	public synchronized long getFailureCount()
+	{
+		return failureCount;
+	}
+	
+	/**
+	 * Gets the groups of failures, ordered by descending number of failures.
+	 *
+	 * @return the failure groups
+	 */
+	public synchronized List<Group> getGroups()
+	{
+		List<Group> groups = new ArrayList<>();
+		
+		for (int index = 0; index < matchers.size(); index++)
+		{
+			String matcherDescription = StringDescription.toString(matchers.get(index));
+			
+			for (GroupBuilder builder : groupBuilders.get(index).values())
+			{
+				groups.add(builder.build(matcherDescription));
+			}
+		}
+		
+		groups.sort(Comparator.comparingLong(Group::getCount).reversed());
+		
+		return unmodifiableList(groups);
+	}
+	
+	/**
+	 * Throws an {@code AssertionError} that reports each group of failures.
+	 *
+	 * @throws AssertionError
+	 *             if any check has failed
+	 */
+	public void verify()
+	{
+		List<Group> groups;
+		String summary;
+		
+		synchronized (this)
+		{
+			if (failureCount == 0)
+			{
+				return;
+			}
+			
+			groups = getGroups();
+			summary = String.format("%d of %d checks failed in %d ways", failureCount, checkCount, groups.size());
+		}
+		
+		StringBuilder report = new StringBuilder(summary);
+		
+		for (int index = 0; index < groups.size(); index++)
+		{
+			Group group = groups.get(index);
+			
+			report.append(String.format("\n\n%d) %d failures", index + 1, group.getCount()))
+				.append("\nExpected: ").append(group.getMatcherDescription())
+				.append("\n     but: ").append(group.getExampleMismatch())
+				.append("\n      at: ").append(group.getExampleIndices());
+		}
+		
+		throw new AssertionError(report.toString());
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the signature of the specified mismatch by replacing any quoted text, character values, numbers and
+	 * bracketed values.
+	 */
+	static String signature(String mismatch)
+	{
+		StringBuilder signature = new StringBuilder(mismatch.length());
+		int index = 0;
+		
+		while (index < mismatch.length())
+		{
+			int end = valueEnd(mismatch, index);
+			
+			if (end > index)
+			{
+				signature.append(placeholder(mismatch.charAt(index)));
+				index = end;
+			}
+			else
+			{
+				signature.append(mismatch.charAt(index));
+				index++;
+			}
+		}
+		
+		return signature.toString();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the end of the value that starts at the specified index, or returns the index if no value starts there.
+	 */
+	private static int valueEnd(String text, int start)
+	{
+		char first = text.charAt(start);
+		
+		if (first == '"')
+		{
+			return quotedEnd(text, start);
+		}
+		
+		if (first == '\'')
+		{
+			return characterEnd(text, start);
+		}
+		
+		if (first == '<' || first == '[')
+		{
+			return bracketedEnd(text, start);
+		}
+		
+		return numberEnd(text, start);
+	}
+	
+	private static String placeholder(char first)
+	{
+		if (first == '"' || first == '\'')
+		{
+			return first + "?" + first;
+		}
+		
+		if (first == '<')
+		{
+			return "<?>";
+		}
+		
+		return (first == '[') ? "[?]" : "?";
+	}
+	
+	private static int quotedEnd(String text, int start)
+	{
+		int index = start + 1;
+		
+		while (index < text.length())
+		{
+			char c = text.charAt(index);
+			
+			if (c == '"')
+			{
+				return index + 1;
+			}
+			
+			// skip any escaped character
+			index += (c == '\\') ? 2 : 1;
+		}
+		
+		return start;
+	}
+	
+	private static int characterEnd(String text, int start)
+	{
+		// a character value is a single character or escape sequence, so that apostrophes in text are ignored
+		int end = (start + 1 < text.length() && text.charAt(start + 1) == '\\') ? start + 3 : start + 2;
+		
+		return (end < text.length() && text.charAt(end) == '\'') ? end + 1 : start;
+	}
+	
+	private static int bracketedEnd(String text, int start)
+	{
+		int depth = 0;
+		int index = start;
+		
+		while (index < text.length())
+		{
+			char c = text.charAt(index);
+			
+			if (c == '<' || c == '[')
+			{
+				depth++;
+			}
+			else if ((c == '>' || c == ']') && --depth == 0)
+			{
+				return index + 1;
+			}
+			else if (c == '"')
+			{
+				// skip brackets within quoted text
+				index = Math.max(index, quotedEnd(text, index) - 1);
+			}
+			
+			index++;
+		}
+		
+		return start;
+	}
+	
+	private static int numberEnd(String text, int start)
+	{
+		if (!Character.isDigit(text.charAt(start)) || (start > 0 && isWordPart(text.charAt(start - 1))))
+		{
+			return start;
+		}
+		
+		int end = digitsEnd(text, start);
+		
+		if (end + 1 < text.length() && text.charAt(end) == '.' && Character.isDigit(text.charAt(end + 1)))
+		{
+			end = digitsEnd(text, end + 1);
+		}
+		
+		return (end < text.length() && isWordPart(text.charAt(end))) ? start : end;
+	}
+	
+	private static int digitsEnd(String text, int start)
+	{
+		int end = start;
+		
+		while (end < text.length() && Character.isDigit(text.charAt(end)))
+		{
+			end++;
+		}
+		
+		return end;
+	}
+	
+	private static boolean isWordPart(char c)
+	{
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+	
+	private synchronized void record(String[] mismatches)
+	{
+		long index = checkCount++;
+		
+		if (mismatches == null)
+		{
+			return;
+		}
+		
+		failureCount++;
+		
+		for (int matcherIndex = 0; matcherIndex < mismatches.length; matcherIndex++)
+		{
+			String mismatch = mismatches[matcherIndex];
+			
+			if (mismatch != null)
+			{
+				groupBuilders.get(matcherIndex)
+					.computeIfAbsent(signature(mismatch), signature -> new GroupBuilder(signature, mismatch))
+					.add(index, maximumExamples);
+			}
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * A group of similar failures.
+	 */
+	public static final class Group
+	{
+		private final String matcherDescription;
+		
+		private final String signature;
+		
+		private final String exampleMismatch;
+		
+		private final long count;
+		
+		private final List<Long> exampleIndices;
+		
+		private Group(String matcherDescription, String signature, String exampleMismatch, long count,
+			List<Long> exampleIndices)
+		{
+			this.matcherDescription = matcherDescription;
+			this.signature = signature;
+			this.exampleMismatch = exampleMismatch;
+			this.count = count;
+			this.exampleIndices = exampleIndices;
+		}
+		
+		/**
+		 * Gets the description of the matcher that failed.
+		 *
+		 * @return the matcher description
+		 */
+		public String getMatcherDescription()
+		{
+			return matcherDescription;
+		}
+		
+		/**
+		 * Gets the mismatch that the failures of this group share once their values have been replaced.
+		 *
+		 * @return the mismatch signature
+		 */
+		public String getSignature()
+		{
+			return signature;
+		}
+		
+		/**
+		 * Gets the mismatch of the first failure of this group.
+		 *
+		 * @return the first mismatch
+		 */
+		public String getExampleMismatch()
+		{
+			return exampleMismatch;
+		}
+		
+		/**
+		 * Gets the number of failures in this group.
+		 *
+		 * @return the number of failures
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+		
+		/**
+		 * Gets the indices of the first objects that failed in this group.
+		 *
+		 * @return the failure indices in ascending order
+		 */
+		public List<Long> getExampleIndices()
+		{
+			return exampleIndices;
+		}
+	}
+	
+	/**
+	 * Accumulates the failures of a group.
+	 */
+	private static final class GroupBuilder
+	{
+		private final String signature;
+		
+		private final String exampleMismatch;
+		
+		private final List<Long> exampleIndices;
+		
+		private long count;
+		
+		GroupBuilder(String signature, String exampleMismatch)
+		{
+			this.signature = signature;
+			this.exampleMismatch = exampleMismatch;
+			exampleIndices = new ArrayList<>();
+		}
+		
+		void add(long index, int maximumExamples)
+		{
+			count++;
+			
+			if (exampleIndices.size() < maximumExamples)
+			{
+				exampleIndices.add(index);
+			}
+		}
+		
+		Group build(String matcherDescription)
+		{
+			return new Group(matcherDescription, signature, exampleMismatch, count,
+				unmodifiableList(new ArrayList<>(exampleIndices)));
+		}
+	}
+}
@@ -0,0 +1,435 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import static org.hobsoft.hamcrest.compose.ConjunctionMatcher.SEPARATOR;
+
+/**
+ * Matcher that matches every element of a reactive stream as it is published.
+ * <p>
+ * The matcher subscribes to the publisher and requests elements in batches, so that streams of any length can be
+ * verified without buffering them. Only the descriptions of the first mismatches up to a maximum are kept, at which
+ * point the subscription is cancelled. An optional element count and ordering can also be verified. Mismatches are
+ * described in the same way as {@code ConjunctionMatcher}.
+ * <p>
+ * The mismatch of a failed match is kept on the same thread until it is described, so that matching the publisher
+ * again, as a composing matcher does, or describing its mismatch does not subscribe to it again. Every other match
+ * subscribes to the publisher.
+ * <p>
+ * Publisher matchers are immutable and safe for concurrent use.
+ * <p>
+ * Note that this class requires the optional {@code org.reactivestreams:reactive-streams} dependency.
+ * <p>
+ * Use {@code ComposeMatchers.publishesEvery} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the published elements to be matched
+ * @see ComposeMatchers#publishesEvery(Matcher)
+ */
+public final class PublisherMatcher<T> extends TypeSafeDiagnosingMatcher<Publisher<? extends T>>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int DEFAULT_BATCH_SIZE = 128;
+	
+	private static final int DEFAULT_MAXIMUM_FAILURES = 10;
+	
+	private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Matcher<? super T> elementMatcher;
+	
+	private final Matcher<? super Long> countMatcher;
+	
+	private final Comparator<? super T> comparator;
+	
+	private final int batchSize;
+	
+	private final int maximumFailures;
+	
+	private final Duration timeout;
+	
+	private final MismatchHandoff<String> handoff;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	PublisherMatcher(Matcher<? super T> elementMatcher)
+	{
+		this(requireNonNull(elementMatcher, "elementMatcher"), null, null, DEFAULT_BATCH_SIZE,
+			DEFAULT_MAXIMUM_FAILURES, DEFAULT_TIMEOUT);
+	}
+	
+	private PublisherMatcher(Matcher<? super T> elementMatcher, Matcher<? super Long> countMatcher,
+		Comparator<? super T> comparator, int batchSize, int maximumFailures, Duration timeout)
+	{
+		this.elementMatcher = elementMatcher;
+		this.countMatcher = countMatcher;
+		this.comparator = comparator;
+		this.batchSize = batchSize;
+		this.maximumFailures = maximumFailures;
+		this.timeout = timeout;
+		handoff = new MismatchHandoff<>();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns a matcher that also matches the number of published elements.
+	 * <p>
+	 * Note that this method returns a new matcher and does not modify this instance.
+	 *
+	 * @param countMatcher
+	 *            the matcher to apply to the number of elements once the stream completes
+	 * @return the publisher matcher
+	 */
+	public PublisherMatcher<T> withCount(Matcher<? super Long> countMatcher)
+	{
+		requireNonNull(countMatcher, "countMatcher");
+		
+		return new PublisherMatcher<>(elementMatcher, countMatcher, comparator, batchSize, maximumFailures, timeout);
+	}
+	
+	/**
+	 * Returns a matcher that also matches that the elements are published in order.
+	 * <p>
+	 * Note that this method returns a new matcher and does not modify this instance.
+	 *
+	 * @param comparator
+	 *            the comparator that defines the order of consecutive elements
+	 * @return the publisher matcher
+	 */
+	public PublisherMatcher<T> inOrder(Comparator<? super T> comparator)
+	{
+		requireNonNull(comparator, "comparator");
+		
+		return new PublisherMatcher<>(elementMatcher, countMatcher, comparator, batchSize, maximumFailures, timeout);
+	}
+	
+	/**
+	 * Returns a matcher that requests elements from the publisher in batches of the specified size.
+	 * <p>
+	 * Note that this method returns a new matcher and does not modify this instance.
+	 *
+	 * @param batchSize
+	 *            the number of elements to request at a time
+	 * @return the publisher matcher
+	 */
+	public PublisherMatcher<T> requestingBatchesOf(int batchSize)
+	{
+		if (batchSize < 1)
+		{
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		
+		return new PublisherMatcher<>(elementMatcher, countMatcher, comparator, batchSize, maximumFailures, timeout);
+	}
+	
+	/**
+	 * Returns a matcher that cancels its subscription once the specified number of mismatches have been described.
+	 * <p>
+	 * Note that this method returns a new matcher and does not modify this instance.
+	 *
+	 * @param maximumFailures
+	 *            the maximum number of mismatches to describe
+	 * @return the publisher matcher
+	 */
+	public PublisherMatcher<T> stoppingAfter(int maximumFailures)
+	{
+		if (maximumFailures < 1)
+		{
+			throw new IllegalArgumentException("maximumFailures must be positive: " + maximumFailures);
+		}
+		
+		return new PublisherMatcher<>(elementMatcher, countMatcher, comparator, batchSize, maximumFailures, timeout);
+	}
+	
+	/**
+	 * Returns a matcher that waits for at most the specified time for the stream to complete.
+	 * <p>
+	 * Note that this method returns a new matcher and does not modify this instance.
+	 *
+	 * @param timeout
+	 *            the maximum time to wait for the stream to complete
+	 * @return the publisher matcher
+	 */
+	public PublisherMatcher<T> within(Duration timeout)
+	{
+		requireNonNull(timeout, "timeout");
+		
+		return new PublisherMatcher<>(elementMatcher, countMatcher, comparator, batchSize, maximumFailures, timeout);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		description.appendText("every element ").appendDescriptionOf(elementMatcher);
+		
+		if (countMatcher != null)
+		{
+			description.appendText(SEPARATOR).appendText("element count ").appendDescriptionOf(countMatcher);
+		}
+		
+		if (comparator != null)
+		{
+			description.appendText(SEPARATOR).appendText("elements in order");
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// TypeSafeDiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matchesSafely(Publisher<? extends T> publisher, Description mismatch)
+	{
+		if (mismatch instanceof Description.NullDescription)
+		{
+			if (handoff.peek(publisher) != null)
+			{
+				return false;
+			}
+			
+			String publisherMismatch = verify(publisher);
+			
+			if (publisherMismatch.isEmpty())
+			{
+				handoff.clear();
+				return true;
+			}
+			
+			handoff.put(publisher, publisherMismatch);
+			return false;
+		}
+		
+		String publisherMismatch = handoff.take(publisher);
+		
+		if (publisherMismatch == null)
+		{
+			publisherMismatch = verify(publisher);
+		}
+		
+		mismatch.appendText(publisherMismatch);
+		
+		return publisherMismatch.isEmpty();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Subscribes to the specified publisher and describes any mismatch, which is empty when it matched.
+	 */
+	private String verify(Publisher<? extends T> publisher)
+	{
+		VerifyingSubscriber subscriber = new VerifyingSubscriber();
+		
+		publisher.subscribe(subscriber);
+		
+		return subscriber.await();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Subscriber that matches each element as it arrives and describes any mismatches.
+	 */
+	private final class VerifyingSubscriber implements Subscriber<T>
+	{
+		private final CountDownLatch done = new CountDownLatch(1);
+		
+		private final StringBuilder mismatch = new StringBuilder();
+		
+		private Subscription subscription;
+		
+		private long count;
+		
+		private long outstanding;
+		
+		private int failureCount;
+		
+		private T previous;
+		
+		private boolean stopped;
+		
+		@Override
+		public synchronized void onSubscribe(Subscription subscription)
+		{
+			requireNonNull(subscription, "subscription");
+			
+			if (this.subscription != null)
+			{
+				subscription.cancel();
+				return;
+			}
+			
+			this.subscription = subscription;
+			request();
+		}
+		
+		@Override
+		public synchronized void onNext(T element)
+		{
+			if (stopped)
+			{
+				return;
+			}
+			
+			if (!elementMatcher.matches(element))
+			{
+				elementMatcher.describeMismatch(element, fail().appendText(String.format("element %d ", count)));
+			}
+			
+			if (comparator != null && count > 0 && comparator.compare(previous, element) > 0)
+			{
+				fail().appendText(String.format("element %d was ", count)).appendValue(element)
+					.appendText(" after ").appendValue(previous);
+			}
+			
+			previous = element;
+			count++;
+			
+			if (failureCount >= maximumFailures)
+			{
+				mismatch.append(SEPARATOR).append(String.format("stopped after %d mismatches", failureCount));
+				stop(true);
+			}
+			else if (--outstanding == 0)
+			{
+				request();
+			}
+		}
+		
+		@Override
+		public synchronized void onError(Throwable throwable)
+		{
+			if (!stopped)
+			{
+				fail().appendText("failed with ").appendValue(throwable);
+				stop(false);
+			}
+		}
+		
+		@Override
+		public synchronized void onComplete()
+		{
+			if (!stopped)
+			{
+				if (countMatcher != null && !countMatcher.matches(count))
+				{
+					countMatcher.describeMismatch(count, fail().appendText("element count "));
+				}
+				
+				stop(false);
+			}
+		}
+		
+		String await()
+		{
+			try
+			{
+				if (!done.await(timeout.toNanos(), NANOSECONDS))
+				{
+					timeOut();
+				}
+			}
+			catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+				interrupt();
+			}
+			
+			synchronized (this)
+			{
+				return mismatch.toString();
+			}
+		}
+		
+		private synchronized void timeOut()
+		{
+			if (!stopped)
+			{
+				fail().appendText(String.format("timed out after %d ms", timeout.toMillis()));
+				stop(true);
+			}
+		}
+		
+		private synchronized void interrupt()
+		{
+			if (!stopped)
+			{
+				fail().appendText("was interrupted");
+				stop(true);
+			}
+		}
+		
+		private void request()
+		{
+			outstanding = batchSize;
+			subscription.request(batchSize);
+		}
+		
+		private Description fail()
+		{
+			if (failureCount++ > 0)
+			{
+				mismatch.append(SEPARATOR);
+			}
+			
+			return new StringDescription(mismatch);
+		}
+		
+		private void stop(boolean cancel)
+		{
+			stopped = true;
+			
+			if (cancel && subscription != null)
+			{
+				subscription.cancel();
+			}
+			
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,523 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Verifies a random sample of a large collection against a matcher and estimates the failure rate of the whole.
+ * <p>
+ * For example:
+ * <pre>
+ * SamplingVerifier&lt;Person&gt; verifier = new SamplingVerifier&lt;&gt;(personMatcher)
+ *     .withConfidence(0.99)
+ *     .withMarginOfError(0.005);
+ *
+ * verifier.sample(people).verify(0.001);
+ * </pre>
+ * The sample is large enough to estimate the failure rate within the margin of error at the confidence level, which
+ * by default is within 1% at 95% confidence. Random-access lists are sampled without replacement by index and streams
+ * are sampled by a single pass of reservoir sampling. Samples are drawn from a seeded random number generator, so that
+ * sampling the same elements again reproduces the same sample.
+ * <p>
+ * Verifiers are immutable and safe for concurrent use, provided that their matcher is.
+ *
+ * @param <T>
+ *            the type of the elements to be matched
+ */
+public final class SamplingVerifier<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final double DEFAULT_CONFIDENCE = 0.95;
+	
+	private static final double DEFAULT_MARGIN_OF_ERROR = 0.01;
+	
+	private static final int MAXIMUM_EXAMPLES = 3;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Matcher<? super T> matcher;
+	
+	private final double confidence;
+	
+	private final double marginOfError;
+	
+	private final long seed;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a verifier that estimates the failure rate within 1% at 95% confidence.
+	 *
+	 * @param matcher
+	 *            the matcher to verify sampled elements against
+	 */
+	public SamplingVerifier(Matcher<? super T> matcher)
+	{
+		this(requireNonNull(matcher, "matcher"), DEFAULT_CONFIDENCE, DEFAULT_MARGIN_OF_ERROR, 0);
+	}
+	
+	private SamplingVerifier(Matcher<? super T> matcher, double confidence, double marginOfError, long seed)
+	{
+		checkProbability(confidence, "confidence");
+		checkProbability(marginOfError, "marginOfError");
+		
+		this.matcher = matcher;
+		this.confidence = confidence;
+		this.marginOfError = marginOfError;
+		this.seed = seed;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// public methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Returns a verifier that estimates the failure rate at the specified confidence level.
+	 * <p>
+	 * Note that this method returns a new verifier and does not modify this instance.
+	 *
+	 * @param confidence
+	 *            the confidence level, for example {@code 0.95}
+	 * @return the verifier
+	 */
+	public SamplingVerifier<T> withConfidence(double confidence)
+	{
+		return new SamplingVerifier<>(matcher, confidence, marginOfError, seed);
+	}
+	
+	/**
+	 * Returns a verifier that estimates the failure rate within the specified margin of error.
+	 * <p>
+	 * Note that this method returns a new verifier and does not modify this instance.
+	 *
+	 * @param marginOfError
+	 *            the margin of error, for example {@code 0.01}
+	 * @return the verifier
+	 */
+	public SamplingVerifier<T> withMarginOfError(double marginOfError)
+	{
+		return new SamplingVerifier<>(matcher, confidence, marginOfError, seed);
+	}
+	
+	/**
+	 * Returns a verifier that draws samples using the specified random seed.
+	 * <p>
+	 * Note that this method returns a new verifier and does not modify this instance.
+	 *
+	 * @param seed
+	 *            the seed of the random number generator
+	 * @return the verifier
+	 */
+	public SamplingVerifier<T> withSeed(long seed)
+	{
+		return new SamplingVerifier<>(matcher, confidence, marginOfError, seed);
+	}
+	
+	/**
+	 * Gets the number of elements that are sampled from an unbounded population.
+	 * <p>
+	 * Smaller populations need fewer elements to be sampled.
+	 *
+	 * @return the sample size
+	 */
+	public int getSampleSize()
+	{
+		double z = zScore(confidence);
+		
+		return (int) Math.min(Integer.MAX_VALUE, Math.ceil(z * z / (4 * marginOfError * marginOfError)));
+	}
+	
+	/**
+	 * Verifies a sample of the specified list, which should support fast random access.
+	 *
+	 * @param elements
+	 *            the elements to sample
+	 * @return the result of verifying the sample
+	 */
+	public Result sample(List<? extends T> elements)
+	{
+		int populationSize = elements.size();
+		int[] indices = sampleIndices(populationSize, sampleSize(populationSize), new Random(seed));
+		Verification verification = new Verification();
+		
+		for (int index : indices)
+		{
+			verification.verify(index, elements.get(index));
+		}
+		
+		return verification.toResult(populationSize);
+	}
+	
+	/**
+	 * Verifies a sample of the specified stream, which is consumed in a single pass.
+	 *
+	 * @param elements
+	 *            the elements to sample
+	 * @return the result of verifying the sample
+	 */
+	public Result sample(Stream<? extends T> elements)
+	{
+		int sampleSize = getSampleSize();
+		Random random = new Random(seed);
+		long[] indices = new long[sampleSize];
+		List<T> reservoir = new ArrayList<>();
+		Iterator<? extends T> iterator = elements.iterator();
+		long populationSize = 0;
+		
+		while (iterator.hasNext())
+		{
+			T element = iterator.next();
+			
+			if (populationSize < sampleSize)
+			{
+				reservoir.add(element);
+				indices[(int) populationSize] = populationSize;
+			}
+			else
+			{
+				// replace a random element with the probability that this element would be sampled
+				long slot = (long) (random.nextDouble() * (populationSize + 1));
+				
+				if (slot < sampleSize)
+				{
+					reservoir.set((int) slot, element);
+					indices[(int) slot] = populationSize;
+				}
+			}
+			
+			populationSize++;
+		}
+		
+		return verifyReservoir(reservoir, indices, populationSize);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the standard normal quantile of the specified two-sided confidence level, to within 0.00045.
+	 */
+	static double zScore(double confidence)
+	{
+		// Abramowitz and Stegun 26.2.23
+		double t = Math.sqrt(-2 * Math.log((1 - confidence) / 2));
+		
+		return t - (2.515517 + 0.802853 * t + 0.010328 * t * t) / (1 + 1.432788 * t + 0.189269 * t * t
+			+ 0.001308 * t * t * t);
+	}
+	
+	/**
+	 * Chooses the specified number of distinct indices below the population size in ascending order.
+	 */
+	static int[] sampleIndices(int populationSize, int sampleSize, Random random)
+	{
+		// Floyd's algorithm
+		Set<Integer> chosen = new HashSet<>();
+		
+		for (int bound = populationSize - sampleSize; bound < populationSize; bound++)
+		{
+			int index = random.nextInt(bound + 1);
+			chosen.add(chosen.contains(index) ? bound : index);
+		}
+		
+		int[] indices = chosen.stream().mapToInt(Integer::intValue).toArray();
+		Arrays.sort(indices);
+		return indices;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private int sampleSize(long populationSize)
+	{
+		// finite population correction
+		double sampleSize = getSampleSize();
+		
+		return (int) Math.min(populationSize, Math.ceil(sampleSize / (1 + (sampleSize - 1) / populationSize)));
+	}
+	
+	private Result verifyReservoir(List<T> reservoir, long[] indices, long populationSize)
+	{
+		Integer[] order = new Integer[reservoir.size()];
+		Arrays.setAll(order, slot -> slot);
+		Arrays.sort(order, (slot1, slot2) -> Long.compare(indices[slot1], indices[slot2]));
+		
+		Verification verification = new Verification();
+		
+		for (int slot : order)
+		{
+			verification.verify(indices[slot], reservoir.get(slot));
+		}
+		
+		return verification.toResult(populationSize);
+	}
+	
+	private static void checkProbability(double value, String name)
+	{
+		if (!(value > 0 && value < 1))
+		{
+			throw new IllegalArgumentException(name + " must be between 0 and 1 exclusive: " + value);
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The verification of the elements of a single sample in ascending index order.
+	 */
+	private final class Verification
+	{
+		private final List<Long> exampleIndices = new ArrayList<>();
+		
+		private final List<String> exampleMismatches = new ArrayList<>();
+		
+		private int sampleSize;
+		
+		private int failureCount;
+		
+		void verify(long index, T element)
+		{
+			sampleSize++;
+			
+			if (matcher.matches(element))
+			{
+				return;
+			}
+			
+			failureCount++;
+			
+			if (exampleIndices.size() < MAXIMUM_EXAMPLES)
+			{
+				StringDescription mismatch = new StringDescription();
+				matcher.describeMismatch(element, mismatch);
+				exampleIndices.add(index);
+				exampleMismatches.add(mismatch.toString());
+			}
+		}
+		
+		Result toResult(long populationSize)
+		{
+			return new Result(StringDescription.toString(matcher), confidence, populationSize, sampleSize, failureCount,
+				unmodifiableList(exampleIndices), unmodifiableList(exampleMismatches));
+		}
+	}
+	
+	/**
+	 * The result of verifying a sample.
+	 */
+	public static final class Result
+	{
+		private final String matcherDescription;
+		
+		private final double confidence;
+		
+		private final double z;
+		
+		private final long populationSize;
+		
+		private final int sampleSize;
+		
+		private final int failureCount;
+		
+		private final List<Long> exampleIndices;
+		
+		private final List<String> exampleMismatches;
+		
+		private Result(String matcherDescription, double confidence, long populationSize, int sampleSize,
+			int failureCount, List<Long> exampleIndices, List<String> exampleMismatches)
+		{
+			this.matcherDescription = matcherDescription;
+			this.confidence = confidence;
+			z = zScore(confidence);
+			this.populationSize = populationSize;
+			this.sampleSize = sampleSize;
+			this.failureCount = failureCount;
+			this.exampleIndices = exampleIndices;
+			this.exampleMismatches = exampleMismatches;
+		}
+		
+		/**
+		 * Gets the number of elements that were sampled from.
+		 *
+		 * @return the population size
+		 */
+		public long getPopulationSize()
+		{
+			return populationSize;
+		}
+		
+		/**
+		 * Gets the number of elements that were sampled.
+		 *
+		 * @return the sample size
+		 */
+		public int getSampleSize()
+		{
+			return sampleSize;
+		}
+		
+		/**
+		 * Gets the number of sampled elements that did not match.
+		 *
+		 * @return the number of failures
+		 */
+		public int getFailureCount()
+		{
+			return failureCount;
+		}
+		
+		/**
+		 * Gets the proportion of sampled elements that did not match, which estimates that of the population.
+		 *
+		 * @return the failure rate between 0 and 1
+		 */
+		public double getFailureRate()
+		{
+			return (sampleSize == 0) ? 0 : (double) failureCount / sampleSize;
+		}
+		
+		/**
+		 * Gets the lower bound of the Wilson score interval of the population's failure rate.
+		 *
+		 * @return the lower bound between 0 and 1
+		 */
+		public double getLowerBound()
+		{
+			return isExhaustive() ? getFailureRate() : Math.max(0, wilsonCentre() - wilsonHalfWidth());
+		}
+		
+		/**
+		 * Gets the upper bound of the Wilson score interval of the population's failure rate.
+		 *
+		 * @return the upper bound between 0 and 1
+		 */
+		public double getUpperBound()
+		{
+			return isExhaustive() ? getFailureRate() : Math.min(1, wilsonCentre() + wilsonHalfWidth());
+		}
+		
+		/**
+		 * Gets the indices of the first sampled elements that did not match.
+		 *
+		 * @return the failure indices in ascending order
+		 */
+		public List<Long> getExampleIndices()
+		{
+			return exampleIndices;
+		}
+		
+		/**
+		 * Gets the mismatches of the first sampled elements that did not match.
+		 *
+		 * @return the mismatch descriptions in the order of their indices
+		 */
+		public List<String> getExampleMismatches()
+		{
+			return exampleMismatches;
+		}
+		
+		/**
+		 * Throws an {@code AssertionError} that reports the estimated failure rate and example mismatches if any
+		 * sampled element did not match.
+		 *
+		 * @throws AssertionError
+		 *             if any sampled element did not match
+		 */
+		public void verify()
+		{
+			if (failureCount > 0)
+			{
+				throw new AssertionError(report());
+			}
+		}
+		
+		/**
+		 * Throws an {@code AssertionError} that reports the estimated failure rate and example mismatches if the
+		 * upper bound of the failure rate exceeds the specified rate.
+		 *
+		 * @param maximumFailureRate
+		 *            the highest acceptable failure rate of the population
+		 * @throws AssertionError
+		 *             if the upper bound of the failure rate exceeds the specified rate
+		 */
+		public void verify(double maximumFailureRate)
+		{
+			if (getUpperBound() > maximumFailureRate)
+			{
+				throw new AssertionError(report());
+			}
+		}
+		
+		private boolean isExhaustive()
+		{
+			return sampleSize == populationSize;
+		}
+		
+		private double wilsonCentre()
+		{
+			double n = sampleSize;
+			
+			return (getFailureRate() + z * z / (2 * n)) / (1 + z * z / n);
+		}
+		
+		private double wilsonHalfWidth()
+		{
+			double n = sampleSize;
+			double p = getFailureRate();
+			
+			return z * Math.sqrt(p * (1 - p) / n + z * z / (4 * n * n)) / (1 + z * z / n);
+		}
+		
+		private String report()
+		{
+			StringBuilder report = new StringBuilder(String.format("%d of %d sampled elements failed: estimated "
+				+ "failure rate %.2f%% (%.0f%% confidence %.2f%% to %.2f%%)", failureCount, sampleSize,
+				100 * getFailureRate(), 100 * confidence, 100 * getLowerBound(), 100 * getUpperBound()));
+			
+			for (int index = 0; index < exampleIndices.size(); index++)
+			{
+				report.append(String.format("\n\n%d) element %d", index + 1, exampleIndices.get(index)))
+					.append("\nExpected: ").append(matcherDescription)
+					.append("\n     but: ").append(exampleMismatches.get(index));
+			}
+			
+			return report.toString();
+		}
+	}
+}
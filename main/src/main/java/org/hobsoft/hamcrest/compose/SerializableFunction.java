@@ -14,9 +14,6 @@
 package org.hobsoft.hamcrest.compose;
 
 import java.io.Serializable;
-import java.lang.invoke.SerializedLambda;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.function.Function;
 
 /**
@@ -32,36 +29,19 @@ public interface SerializableFunction<T, R> extends Function<T, R>, Serializable
 	// public methods
 	// ----------------------------------------------------------------------------------------------------------------
 	
+	/**
+	 * Gets the name of the method that this function references.
+	 * <p>
+	 * The name is obtained from the serialized form of the method reference rather than by reflection. Within a native
+	 * image this requires the class that creates the method reference to be registered for lambda serialization,
+	 * otherwise the string representation is returned instead. Names are cached by the class of the function.
+	 *
+	 * @return the method name, or the string representation of this function if it is not a method reference
+	 */
 	default String getName()
 	{
-		for (Class<?> klass = getClass(); klass != null; klass = klass.getSuperclass())
-		{
-			try
-			{
-				Method writeReplace = klass.getDeclaredMethod("writeReplace");
-				writeReplace.setAccessible(true);
-				
-				Object replacement = writeReplace.invoke(this);
-				if (!(replacement instanceof SerializedLambda))
-				{
-					// not a method reference
-					break;
-				}
-				
-				SerializedLambda lambda = (SerializedLambda) replacement;
-				return lambda.getImplMethodName();
-			}
-			catch (NoSuchMethodException exception)
-			{
-				// continue to superclass
-			}
-			catch (IllegalAccessException | InvocationTargetException exception)
-			{
-				// cannot get replacement
-				break;
-			}
-		}
+		String implMethodName = SerializedLambdas.getImplMethodName(this);
 		
-		return toString();
+		return (implMethodName != null) ? implMethodName : toString();
 	}
 }
@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.SerializedLambda;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Utilities for the serialized form that the Java compiler generates for serializable lambdas and method references.
+ * <p>
+ * Within a native image, a lambda can only be serialized when the class that creates it is registered for lambda
+ * serialization by the application. Any other lambda is treated as a function that is not serializable, so that it
+ * has no name and is keyed by identity.
+ */
+final class SerializedLambdas
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final ClassValue<AtomicReference<Optional<String>>> IMPL_METHOD_NAMES
+		= new ClassValue<AtomicReference<Optional<String>>>()
+	{
+		@Override
+		protected AtomicReference<Optional<String>> computeValue(Class<?> type)
+		{
+			return new AtomicReference<>();
+		}
+	};
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private SerializedLambdas()
+	{
+		throw new AssertionError();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the serialized form of the specified function, or returns {@code null} if it is not a serializable lambda.
+	 * <p>
+	 * The serialized form is obtained by serializing the function and intercepting the object that replaces it, so
+	 * that the private {@code writeReplace} method of the lambda is invoked by the serialization machinery rather than
+	 * by reflection. Serialization stops at this object, so captured arguments need not be serializable. A linkage
+	 * error is treated as a function that cannot be serialized, since that is how a native image reports a lambda
+	 * whose class has not been registered.
+	 */
+	static SerializedLambda of(Object function)
+	{
+		try (ReplacementCapturingStream out = new ReplacementCapturingStream())
+		{
+			out.writeObject(function);
+			
+			return (out.replacement instanceof SerializedLambda) ? (SerializedLambda) out.replacement : null;
+		}
+		catch (IOException | RuntimeException | LinkageError exception)
+		{
+			// cannot get replacement
+			return null;
+		}
+	}
+	
+	/**
+	 * Gets the name of the method that implements the specified function, or returns {@code null} if it is not a
+	 * serializable lambda.
+	 * <p>
+	 * Names are cached by the class of the function, since every instance of a lambda class is implemented by the same
+	 * method.
+	 */
+	static String getImplMethodName(Object function)
+	{
+		AtomicReference<Optional<String>> cachedName = IMPL_METHOD_NAMES.get(function.getClass());
+		Optional<String> name = cachedName.get();
+		
+		if (name == null)
+		{
+			SerializedLambda lambda = of(function);
+			name = Optional.ofNullable((lambda != null) ? lambda.getImplMethodName() : null);
+			cachedName.set(name);
+		}
+		
+		return name.orElse(null);
+	}
+	
+	/**
+	 * Gets a key that is equal for functions that are equal in structure.
+	 * <p>
+	 * Serializable lambdas and method references are keyed by the method that implements them together with any
+	 * captured arguments, so that the same method reference written in different places has equal keys. Any other
+	 * function is its own key.
+	 */
+	static Object key(Object function)
+	{
+		SerializedLambda lambda = of(function);
+		
+		if (lambda == null)
+		{
+			return function;
+		}
+		
+		List<Object> key = new ArrayList<>(3 + lambda.getCapturedArgCount());
+		key.add(lambda.getImplClass());
+		key.add(lambda.getImplMethodName());
+		key.add(lambda.getImplMethodSignature());
+		
+		for (int index = 0; index < lambda.getCapturedArgCount(); index++)
+		{
+			key.add(lambda.getCapturedArg(index));
+		}
+		
+		return key;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Object output stream that discards its output and records the first object that it writes once that object has
+	 * been replaced, without writing it.
+	 */
+	private static final class ReplacementCapturingStream extends ObjectOutputStream
+	{
+		private Object replacement;
+		
+		ReplacementCapturingStream() throws IOException
+		{
+			super(new NullOutputStream());
+			
+			enableReplaceObject(true);
+		}
+		
+		@Override
+		protected Object replaceObject(Object object)
+		{
+			replacement = object;
+			
+			// replacing with null writes null rather than the object
+			return null;
+		}
+	}
+	
+	/**
+	 * Output stream that discards its output.
+	 */
+	private static final class NullOutputStream extends OutputStream
+	{
+		@Override
+		public void write(int b)
+		{
+			// discard
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			// discard
+		}
+	}
+}
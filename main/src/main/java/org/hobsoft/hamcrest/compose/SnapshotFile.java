@@ -0,0 +1,329 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * A memory-mapped file of recorded feature values.
+ * <p>
+ * The file comprises a header of the feature names, followed by a record of the key and feature values of each
+ * object, followed by an index of the records sorted by the hash code of their keys, followed by the position of the
+ * index. Strings are stored as their length followed by their UTF-8 bytes. Records are located by a binary search of
+ * the index, so that only the feature names are read onto the heap when the file is opened.
+ */
+final class SnapshotFile
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int MAGIC = 0x48435346;
+	
+	private static final int VERSION = 1;
+	
+	private static final int INDEX_ENTRY_SIZE = 8;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final ByteBuffer buffer;
+	
+	private final List<String> featureNames;
+	
+	private final int indexPosition;
+	
+	private final int recordCount;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private SnapshotFile(ByteBuffer buffer) throws IOException
+	{
+		this.buffer = buffer;
+		
+		ByteBuffer header = buffer.duplicate();
+		
+		if (header.getInt() != MAGIC || header.getInt() != VERSION)
+		{
+			throw new IOException("Not a feature snapshot file");
+		}
+		
+		int featureCount = header.getInt();
+		List<String> names = new ArrayList<>(featureCount);
+		
+		for (int index = 0; index < featureCount; index++)
+		{
+			names.add(readString(header));
+		}
+		
+		featureNames = unmodifiableList(names);
+		indexPosition = buffer.getInt(buffer.limit() - Integer.BYTES);
+		recordCount = (buffer.limit() - Integer.BYTES - indexPosition) / INDEX_ENTRY_SIZE;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Writes a snapshot file of the specified records, each of which is a key followed by one value per feature name.
+	 * The records are written to a temporary file that is only moved into place once it is complete, so that any
+	 * existing file is left unchanged if writing fails, or if two records have the same key, in which case an
+	 * {@code IllegalArgumentException} is thrown.
+	 */
+	static void write(Path file, List<String> featureNames, Iterator<String[]> records) throws IOException
+	{
+		Path temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(),
+			".tmp");
+		
+		try
+		{
+			writeRecords(temporaryFile, featureNames, records);
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+	
+	static SnapshotFile map(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			return new SnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+	
+	List<String> getFeatureNames()
+	{
+		return featureNames;
+	}
+	
+	int size()
+	{
+		return recordCount;
+	}
+	
+	/**
+	 * Finds the feature values recorded for the specified key, or returns {@code null} if there is no such record.
+	 */
+	String[] find(String key)
+	{
+		int hash = key.hashCode();
+		int low = 0;
+		int high = recordCount;
+		
+		// find the first entry with this hash code
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			
+			if (entryHash(middle) < hash)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		
+		for (int entry = low; entry < recordCount && entryHash(entry) == hash; entry++)
+		{
+			ByteBuffer record = buffer.duplicate();
+			record.position(entryPosition(entry));
+			
+			if (key.equals(readString(record)))
+			{
+				return readValues(record);
+			}
+		}
+		
+		return null;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static void writeRecords(Path file, List<String> featureNames, Iterator<String[]> records)
+		throws IOException
+	{
+		long[] index = new long[16];
+		int recordCount = 0;
+		
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(featureNames.size());
+			
+			for (String featureName : featureNames)
+			{
+				writeString(out, featureName);
+			}
+			
+			while (records.hasNext())
+			{
+				String[] record = records.next();
+				
+				if (recordCount == index.length)
+				{
+					index = Arrays.copyOf(index, 2 * index.length);
+				}
+				
+				index[recordCount++] = indexEntry(record[0].hashCode(), out.size());
+				
+				for (String value : record)
+				{
+					writeString(out, value);
+				}
+			}
+			
+			// signed comparison of the entries sorts them by hash code
+			Arrays.sort(index, 0, recordCount);
+			
+			out.flush();
+			checkUniqueKeys(channel, index, recordCount);
+			
+			int indexPosition = checkPosition(out.size());
+			
+			for (int entry = 0; entry < recordCount; entry++)
+			{
+				out.writeLong(index[entry]);
+			}
+			
+			out.writeInt(indexPosition);
+			checkPosition(out.size());
+		}
+	}
+	
+	/**
+	 * Throws an {@code IllegalArgumentException} if a key is recorded more than once. Only the keys of records with
+	 * equal hash codes are read back from the file, without mapping it.
+	 */
+	private static void checkUniqueKeys(FileChannel channel, long[] index, int recordCount) throws IOException
+	{
+		for (int entry = 0; entry < recordCount; entry++)
+		{
+			int hash = (int) (index[entry] >> Integer.SIZE);
+			
+			for (int other = entry + 1; other < recordCount && (int) (index[other] >> Integer.SIZE) == hash; other++)
+			{
+				String key = readKey(channel, (int) index[entry]);
+				
+				if (key.equals(readKey(channel, (int) index[other])))
+				{
+					throw new IllegalArgumentException("Duplicate snapshot key: " + key);
+				}
+			}
+		}
+	}
+	
+	private static String readKey(FileChannel channel, int position) throws IOException
+	{
+		ByteBuffer length = read(channel, position, Integer.BYTES);
+		ByteBuffer bytes = read(channel, position + Integer.BYTES, length.getInt());
+		return new String(bytes.array(), UTF_8);
+	}
+	
+	private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new IOException("Unexpected end of feature snapshot file");
+			}
+		}
+		
+		buffer.flip();
+		return buffer;
+	}
+	
+	private static long indexEntry(int hash, int position)
+	{
+		return ((long) hash << Integer.SIZE) | checkPosition(position);
+	}
+	
+	private static int checkPosition(int position)
+	{
+		// the size of a data output stream saturates rather than overflows
+		if (position == Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("Feature snapshot exceeds 2 GB");
+		}
+		
+		return position;
+	}
+	
+	private int entryHash(int entry)
+	{
+		return (int) (buffer.getLong(indexPosition + entry * INDEX_ENTRY_SIZE) >> Integer.SIZE);
+	}
+	
+	private int entryPosition(int entry)
+	{
+		return (int) buffer.getLong(indexPosition + entry * INDEX_ENTRY_SIZE);
+	}
+	
+	private String[] readValues(ByteBuffer record)
+	{
+		String[] values = new String[featureNames.size()];
+		
+		for (int index = 0; index < values.length; index++)
+		{
+			values[index] = readString(record);
+		}
+		
+		return values;
+	}
+	
+	private static void writeString(DataOutputStream out, String string) throws IOException
+	{
+		byte[] bytes = string.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
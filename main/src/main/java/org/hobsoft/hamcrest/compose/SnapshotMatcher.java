@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hamcrest.Description;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+import static org.hobsoft.hamcrest.compose.ConjunctionMatcher.SEPARATOR;
+
+/**
+ * Matcher that matches an object whose features are equal to those recorded for its key in a feature snapshot.
+ * <p>
+ * Each feature is converted to a string and compared directly with its recorded value, and any mismatches are
+ * described in the same way as a composition of feature matchers.
+ * <p>
+ * Use {@code FeatureSnapshot.matchesRecorded} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to be matched
+ * @see FeatureSnapshot#matchesRecorded()
+ */
+final class SnapshotMatcher<T> extends TypeSafeDiagnosingMatcher<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final String snapshotName;
+	
+	private final SnapshotFile snapshotFile;
+	
+	private final Function<T, String> keyFunction;
+	
+	private final List<String> featureNames;
+	
+	private final List<Function<T, String>> valueFunctions;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	SnapshotMatcher(String snapshotName, SnapshotFile snapshotFile, Function<T, String> keyFunction,
+		List<String> featureNames, List<Function<T, ?>> featureFunctions)
+	{
+		this.snapshotName = snapshotName;
+		this.snapshotFile = snapshotFile;
+		this.keyFunction = keyFunction;
+		this.featureNames = featureNames;
+		valueFunctions = new ArrayList<>(featureFunctions.size());
+		
+		for (Function<T, ?> featureFunction : featureFunctions)
+		{
+			valueFunctions.add(featureFunction.andThen(String::valueOf));
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		description.appendText("features as recorded in ").appendText(snapshotName);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// TypeSafeDiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matchesSafely(T actual, Description mismatch)
+	{
+		String key = keyFunction.apply(actual);
+		String[] recordedValues = snapshotFile.find(key);
+		
+		if (recordedValues == null)
+		{
+			mismatch.appendText("no features recorded for ").appendValue(key);
+			return false;
+		}
+		
+		return matchesRecorded(actual, recordedValues, mismatch);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private boolean matchesRecorded(T actual, String[] recordedValues, Description mismatch)
+	{
+		boolean describe = !(mismatch instanceof Description.NullDescription);
+		boolean matches = true;
+		
+		for (int index = 0; index < recordedValues.length; index++)
+		{
+			String value = valueFunctions.get(index).apply(actual);
+			
+			if (!value.equals(recordedValues[index]))
+			{
+				if (!describe)
+				{
+					return false;
+				}
+				
+				if (!matches)
+				{
+					mismatch.appendText(SEPARATOR);
+				}
+				
+				mismatch.appendText(featureNames.get(index)).appendText(" was ").appendValue(value);
+				matches = false;
+			}
+		}
+		
+		return matches;
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.stream.BaseStream;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.SelfDescribing;
+import org.hamcrest.StringDescription;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+import static java.util.Objects.requireNonNull;
+
+import static org.hobsoft.hamcrest.compose.ConjunctionMatcher.SEPARATOR;
+
+/**
+ * Matcher that matches the items of a stream in a single pass.
+ * <p>
+ * Unlike the Hamcrest collection matchers, the stream is consumed exactly once and its items are matched as they are
+ * iterated, so that streams of any length can be matched without collecting them into a list. The stream is closed once
+ * it has been consumed. The mismatch of a failed match is kept on the same thread until it is described, so that
+ * matching the stream again, as a composing matcher does, or describing its mismatch does not consume the stream
+ * again, even when the matcher is shared between threads.
+ * <p>
+ * Use {@code ComposeMatchers.streamContains}, {@code ComposeMatchers.streamEveryItem} or
+ * {@code ComposeMatchers.streamHasSize} to obtain instances of this class.
+ *
+ * @param <E>
+ *            the type of the stream items to be matched
+ * @see ComposeMatchers#streamContains(Matcher...)
+ */
+final class StreamMatcher<E> extends TypeSafeDiagnosingMatcher<BaseStream<? extends E, ?>>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final SelfDescribing description;
+	
+	private final BiPredicate<Iterator<? extends E>, Description> itemsMatcher;
+	
+	private final MismatchHandoff<String> handoff;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private StreamMatcher(SelfDescribing description, BiPredicate<Iterator<? extends E>, Description> itemsMatcher)
+	{
+		this.description = description;
+		this.itemsMatcher = itemsMatcher;
+		handoff = new MismatchHandoff<>();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		this.description.describeTo(description);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// TypeSafeDiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matchesSafely(BaseStream<? extends E, ?> stream, Description mismatch)
+	{
+		if (mismatch instanceof Description.NullDescription)
+		{
+			if (handoff.peek(stream) != null)
+			{
+				return false;
+			}
+			
+			StringDescription streamMismatch = new StringDescription();
+			
+			if (consume(stream, streamMismatch))
+			{
+				handoff.clear();
+				return true;
+			}
+			
+			handoff.put(stream, streamMismatch.toString());
+			return false;
+		}
+		
+		String pendingMismatch = handoff.take(stream);
+		
+		if (pendingMismatch != null)
+		{
+			mismatch.appendText(pendingMismatch);
+			return false;
+		}
+		
+		return consume(stream, mismatch);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	static <E> StreamMatcher<E> contains(List<Matcher<? super E>> itemMatchers)
+	{
+		requireNonNull(itemMatchers, "itemMatchers");
+		itemMatchers.forEach(itemMatcher -> requireNonNull(itemMatcher, "itemMatcher"));
+		
+		return new StreamMatcher<>(
+			description -> description.appendList("a stream containing [", ", ", "]", itemMatchers),
+			(items, mismatch) -> containsItems(itemMatchers, items, mismatch)
+		);
+	}
+	
+	static <E> StreamMatcher<E> everyItem(Matcher<? super E> itemMatcher)
+	{
+		requireNonNull(itemMatcher, "itemMatcher");
+		
+		return new StreamMatcher<>(
+			description -> description.appendText("every stream item ").appendDescriptionOf(itemMatcher),
+			(items, mismatch) -> everyItem(itemMatcher, items, mismatch)
+		);
+	}
+	
+	static <E> StreamMatcher<E> hasSize(Matcher<? super Long> sizeMatcher)
+	{
+		requireNonNull(sizeMatcher, "sizeMatcher");
+		
+		return new StreamMatcher<>(
+			description -> description.appendText("a stream with size ").appendDescriptionOf(sizeMatcher),
+			(items, mismatch) -> hasSize(sizeMatcher, items, mismatch)
+		);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private boolean consume(BaseStream<? extends E, ?> stream, Description mismatch)
+	{
+		try
+		{
+			return itemsMatcher.test(stream.iterator(), mismatch);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+	
+	private static <E> boolean containsItems(List<Matcher<? super E>> itemMatchers, Iterator<? extends E> items,
+		Description mismatch)
+	{
+		boolean matches = true;
+		int index = 0;
+		
+		for (Matcher<? super E> itemMatcher : itemMatchers)
+		{
+			if (!items.hasNext())
+			{
+				appendSeparator(matches, mismatch).appendText(String.format("item %d was missing", index));
+				return false;
+			}
+			
+			E item = items.next();
+			
+			if (!itemMatcher.matches(item))
+			{
+				itemMatcher.describeMismatch(item, appendSeparator(matches, mismatch)
+					.appendText(String.format("item %d ", index)));
+				matches = false;
+			}
+			
+			index++;
+		}
+		
+		if (items.hasNext())
+		{
+			appendSeparator(matches, mismatch).appendText(String.format("item %d was unexpected ", index))
+				.appendValue(items.next());
+			return false;
+		}
+		
+		return matches;
+	}
+	
+	private static <E> boolean everyItem(Matcher<? super E> itemMatcher, Iterator<? extends E> items,
+		Description mismatch)
+	{
+		for (long index = 0; items.hasNext(); index++)
+		{
+			E item = items.next();
+			
+			if (!itemMatcher.matches(item))
+			{
+				itemMatcher.describeMismatch(item, mismatch.appendText(String.format("item %d ", index)));
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private static boolean hasSize(Matcher<? super Long> sizeMatcher, Iterator<?> items, Description mismatch)
+	{
+		long size = 0;
+		
+		while (items.hasNext())
+		{
+			items.next();
+			size++;
+		}
+		
+		if (!sizeMatcher.matches(size))
+		{
+			sizeMatcher.describeMismatch(size, mismatch.appendText("size "));
+			return false;
+		}
+		
+		return true;
+	}
+	
+	private static Description appendSeparator(boolean first, Description mismatch)
+	{
+		return first ? mismatch : mismatch.appendText(SEPARATOR);
+	}
+}
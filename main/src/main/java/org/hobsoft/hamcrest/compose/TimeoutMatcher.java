@@ -0,0 +1,261 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.Description;
+import org.hamcrest.DiagnosingMatcher;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Matcher that bounds the time taken by another matcher.
+ * <p>
+ * The decorated matcher is evaluated, and any mismatch described, on a separate daemon thread that is waited upon for
+ * at most the timeout, so that every match, including one that completes quickly, is handed to another thread. When
+ * the timeout elapses the thread is interrupted and the match is reported as a mismatch, for example
+ * {@code timed out after 100 ms}.
+ * <p>
+ * The mismatch of a failed match is described on the same thread as the match and kept on the calling thread until it
+ * is described, in the same way as the stream matchers. Describing the mismatch, or matching the same object again
+ * before then, therefore neither waits for the decorated matcher again nor matches an object, such as a stream, that
+ * can only be matched once.
+ * <p>
+ * A matcher that does not respond to interruption, such as a regular expression, continues to run in the background
+ * until it completes, but no longer delays the caller. To bound the threads and processors used by such runaway
+ * matches, once there are twice as many runaway matches as available processors across all timeout matchers, any
+ * further match fails immediately without being evaluated until a runaway match completes.
+ * <p>
+ * Use {@code ComposeMatchers.withTimeout} to obtain instances of this class.
+ *
+ * @param <T>
+ *            the type of the object to be matched
+ * @see ComposeMatchers#withTimeout(Matcher, Duration)
+ */
+final class TimeoutMatcher<T> extends DiagnosingMatcher<T>
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable ->
+	{
+		Thread thread = new Thread(runnable, "hamcrest-compose-timeout");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	static final int MAXIMUM_RUNAWAYS = 2 * Runtime.getRuntime().availableProcessors();
+	
+	private static final AtomicInteger RUNAWAYS = new AtomicInteger();
+	
+	private static final int PENDING = 0;
+	
+	private static final int RUNNING = 1;
+	
+	private static final int COMPLETED = 2;
+	
+	private static final int ABANDONED = 3;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private final Matcher<T> matcher;
+	
+	private final Duration timeout;
+	
+	private final MismatchHandoff<String> handoff;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// constructors
+	// ----------------------------------------------------------------------------------------------------------------
+
+	TimeoutMatcher(Matcher<T> matcher, Duration timeout)
+	{
+		this.matcher = requireNonNull(matcher, "matcher");
+		this.timeout = requireNonNull(timeout, "timeout");
+		handoff = new MismatchHandoff<>();
+		
+		if (timeout.isNegative())
+		{
+			throw new IllegalArgumentException("timeout must not be negative: " + timeout);
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// SelfDescribing methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public void describeTo(Description description)
+	{
+		matcher.describeTo(description);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// DiagnosingMatcher methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Override
+	protected boolean matches(Object actual, Description mismatch)
+	{
+		boolean describe = (mismatch != Description.NONE);
+		String mismatchText = describe ? handoff.take(actual) : handoff.peek(actual);
+		
+		if (mismatchText == null)
+		{
+			mismatchText = evaluate(actual);
+		}
+		
+		if (mismatchText == null)
+		{
+			handoff.clear();
+			return true;
+		}
+		
+		if (!describe)
+		{
+			handoff.put(actual, mismatchText);
+		}
+		
+		mismatch.appendText(mismatchText);
+		return false;
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// package methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Gets the number of matches that timed out but are still running.
+	 */
+	static int getRunawayCount()
+	{
+		return Math.max(RUNAWAYS.get(), 0);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Matches the specified object on another thread and returns {@code null} if it matches, otherwise its mismatch
+	 * description.
+	 */
+	private String evaluate(Object actual)
+	{
+		int runaways = RUNAWAYS.get();
+		
+		if (runaways >= MAXIMUM_RUNAWAYS)
+		{
+			return String.format("was not matched while %d timed out matches are still running", runaways);
+		}
+		
+		AtomicInteger state = new AtomicInteger(PENDING);
+		Future<String> result = EXECUTOR.submit(() -> evaluate(actual, state));
+		
+		try
+		{
+			return result.get(timeout.toNanos(), NANOSECONDS);
+		}
+		catch (TimeoutException exception)
+		{
+			abandon(result, state);
+			return String.format("timed out after %d ms", timeout.toMillis());
+		}
+		catch (ExecutionException exception)
+		{
+			throw propagate(exception.getCause());
+		}
+		catch (InterruptedException exception)
+		{
+			abandon(result, state);
+			Thread.currentThread().interrupt();
+			return "was interrupted";
+		}
+	}
+	
+	/**
+	 * Matches the specified object and returns {@code null} if it matches, otherwise its mismatch description. A match
+	 * that has already been abandoned is not started, and one that is abandoned while running is no longer counted as
+	 * a runaway once it completes.
+	 */
+	private String evaluate(Object actual, AtomicInteger state)
+	{
+		if (!state.compareAndSet(PENDING, RUNNING))
+		{
+			return null;
+		}
+		
+		try
+		{
+			return describe(actual);
+		}
+		finally
+		{
+			if (!state.compareAndSet(RUNNING, COMPLETED))
+			{
+				RUNAWAYS.decrementAndGet();
+			}
+		}
+	}
+	
+	private String describe(Object actual)
+	{
+		if (matcher.matches(actual))
+		{
+			return null;
+		}
+		
+		StringDescription description = new StringDescription();
+		matcher.describeMismatch(actual, description);
+		return description.toString();
+	}
+	
+	private static void abandon(Future<?> result, AtomicInteger state)
+	{
+		if (state.getAndSet(ABANDONED) == RUNNING)
+		{
+			RUNAWAYS.incrementAndGet();
+		}
+		
+		result.cancel(true);
+	}
+	
+	private static RuntimeException propagate(Throwable throwable)
+	{
+		if (throwable instanceof Error)
+		{
+			throw (Error) throwable;
+		}
+		
+		if (throwable instanceof RuntimeException)
+		{
+			return (RuntimeException) throwable;
+		}
+		
+		return new IllegalStateException(throwable);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Predicate;
+
+import org.hamcrest.Matcher;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeatureValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests that matching an object without describing a mismatch does not allocate.
+ */
+public class AllocationTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int ITERATIONS = 100_000;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private com.sun.management.ThreadMXBean threadBean;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// JUnit methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Before
+	public void setUp()
+	{
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		
+		threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void matchesWhenFeatureMatchesDoesNotAllocate()
+	{
+		Matcher<String> matcher = hasFeature("x", String::length, equalTo(3));
+		
+		assertThat(allocatedBytesPerMatch(matcher::matches, "ham"), is(0L));
+	}
+	
+	@Test
+	public void matchesWhenFeatureValueMatchesDoesNotAllocate()
+	{
+		Matcher<String> matcher = hasFeatureValue("x", String::length, 3);
+		
+		assertThat(allocatedBytesPerMatch(matcher::matches, "ham"), is(0L));
+	}
+	
+	@Test
+	public void matchesWhenCompositeMatchesDoesNotAllocate()
+	{
+		Matcher<String> matcher = compose("x", hasFeature("y", String::length, equalTo(3)))
+			.and(hasFeature("z", String::trim, startsWith("h")));
+		
+		assertThat(allocatedBytesPerMatch(matcher::matches, "ham"), is(0L));
+	}
+	
+	@Test
+	public void matchesWhenFrozenNestedCompositeMatchesDoesNotAllocate()
+	{
+		Matcher<String> matcher = compose(compose(hasFeature("x", String::length, equalTo(3))))
+			.and(startsWith("h"))
+			.freeze();
+		
+		assertThat(allocatedBytesPerMatch(matcher::matches, "ham"), is(0L));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Measures the whole number of bytes that the current thread allocates per match, after warming up and excluding
+	 * the allocations of the measurement itself.
+	 */
+	private long allocatedBytesPerMatch(Predicate<Object> matches, Object actual)
+	{
+		long threadId = Thread.currentThread().getId();
+		
+		matchRepeatedly(matches, actual);
+		
+		long start = threadBean.getThreadAllocatedBytes(threadId);
+		long overhead = threadBean.getThreadAllocatedBytes(threadId) - start;
+		
+		start = threadBean.getThreadAllocatedBytes(threadId);
+		matchRepeatedly(matches, actual);
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - start - overhead;
+		
+		return allocated / ITERATIONS;
+	}
+	
+	private static void matchRepeatedly(Predicate<Object> matches, Object actual)
+	{
+		for (int iteration = 0; iteration < ITERATIONS; iteration++)
+		{
+			if (!matches.test(actual))
+			{
+				throw new AssertionError("Expected match");
+			}
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeatureValue;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.withCost;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code BatchEvaluator}.
+ */
+public class BatchEvaluatorTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void matchesWithFeatureMatcherReturnsResults()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeature("x", String::length, equalTo(1))));
+		
+		assertThat(evaluator.matches(asList("a", "bb", "c")), is(new boolean[] {true, false, true}));
+	}
+	
+	@Test
+	public void matchesWithFeatureValueMatcherReturnsResults()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeatureValue("x", String::length, 1)));
+		
+		assertThat(evaluator.matches(asList("a", "bb", "c")), is(new boolean[] {true, false, true}));
+	}
+	
+	@Test
+	public void matchesWithArrayFeatureValueMatcherReturnsResults()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeatureValue("x", String::toCharArray,
+			new char[] {'a'})));
+		
+		assertThat(evaluator.matches(asList("a", "b")), is(new boolean[] {true, false}));
+	}
+	
+	@Test
+	public void matchesWithOtherMatcherReturnsResults()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(startsWith("a")));
+		
+		assertThat(evaluator.matches(asList("ab", "ba")), is(new boolean[] {true, false}));
+	}
+	
+	@Test
+	public void matchesWithMatchersReturnsWhetherAllMatch()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeature("x", String::length, equalTo(2)),
+			startsWith("a")));
+		
+		assertThat(evaluator.matches(asList("ab", "ba", "abc")), is(new boolean[] {true, false, false}));
+	}
+	
+	@Test
+	public void matchesWithNullReturnsFalse()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(anything()));
+		
+		assertThat(evaluator.matches(asList("a", null)), is(new boolean[] {true, false}));
+	}
+	
+	@Test
+	public void matchesWithNoObjectsReturnsEmptyResults()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(anything()));
+		
+		assertThat(evaluator.matches(emptyList()), is(new boolean[0]));
+	}
+	
+	@Test
+	public void matchesExtractsEachFeatureFromEveryObjectInTurn()
+	{
+		List<String> extracted = new ArrayList<>();
+		BatchEvaluator evaluator = new BatchEvaluator(asList(extracting("x", extracted), extracting("y", extracted)));
+		
+		evaluator.matches(asList("a", "b"));
+		
+		assertThat(extracted, is(asList("x(a)", "x(b)", "y(a)", "y(b)")));
+	}
+	
+	@Test
+	public void matchesDoesNotExtractFeaturesOfObjectsThatDoNotMatch()
+	{
+		List<String> extracted = new ArrayList<>();
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeatureValue("x", String::length, 1),
+			extracting("y", extracted)));
+		
+		evaluator.matches(asList("a", "bb"));
+		
+		assertThat(extracted, is(asList("y(a)")));
+	}
+	
+	@Test
+	public void matchesWithCostFeatureMatcherExtractsFeatureFromEveryObjectBeforeMatching()
+	{
+		List<String> extracted = new ArrayList<>();
+		BatchEvaluator evaluator = new BatchEvaluator(asList(withCost(hasFeature("x", recording("x", extracted),
+			extracting("y", extracted)), Cost.HIGH)));
+		
+		evaluator.matches(asList("a", "b"));
+		
+		assertThat(extracted, is(asList("x(a)", "x(b)", "y(a)", "y(b)")));
+	}
+	
+	@Test
+	public void matchesWithFeaturePathMatcherExtractsEachFunctionFromEveryObjectInTurn()
+	{
+		List<String> extracted = new ArrayList<>();
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeature(path("x", recording("x", extracted))
+			.then("y", recording("y", extracted)), anything())));
+		
+		evaluator.matches(asList("a", "b"));
+		
+		assertThat(extracted, is(asList("x(a)", "x(b)", "y(a)", "y(b)")));
+	}
+	
+	@Test
+	public void matchesWithFeaturePathMatcherReturnsResults()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(withCost(hasFeature(path("x", (String actual) ->
+			actual.startsWith("a") ? actual : null).then("y", String::length), equalTo(1)), Cost.HIGH)));
+		
+		assertThat(evaluator.matches(asList("a", "b", "ab")), is(new boolean[] {true, false, false}));
+	}
+	
+	@Test
+	public void matchesEvaluatesCheapestMatchersFirst()
+	{
+		List<String> extracted = new ArrayList<>();
+		BatchEvaluator evaluator = new BatchEvaluator(asList(withCost(extracting("x", extracted), Cost.HIGH),
+			extracting("y", extracted)));
+		
+		evaluator.matches(asList("a"));
+		
+		assertThat(extracted, is(asList("y(a)", "x(a)")));
+	}
+	
+	@Test
+	public void failuresReturnsFailuresOfEachMatcher()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeatureValue("x", String::length, 2),
+			startsWith("a")));
+		
+		BitSet[] failures = evaluator.failures(asList("ab", "ba", "abc"));
+		
+		assertThat(failures, is(new BitSet[] {bits(2), bits(1)}));
+	}
+	
+	@Test
+	public void failuresWithNullFailsEveryMatcher()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(anything(), anything()));
+		
+		assertThat(evaluator.failures(asList("a", null)), is(new BitSet[] {bits(1), bits(1)}));
+	}
+	
+	@Test
+	public void failuresEvaluatesEveryMatcherAgainstEveryObject()
+	{
+		List<String> extracted = new ArrayList<>();
+		BatchEvaluator evaluator = new BatchEvaluator(asList(hasFeatureValue("x", String::length, 1),
+			extracting("y", extracted)));
+		
+		evaluator.failures(asList("a", "bb"));
+		
+		assertThat(extracted, is(asList("y(a)", "y(bb)")));
+	}
+	
+	@Test
+	public void failuresReturnsFailuresInComposedOrder()
+	{
+		BatchEvaluator evaluator = new BatchEvaluator(asList(withCost(startsWith("a"), Cost.HIGH),
+			startsWith("b")));
+		
+		assertThat(evaluator.failures(asList("a")), is(new BitSet[] {bits(), bits(0)}));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static Matcher<String> extracting(String name, List<String> extracted)
+	{
+		return hasFeature(name, (String actual) -> extracted.add(name + "(" + actual + ")"), anything());
+	}
+	
+	private static Function<String, String> recording(String name, List<String> extracted)
+	{
+		return actual ->
+		{
+			extracted.add(name + "(" + actual + ")");
+			return actual;
+		};
+	}
+	
+	private static BitSet bits(int... indices)
+	{
+		BitSet bits = new BitSet();
+		
+		for (int index : indices)
+		{
+			bits.set(index);
+		}
+		
+		return bits;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.BitSet;
+
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code BatchResult}.
+ */
+public class BatchResultTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void sizeReturnsSize()
+	{
+		assertThat(newResult(3, bits(), bits()).size(), is(3));
+	}
+	
+	@Test
+	public void getMatchersReturnsMatchers()
+	{
+		Matcher<Object> matcher1 = nothing("x");
+		Matcher<Object> matcher2 = nothing("x");
+		
+		BatchResult result = new BatchResult(asList(matcher1, matcher2), 1, new BitSet[] {bits(), bits()});
+		
+		assertThat(result.getMatchers(), is(asList(matcher1, matcher2)));
+	}
+	
+	@Test
+	public void getFailuresWithIndexReturnsChildFailures()
+	{
+		assertThat(newResult(3, bits(0), bits(1, 2)).getFailures(1), is(bits(1, 2)));
+	}
+	
+	@Test
+	public void getFailuresWithIndexReturnsCopy()
+	{
+		BatchResult result = newResult(3, bits(0));
+		
+		result.getFailures(0).set(1);
+		
+		assertThat(result.getFailures(0), is(bits(0)));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void getFailuresWithInvalidIndexThrowsException()
+	{
+		newResult(3, bits(0)).getFailures(1);
+	}
+	
+	@Test
+	public void getFailuresReturnsUnion()
+	{
+		assertThat(newResult(4, bits(0, 1), bits(1, 3)).getFailures(), is(bits(0, 1, 3)));
+	}
+	
+	@Test
+	public void getFailuresWhenNoChildrenReturnsEmpty()
+	{
+		assertThat(newResult(2).getFailures(), is(bits()));
+	}
+	
+	@Test
+	public void getFailuresReturnsCopy()
+	{
+		BatchResult result = newResult(3, bits(0));
+		
+		result.getFailures().set(1);
+		
+		assertThat(result.getFailures(), is(bits(0)));
+	}
+	
+	@Test
+	public void getFailureCountReturnsCountOfUnion()
+	{
+		assertThat(newResult(4, bits(0, 1), bits(1, 3)).getFailureCount(), is(3));
+	}
+	
+	@Test
+	public void matchesWhenNoChildFailedReturnsTrue()
+	{
+		assertThat(newResult(3, bits(0), bits(1)).matches(2), is(true));
+	}
+	
+	@Test
+	public void matchesWhenChildFailedReturnsFalse()
+	{
+		assertThat(newResult(3, bits(0), bits(1)).matches(1), is(false));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void matchesWithInvalidRowThrowsException()
+	{
+		newResult(3).matches(3);
+	}
+	
+	@Test
+	public void toStringReturnsFailureCount()
+	{
+		assertThat(newResult(4, bits(0, 1), bits(1, 3)).toString(), is("3 of 4 objects failed"));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static BatchResult newResult(int size, BitSet... failures)
+	{
+		Matcher<?>[] matchers = new Matcher<?>[failures.length];
+		
+		for (int index = 0; index < failures.length; index++)
+		{
+			matchers[index] = nothing("x");
+		}
+		
+		return new BatchResult(asList(matchers), size, failures);
+	}
+	
+	private static BitSet bits(int... indices)
+	{
+		BitSet bits = new BitSet();
+		
+		for (int index : indices)
+		{
+			bits.set(index);
+		}
+		
+		return bits;
+	}
+}
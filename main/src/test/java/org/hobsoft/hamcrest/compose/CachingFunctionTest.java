@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code CachingFunction}.
+ */
+public class CachingFunctionTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullFunctionThrowsException()
+	{
+		new CachingFunction<>(null, 1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorWithZeroMaximumSizeThrowsException()
+	{
+		new CachingFunction<>(key -> key, 0);
+	}
+	
+	@Test
+	public void applyReturnsFunctionResult()
+	{
+		CachingFunction<String, String> function = new CachingFunction<>(key -> key + "y", 1);
+		
+		assertThat(function.apply("x"), is("xy"));
+	}
+	
+	@Test
+	public void applyWithEqualKeyReturnsSameResult()
+	{
+		CachingFunction<String, Object> function = new CachingFunction<>(key -> new Object(), 1);
+		
+		Object expected = function.apply("x");
+		
+		assertThat(function.apply(new String("x")), is(sameInstance(expected)));
+	}
+	
+	@Test
+	public void applyWithEqualKeyDoesNotApplyFunction()
+	{
+		AtomicInteger count = new AtomicInteger();
+		CachingFunction<String, Integer> function = new CachingFunction<>(key -> count.incrementAndGet(), 1);
+		
+		function.apply("x");
+		function.apply("x");
+		
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void applyWithDifferentKeyReturnsDifferentResult()
+	{
+		CachingFunction<String, Object> function = new CachingFunction<>(key -> new Object(), 2);
+		
+		Object result = function.apply("x");
+		
+		assertThat(function.apply("y"), is(not(sameInstance(result))));
+	}
+	
+	@Test
+	public void applyWhenFullEvictsResult()
+	{
+		CachingFunction<String, String> function = new CachingFunction<>(key -> key, 2);
+		
+		function.apply("x");
+		function.apply("y");
+		function.apply("z");
+		
+		assertThat(function.size(), is(2));
+	}
+	
+	@Test
+	public void applyWhenFullRetainsResult()
+	{
+		CachingFunction<String, Object> function = new CachingFunction<>(key -> new Object(), 1);
+		
+		function.apply("x");
+		Object expected = function.apply("y");
+		
+		assertThat(function.apply("y"), is(sameInstance(expected)));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void applyWithNullKeyThrowsException()
+	{
+		new CachingFunction<>(key -> key, 1).apply(null);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void applyWhenFunctionReturnsNullThrowsException()
+	{
+		new CachingFunction<>(key -> null, 1).apply("x");
+	}
+}
@@ -13,8 +13,11 @@
  */
 package org.hobsoft.hamcrest.compose;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.hamcrest.Matcher;
 import org.junit.Test;
@@ -26,10 +29,19 @@ import static org.hamcrest.CoreMatchers.anything;
 import static org.hamcrest.CoreMatchers.endsWith;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.asPredicate;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.cached;
 import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.diffEqualTo;
 import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
 import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeatureValue;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.index;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.memoize;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.withCost;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.withTimeout;
 import static org.hobsoft.hamcrest.compose.TestMatchers.charSeq;
 import static org.junit.Assert.assertThat;
 
@@ -232,4 +244,153 @@ public class ComposeMatchersTest
 	{
 		hasFeatureValue("x", "y", null, anything());
 	}
+	
+	@Test
+	public void memoizeReturnsFunction()
+	{
+		SerializableFunction<String, Integer> actual = memoize(String::length);
+		
+		assertThat(actual.apply("xy"), is(2));
+	}
+	
+	@Test
+	public void withCostReturnsMatcher()
+	{
+		Matcher<String> actual = withCost(startsWith("x"), Cost.HIGH);
+		
+		assertThat(actual.matches("xy"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWithCostMatcherReturnsPredicate()
+	{
+		Predicate<String> actual = asPredicate(withCost(hasFeature("x", String::length, equalTo(3)), Cost.HIGH));
+		
+		assertThat(actual.test("ham"), is(true));
+	}
+	
+	@Test
+	public void withTimeoutReturnsMatcher()
+	{
+		Matcher<String> actual = withTimeout(startsWith("x"), Duration.ofSeconds(10));
+		
+		assertThat(actual.matches("xy"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWithCompositeMatcherReturnsPredicate()
+	{
+		Predicate<String> actual = asPredicate(compose(startsWith("h")).and(endsWith("m")));
+		
+		assertThat(actual.test("ham"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWithFeatureMatcherReturnsPredicate()
+	{
+		Predicate<String> actual = asPredicate(hasFeature("x", String::length, equalTo(3)));
+		
+		assertThat(actual.test("ham"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWithFeaturePathMatcherReturnsPredicate()
+	{
+		Predicate<String> actual = asPredicate(hasFeature(path("x", String::trim).then("y", String::length),
+			equalTo(3)));
+		
+		assertThat(actual.test(" ham "), is(true));
+	}
+	
+	@Test
+	public void asPredicateWithAnythingMatcherReturnsPredicate()
+	{
+		Predicate<String> actual = asPredicate(anything());
+		
+		assertThat(actual.test(null), is(true));
+	}
+	
+	@Test
+	public void asPredicateWithMatcherReturnsPredicate()
+	{
+		Predicate<String> actual = asPredicate(startsWith("h"));
+		
+		assertThat(actual.test("jam"), is(false));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void asPredicateWithNullMatcherThrowsException()
+	{
+		asPredicate(null);
+	}
+	
+	@Test
+	public void indexReturnsIndex()
+	{
+		MatcherIndex<String> actual = index(asList("x", "y"));
+		
+		assertThat(actual.findAll(equalTo("y")), is(asList("y")));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void indexWithNullCollectionThrowsException()
+	{
+		index(null);
+	}
+	
+	@Test
+	public void diffEqualToWithTextReturnsMatcher()
+	{
+		Matcher<CharSequence> actual = diffEqualTo("x\ny");
+		
+		assertThat(actual.matches("x\ny"), is(true));
+	}
+	
+	@Test
+	public void diffEqualToWithListReturnsMatcher()
+	{
+		Matcher<List<String>> actual = diffEqualTo(asList("x", "y"));
+		
+		assertThat(actual.matches(asList("x", "y")), is(true));
+	}
+	
+	@Test
+	public void diffEqualToWithArrayReturnsMatcher()
+	{
+		Matcher<String[]> actual = diffEqualTo(new String[] {"x", "y"});
+		
+		assertThat(actual.matches(new String[] {"x", "y"}), is(true));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void diffEqualToWithNullTextThrowsException()
+	{
+		diffEqualTo((CharSequence) null);
+	}
+	
+	@Test
+	public void cachedReturnsSameMatcherForEqualArgument()
+	{
+		Function<String, Matcher<String>> factory = cached(prefix -> startsWith(prefix));
+		
+		Matcher<String> expected = factory.apply("x");
+		
+		assertThat(factory.apply(new String("x")), is(sameInstance(expected)));
+	}
+	
+	@Test
+	public void cachedWithMaximumSizeReturnsSameMatcherForEqualArgument()
+	{
+		Function<String, Matcher<String>> factory = cached(prefix -> startsWith(prefix), 1);
+		
+		Matcher<String> expected = factory.apply("x");
+		
+		assertThat(factory.apply(new String("x")), is(sameInstance(expected)));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void cachedWithNullFactoryThrowsException()
+	{
+		cached(null);
+	}
 }
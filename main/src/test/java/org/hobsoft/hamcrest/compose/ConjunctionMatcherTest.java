@@ -13,17 +13,35 @@
  */
 package org.hobsoft.hamcrest.compose;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
 import org.hamcrest.StringDescription;
 import org.junit.Test;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 
 import static org.hamcrest.CoreMatchers.anything;
 import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.StringDescription.asString;
 import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasAsyncFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.memoize;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.withCost;
 import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
 import static org.junit.Assert.assertThat;
 
@@ -32,6 +50,12 @@ import static org.junit.Assert.assertThat;
  */
 public class ConjunctionMatcherTest
 {
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	
 	// ----------------------------------------------------------------------------------------------------------------
 	// tests
 	// ----------------------------------------------------------------------------------------------------------------
@@ -127,6 +151,54 @@ public class ConjunctionMatcherTest
 		assertThat(description.toString(), is("anything"));
 	}
 	
+	@Test
+	public void describeToWhenNestedDescribesNestedMatchers()
+	{
+		StringDescription description = new StringDescription();
+		
+		compose("x", anything("y")).and(compose("z", anything("w"))).describeTo(description);
+		
+		assertThat(description.toString(), is("x y\n          and z w"));
+	}
+	
+	@Test
+	public void describeToWhenDescribedTwiceDescribesMatchersOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		ConjunctionMatcher<Object> matcher = compose("x", describing("y", count));
+		
+		matcher.describeTo(new StringDescription());
+		StringDescription description = new StringDescription();
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("x y"));
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void describeToWhenFrozenAfterDescribedDoesNotDescribeMatchersAgain()
+	{
+		AtomicInteger count = new AtomicInteger();
+		ConjunctionMatcher<Object> matcher = compose("x", describing("y", count));
+		matcher.describeTo(new StringDescription());
+		
+		StringDescription description = new StringDescription();
+		matcher.freeze().describeTo(description);
+		
+		assertThat(description.toString(), is("x y"));
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void describeToWhenNoneDoesNotDescribeMatchers()
+	{
+		AtomicInteger count = new AtomicInteger();
+		
+		compose("x", describing("y", count)).describeTo(Description.NONE);
+		
+		assertThat(count.get(), is(0));
+	}
+	
 	@Test
 	public void matchesWhenMatchersMatchReturnsTrue()
 	{
@@ -192,4 +264,609 @@ public class ConjunctionMatcherTest
 		assertThat(description.toString(), is("x was \"z\"\n"
 			+ "          and y was \"z\""));
 	}
+	
+	@Test
+	public void freezeDescribesAsOriginal()
+	{
+		ConjunctionMatcher<Object> matcher = compose("x", compose("y", anything("z"))).and(compose(anything("w")));
+		
+		ConjunctionMatcher<Object> actual = matcher.freeze();
+		
+		assertThat(asString(actual), is(asString(matcher)));
+	}
+	
+	@Test
+	public void freezePreservesMatcher()
+	{
+		ConjunctionMatcher<String> matcher = compose(compose(startsWith("x")), endsWith("y"));
+		
+		matcher.freeze();
+		
+		assertThat(matcher.matches("xz"), is(false));
+	}
+	
+	@Test
+	public void freezeWhenNestedMatchersMatchReturnsTrue()
+	{
+		ConjunctionMatcher<String> matcher = compose(compose(startsWith("x")), compose(anything(), endsWith("y")));
+		
+		assertThat(matcher.freeze().matches("xy"), is(true));
+	}
+	
+	@Test
+	public void freezeWhenNestedMatcherDoesNotMatchReturnsFalse()
+	{
+		ConjunctionMatcher<String> matcher = compose(compose(startsWith("x")), compose(anything(), endsWith("y")));
+		
+		assertThat(matcher.freeze().matches("xz"), is(false));
+	}
+	
+	@Test
+	public void freezeWhenEmptyCompositionsReturnsTrue()
+	{
+		ConjunctionMatcher<String> matcher = compose(compose(emptyList()), anything());
+		
+		assertThat(matcher.freeze().matches("x"), is(true));
+	}
+	
+	@Test
+	public void freezeWhenNullReturnsFalse()
+	{
+		ConjunctionMatcher<String> matcher = compose(compose(anything()));
+		
+		assertThat(matcher.freeze().matches(null), is(false));
+	}
+	
+	@Test
+	public void freezeWhenNestedMatchersDoNotMatchDescribesMismatchAsOriginal()
+	{
+		ConjunctionMatcher<Object> matcher = compose(nothing("x"), compose("y", nothing("z")), anything());
+		StringDescription description = new StringDescription();
+		
+		matcher.freeze().describeMismatch("w", description);
+		
+		assertThat(description.toString(), is("x was \"w\"\n"
+			+ "          and z was \"w\""));
+	}
+	
+	@Test
+	public void freezeThenAndReturnsCompositeMatcher()
+	{
+		ConjunctionMatcher<String> matcher = compose(compose(startsWith("x"))).freeze();
+		
+		ConjunctionMatcher<String> actual = matcher.and(endsWith("y"));
+		
+		assertThat(actual.matches("xz"), is(false));
+	}
+	
+	@Test
+	public void equalsWhenEqualReturnsTrue()
+	{
+		Matcher<String> matcher = startsWith("y");
+		
+		assertThat(compose("x", matcher).equals(compose("x", matcher)), is(true));
+	}
+	
+	@Test
+	public void equalsWhenFrozenReturnsTrue()
+	{
+		ConjunctionMatcher<String> matcher = compose("x", startsWith("y"));
+		
+		assertThat(matcher.freeze().equals(matcher), is(true));
+	}
+	
+	@Test
+	public void equalsWhenDifferentDescriptionReturnsFalse()
+	{
+		Matcher<String> matcher = startsWith("y");
+		
+		assertThat(compose("x", matcher).equals(compose("z", matcher)), is(false));
+	}
+	
+	@Test
+	public void equalsWhenDifferentMatchersReturnsFalse()
+	{
+		assertThat(compose("x", startsWith("y")).equals(compose("x", startsWith("y"))), is(false));
+	}
+	
+	@Test
+	public void equalsWhenNullReturnsFalse()
+	{
+		assertThat(compose("x").equals(null), is(false));
+	}
+	
+	@Test
+	public void hashCodeWhenEqualReturnsEqual()
+	{
+		Matcher<String> matcher = startsWith("y");
+		
+		assertThat(compose("x", matcher).hashCode(), is(compose("x", matcher).hashCode()));
+	}
+	
+	@Test
+	public void matchesWhenAsyncFeaturesStartedReturnsTrueWithoutWaitingInTurn()
+	{
+		CompletableFuture<Integer> first = new CompletableFuture<>();
+		
+		Matcher<String> matcher = compose(
+			hasAsyncFeature("x", s -> first, equalTo(1), TIMEOUT),
+			hasAsyncFeature("y", s -> completedFuture(first.complete(s.length())), anything(), TIMEOUT)
+		);
+		
+		assertThat(matcher.matches("z"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenFrozenNestedAsyncFeaturesStartedReturnsTrueWithoutWaitingInTurn()
+	{
+		CompletableFuture<Integer> first = new CompletableFuture<>();
+		Matcher<String> nested = compose(hasAsyncFeature("x", s -> first, equalTo(1), TIMEOUT));
+		
+		Matcher<String> matcher = compose(
+			nested,
+			hasAsyncFeature("y", (String s) -> completedFuture(first.complete(s.length())), anything(), TIMEOUT)
+		).freeze();
+		
+		assertThat(matcher.matches("z"), is(true));
+	}
+	
+	@Test
+	public void describeMismatchWhenAsyncFeatureTimesOutDescribesTimeout()
+	{
+		Matcher<String> matcher = compose(
+			hasAsyncFeature("x", s -> new CompletableFuture<Integer>(), anything(), Duration.ofMillis(10)),
+			nothing("y")
+		);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("z", description);
+		
+		assertThat(description.toString(), is("x timed out after 10 ms\n"
+			+ "          and y was \"z\""));
+	}
+	
+	@Test
+	public void matchesWhenEarlierMatcherFailsCancelsAsyncFeature()
+	{
+		CompletableFuture<Integer> feature = new CompletableFuture<>();
+		Matcher<String> matcher = compose(
+			hasAsyncFeature("x", s -> feature, anything(), TIMEOUT),
+			nothing("y")
+		);
+		
+		matcher.matches("z");
+		
+		assertThat(feature.isCancelled(), is(true));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesDoesNotStartCompletedAsyncFeatureAgain()
+	{
+		AtomicInteger starts = new AtomicInteger();
+		Matcher<String> matcher = compose(
+			hasAsyncFeature("x", s -> completedFuture(starts.incrementAndGet()), equalTo(1), TIMEOUT),
+			nothing("y")
+		);
+		StringDescription description = new StringDescription();
+		
+		matcher.matches("z");
+		matcher.describeMismatch("z", description);
+		
+		assertThat(asList(description.toString(), starts.get()), is(asList("y was \"z\"", 1)));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesStartsCancelledAsyncFeatureAgain()
+	{
+		AtomicInteger starts = new AtomicInteger();
+		Matcher<String> matcher = compose(
+			hasAsyncFeature("x", s -> (starts.incrementAndGet() == 1) ? new CompletableFuture<Integer>()
+				: completedFuture(2), equalTo(1), TIMEOUT),
+			nothing("y")
+		);
+		StringDescription description = new StringDescription();
+		
+		matcher.matches("z");
+		matcher.describeMismatch("z", description);
+		
+		assertThat(asList(description.toString(), starts.get()), is(asList("x was <2>\n"
+			+ "          and y was \"z\"", 2)));
+	}
+	
+	@Test
+	public void matchesWhenFeaturePathsSharePrefixExtractsPrefixOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		FeaturePath<String, String> prefix = path("x", s -> count.incrementAndGet() + s);
+		
+		Matcher<String> matcher = compose(
+			hasFeature(prefix.then("y", String::length), equalTo(2)),
+			hasFeature(prefix.then("z", String::isEmpty), equalTo(false))
+		);
+		
+		matcher.matches("a");
+		
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void matchesWhenSeparatePathsOfSameFunctionExtractsPrefixOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		SerializableFunction<String, String> function = s -> count.incrementAndGet() + s;
+		
+		Matcher<String> matcher = compose(
+			hasFeature(path(function).then(String::length), equalTo(2)),
+			hasFeature(path(function).then(String::isEmpty), equalTo(false))
+		);
+		
+		matcher.matches("a");
+		
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeaturePathsSharePrefixDescribesMismatches()
+	{
+		FeaturePath<String, String> prefix = path("x", (String s) -> (String) null);
+		
+		Matcher<String> matcher = compose(
+			hasFeature(prefix.then("y", String::length), anything()),
+			hasFeature(prefix.then("z", String::isEmpty), anything())
+		);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(), is("x was null\n"
+			+ "          and x was null"));
+	}
+	
+	@Test
+	public void matchesWhenFrozenNestedFeaturePathsSharePrefixExtractsPrefixOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		FeaturePath<String, String> prefix = path("x", s -> count.incrementAndGet() + s);
+		Matcher<String> nested = compose(hasFeature(prefix.then("y", String::length), equalTo(2)));
+		
+		Matcher<String> matcher = compose(
+			nested,
+			hasFeature(prefix.then("z", String::isEmpty), equalTo(false))
+		).freeze();
+		
+		matcher.matches("a");
+		
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void memoizedWhenMatchedAgainReturnsCachedResult()
+	{
+		AtomicInteger count = new AtomicInteger();
+		Matcher<String> matcher = compose(hasFeature("x", (String s) -> count.incrementAndGet(), anything()))
+			.memoized();
+		String actual = "y";
+		
+		matcher.matches(actual);
+		matcher.matches(actual);
+		
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void memoizedDescribesAsOriginal()
+	{
+		ConjunctionMatcher<String> matcher = compose("x", equalTo("y")).and(equalTo("z"));
+		
+		assertThat(asString(matcher.memoized(1)), is(asString(matcher)));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void memoizedWithZeroMaximumSizeThrowsException()
+	{
+		compose(equalTo("x")).memoized(0);
+	}
+	
+	@Test
+	public void matchesWhenMatchersShareMemoizedFunctionAppliesItOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		SerializableFunction<String, Integer> function = memoize(s -> count.incrementAndGet());
+		ConjunctionMatcher<String> matcher = compose(hasFeature(function, equalTo(1)))
+			.and(compose(hasFeature(function, equalTo(1))));
+		
+		assertThat(matcher.matches("x"), is(true));
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void matchesWhenMatchersShareMemoizedFunctionAppliesItOncePerMatch()
+	{
+		AtomicInteger count = new AtomicInteger();
+		SerializableFunction<String, Integer> function = memoize(s -> count.incrementAndGet());
+		ConjunctionMatcher<String> matcher = compose(hasFeature(function, anything()))
+			.and(hasFeature(function, anything()));
+		
+		matcher.matches("x");
+		matcher.matches("x");
+		
+		assertThat(count.get(), is(2));
+	}
+	
+	@Test
+	public void describeMismatchWhenMatchersShareMemoizedFunctionDescribesMismatches()
+	{
+		SerializableFunction<String, Integer> function = memoize(String::length);
+		ConjunctionMatcher<String> matcher = compose(hasFeature(function, equalTo(1)))
+			.and(hasFeature(function, equalTo(2)));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("xyz", description);
+		
+		assertThat(description.toString(), is("length was <3>\n          and length was <3>"));
+	}
+	
+	@Test
+	public void asPredicateWhenMatchersShareMemoizedFunctionAppliesItOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		SerializableFunction<String, Integer> function = memoize(s -> count.incrementAndGet());
+		ConjunctionMatcher<String> matcher = compose(hasFeature(function, equalTo(1)))
+			.and(hasFeature(function, equalTo(1)));
+		
+		assertThat(matcher.asPredicate().test("x"), is(true));
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void matchesBatchReturnsWhetherEachObjectMatches()
+	{
+		ConjunctionMatcher<String> matcher = compose(hasFeature("x", String::length, equalTo(2)))
+			.and(compose(startsWith("a")));
+		
+		boolean[] results = matcher.matchesBatch(asList("ab", "ba", "abc", null));
+		
+		assertThat(results, is(new boolean[] {true, false, false, false}));
+	}
+	
+	@Test
+	public void matchesBatchWhenNoMatchersReturnsTrueForEachObject()
+	{
+		assertThat(compose().matchesBatch(asList("x", "y")), is(new boolean[] {true, true}));
+	}
+	
+	@Test
+	public void matchesBatchWhenMatchersShareMemoizedFunctionAppliesItOncePerObject()
+	{
+		AtomicInteger count = new AtomicInteger();
+		SerializableFunction<String, Integer> function = memoize(s -> count.incrementAndGet());
+		ConjunctionMatcher<String> matcher = compose(hasFeature(function, anything()))
+			.and(hasFeature(function, anything()));
+		
+		matcher.matchesBatch(asList("x", "y"));
+		
+		assertThat(count.get(), is(2));
+	}
+	
+	@Test
+	public void matchesBatchByChildReturnsFailuresOfEachLeafMatcher()
+	{
+		ConjunctionMatcher<String> matcher = compose(hasFeature("x", String::length, equalTo(2)))
+			.and(compose(startsWith("a")));
+		
+		BatchResult result = matcher.matchesBatchByChild(asList("ab", "ba", "abc"));
+		
+		assertThat(asList(result.getFailures(0), result.getFailures(1), result.getFailures()),
+			is(asList(BitSet.valueOf(new long[] {4}), BitSet.valueOf(new long[] {2}), BitSet.valueOf(new long[] {6}))));
+	}
+	
+	@Test
+	public void matchesBatchByChildReturnsLeafMatchers()
+	{
+		Matcher<String> matcher1 = startsWith("a");
+		Matcher<String> matcher2 = startsWith("b");
+		
+		BatchResult result = compose(matcher1).and(compose(matcher2)).matchesBatchByChild(asList("a"));
+		
+		assertThat(result.getMatchers(), is(asList(matcher1, matcher2)));
+	}
+	
+	@Test
+	public void matchesBatchByChildWhenMatchersShareMemoizedFunctionAppliesItOncePerObject()
+	{
+		AtomicInteger count = new AtomicInteger();
+		SerializableFunction<String, Integer> function = memoize(s -> count.incrementAndGet());
+		ConjunctionMatcher<String> matcher = compose(hasFeature(function, anything()))
+			.and(hasFeature(function, anything()));
+		
+		matcher.matchesBatchByChild(asList("x", "y"));
+		
+		assertThat(count.get(), is(2));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void matchesBatchByChildWithNullThrowsException()
+	{
+		compose().matchesBatchByChild(null);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void matchesBatchWithNullThrowsException()
+	{
+		compose().matchesBatch(null);
+	}
+	
+	@Test
+	public void asPredicateWhenMatchersMatchReturnsTrue()
+	{
+		ConjunctionMatcher<String> matcher = compose(startsWith("h")).and(endsWith("m"));
+		
+		assertThat(matcher.asPredicate().test("ham"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWhenMatcherDoesNotMatchReturnsFalse()
+	{
+		ConjunctionMatcher<String> matcher = compose(startsWith("h")).and(endsWith("m"));
+		
+		assertThat(matcher.asPredicate().test("hat"), is(false));
+	}
+	
+	@Test
+	public void asPredicateWhenNoMatchersReturnsTrue()
+	{
+		ConjunctionMatcher<String> matcher = compose(emptyList());
+		
+		assertThat(matcher.asPredicate().test("ham"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWhenNullReturnsFalse()
+	{
+		ConjunctionMatcher<String> matcher = compose(emptyList());
+		
+		assertThat(matcher.asPredicate().test(null), is(false));
+	}
+	
+	@Test
+	public void asPredicateWhenNestedMatcherDoesNotMatchReturnsFalse()
+	{
+		ConjunctionMatcher<String> matcher = compose(startsWith("h")).and(compose(endsWith("m")));
+		
+		assertThat(matcher.asPredicate().test("hat"), is(false));
+	}
+	
+	@Test
+	public void asPredicateWhenMatcherDoesNotMatchDoesNotTestSubsequentMatchers()
+	{
+		AtomicInteger count = new AtomicInteger();
+		ConjunctionMatcher<String> matcher = compose(hasFeature("x", String::length, equalTo(2)))
+			.and(hasFeature("y", (String s) -> count.incrementAndGet(), anything()));
+		
+		matcher.asPredicate().test("ham");
+		
+		assertThat(count.get(), is(0));
+	}
+	
+	@Test
+	public void asPredicateWhenFeaturePathsMatchReturnsTrue()
+	{
+		FeaturePath<String, String> prefix = path("x", String::trim);
+		ConjunctionMatcher<String> matcher = compose(hasFeature(prefix.then("y", String::length), equalTo(3)))
+			.and(hasFeature(prefix.then("z", String::isEmpty), equalTo(false)));
+		
+		assertThat(matcher.asPredicate().test(" ham "), is(true));
+	}
+	
+	@Test
+	public void asPredicateWhenAsyncFeatureDoesNotMatchReturnsFalse()
+	{
+		ConjunctionMatcher<String> matcher = compose(hasAsyncFeature("x", (String s) -> completedFuture(s.length()),
+			equalTo(2), TIMEOUT));
+		
+		assertThat(matcher.asPredicate().test("ham"), is(false));
+	}
+	
+	@Test
+	public void matchesEvaluatesCheapestMatchersFirst()
+	{
+		List<String> evaluated = new ArrayList<>();
+		ConjunctionMatcher<String> matcher = compose(withCost(evaluating("x", evaluated), Cost.HIGH))
+			.and(evaluating("y", evaluated))
+			.and(withCost(evaluating("z", evaluated), Cost.LOW));
+		
+		matcher.matches("w");
+		
+		assertThat(evaluated, is(asList("z", "y", "x")));
+	}
+	
+	@Test
+	public void matchesWhenCheapMatcherDoesNotMatchDoesNotEvaluateExpensiveMatchers()
+	{
+		List<String> evaluated = new ArrayList<>();
+		ConjunctionMatcher<String> matcher = compose(withCost(evaluating("x", evaluated), Cost.HIGH))
+			.and(hasFeature("y", String::length, equalTo(2)));
+		
+		assertThat(matcher.matches("w"), is(false));
+		assertThat(evaluated, is(emptyList()));
+	}
+	
+	@Test
+	public void matchesWhenNestedCompositionIsExpensiveEvaluatesItLast()
+	{
+		List<String> evaluated = new ArrayList<>();
+		ConjunctionMatcher<String> matcher = compose(compose(withCost(evaluating("x", evaluated), Cost.HIGH)))
+			.and(evaluating("y", evaluated));
+		
+		matcher.matches("w");
+		
+		assertThat(evaluated, is(asList("y", "x")));
+	}
+	
+	@Test
+	public void describeMismatchEvaluatesMatchersInComposedOrder()
+	{
+		List<String> evaluated = new ArrayList<>();
+		ConjunctionMatcher<String> matcher = compose(withCost(evaluating("x", evaluated), Cost.HIGH))
+			.and(withCost(evaluating("y", evaluated), Cost.LOW));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("w", description);
+		
+		assertThat(evaluated, is(asList("x", "y")));
+	}
+	
+	@Test
+	public void asPredicateTestsCheapestMatchersFirst()
+	{
+		List<String> evaluated = new ArrayList<>();
+		ConjunctionMatcher<String> matcher = compose(withCost(evaluating("x", evaluated), Cost.HIGH))
+			.and(withCost(evaluating("y", evaluated), Cost.LOW));
+		
+		matcher.asPredicate().test("w");
+		
+		assertThat(evaluated, is(asList("y", "x")));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static Matcher<Object> describing(String description, AtomicInteger count)
+	{
+		return new BaseMatcher<Object>()
+		{
+			@Override
+			public boolean matches(Object actual)
+			{
+				return true;
+			}
+			
+			@Override
+			public void describeTo(Description target)
+			{
+				count.incrementAndGet();
+				target.appendText(description);
+			}
+		};
+	}
+	
+	private static Matcher<String> evaluating(String name, List<String> evaluated)
+	{
+		return new BaseMatcher<String>()
+		{
+			@Override
+			public boolean matches(Object actual)
+			{
+				evaluated.add(name);
+				return true;
+			}
+			
+			@Override
+			public void describeTo(Description description)
+			{
+				description.appendText(name);
+			}
+		};
+	}
 }
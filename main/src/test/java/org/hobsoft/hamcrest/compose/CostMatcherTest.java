@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.StringDescription.asString;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code CostMatcher}.
+ */
+public class CostMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullMatcherThrowsException()
+	{
+		new CostMatcher<>(null, Cost.LOW);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullCostThrowsException()
+	{
+		new CostMatcher<>(equalTo("x"), null);
+	}
+	
+	@Test
+	public void matchesWhenMatcherMatchesReturnsTrue()
+	{
+		CostMatcher<String> matcher = new CostMatcher<>(equalTo("x"), Cost.HIGH);
+		
+		assertThat(matcher.matches("x"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenMatcherDoesNotMatchReturnsFalse()
+	{
+		CostMatcher<String> matcher = new CostMatcher<>(equalTo("x"), Cost.HIGH);
+		
+		assertThat(matcher.matches("y"), is(false));
+	}
+	
+	@Test
+	public void describeToDescribesMatcher()
+	{
+		CostMatcher<String> matcher = new CostMatcher<>(equalTo("x"), Cost.HIGH);
+		
+		assertThat(asString(matcher), is("\"x\""));
+	}
+	
+	@Test
+	public void describeMismatchDescribesMatcherMismatch()
+	{
+		CostMatcher<String> matcher = new CostMatcher<>(nothing("x"), Cost.HIGH);
+		Description description = new StringDescription();
+		
+		matcher.describeMismatch("y", description);
+		
+		assertThat(description.toString(), is("x was \"y\""));
+	}
+	
+	@Test
+	public void getCostReturnsCost()
+	{
+		CostMatcher<String> matcher = new CostMatcher<>(equalTo("x"), Cost.HIGH);
+		
+		assertThat(matcher.getCost(), is(Cost.HIGH));
+	}
+	
+	@Test
+	public void equalsWhenEqualReturnsTrue()
+	{
+		Matcher<String> matcher = equalTo("x");
+		CostMatcher<String> matcher1 = new CostMatcher<>(matcher, Cost.HIGH);
+		CostMatcher<String> matcher2 = new CostMatcher<>(matcher, Cost.HIGH);
+		
+		assertThat(matcher1.equals(matcher2), is(true));
+	}
+	
+	@Test
+	public void equalsWhenDifferentCostReturnsFalse()
+	{
+		Matcher<String> matcher = equalTo("x");
+		CostMatcher<String> matcher1 = new CostMatcher<>(matcher, Cost.HIGH);
+		CostMatcher<String> matcher2 = new CostMatcher<>(matcher, Cost.LOW);
+		
+		assertThat(matcher1.equals(matcher2), is(false));
+	}
+	
+	@Test
+	public void hashCodeWhenEqualReturnsEqual()
+	{
+		Matcher<String> matcher = equalTo("x");
+		CostMatcher<String> matcher1 = new CostMatcher<>(matcher, Cost.HIGH);
+		CostMatcher<String> matcher2 = new CostMatcher<>(matcher, Cost.HIGH);
+		
+		assertThat(matcher1.hashCode(), is(matcher2.hashCode()));
+	}
+}
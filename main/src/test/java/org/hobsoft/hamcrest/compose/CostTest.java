@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.diffEqualTo;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasAsyncFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.streamHasSize;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.withCost;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.withTimeout;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Cost}.
+ */
+public class CostTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void ofWithCostMatcherReturnsCost()
+	{
+		assertThat(Cost.of(withCost(equalTo("x"), Cost.HIGH)), is(Cost.HIGH));
+	}
+	
+	@Test
+	public void ofWithEqualityMatchersReturnsLow()
+	{
+		assertThat(Cost.of(equalTo("x")), is(Cost.LOW));
+		assertThat(Cost.of(sameInstance("x")), is(Cost.LOW));
+		assertThat(Cost.of(nullValue()), is(Cost.LOW));
+		assertThat(Cost.of(instanceOf(String.class)), is(Cost.LOW));
+		assertThat(Cost.of(anything()), is(Cost.LOW));
+	}
+	
+	@Test
+	public void ofWithOtherMatcherReturnsMedium()
+	{
+		assertThat(Cost.of(not(startsWith("x"))), is(Cost.MEDIUM));
+	}
+	
+	@Test
+	public void ofWithExpensiveMatchersReturnsHigh()
+	{
+		assertThat(Cost.of(hasAsyncFeature("x", (String s) -> completedFuture(s), anything(), Duration.ofSeconds(1))),
+			is(Cost.HIGH));
+		assertThat(Cost.of(streamHasSize(1)), is(Cost.HIGH));
+		assertThat(Cost.of(diffEqualTo("x")), is(Cost.HIGH));
+		assertThat(Cost.of(withTimeout(equalTo("x"), Duration.ofSeconds(1))), is(Cost.HIGH));
+	}
+	
+	@Test
+	public void ofWithFeatureMatcherReturnsCostOfFeatureMatcher()
+	{
+		assertThat(Cost.of(hasFeature("x", String::length, equalTo(1))), is(Cost.LOW));
+	}
+	
+	@Test
+	public void ofWithFeaturePathMatcherReturnsCostOfFeatureMatcher()
+	{
+		assertThat(Cost.of(hasFeature(path("x", String::trim), startsWith("y"))), is(Cost.MEDIUM));
+	}
+	
+	@Test
+	public void ofWithCompositeMatcherReturnsHighestCost()
+	{
+		assertThat(Cost.of(compose(equalTo("x")).and(withCost(equalTo("y"), Cost.HIGH))), is(Cost.HIGH));
+	}
+	
+	@Test
+	public void ofWithEmptyCompositeMatcherReturnsLow()
+	{
+		assertThat(Cost.of(compose()), is(Cost.LOW));
+	}
+}
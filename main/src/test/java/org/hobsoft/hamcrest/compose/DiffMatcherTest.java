@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.diffEqualTo;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code DiffMatcher}.
+ */
+public class DiffMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void describeToWhenShortDescribesValue()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo("x\ny").describeTo(description);
+		
+		assertThat(description.toString(), is("equal to \"x\\ny\""));
+	}
+	
+	@Test
+	public void describeToWhenLongTextDescribesLineCount()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(lines(1, 100)).describeTo(description);
+		
+		assertThat(description.toString(), is("equal to 100 lines"));
+	}
+	
+	@Test
+	public void describeToWhenLongListDescribesElementCount()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(asList(lines(1, 100).split("\n"))).describeTo(description);
+		
+		assertThat(description.toString(), is("equal to 100 elements"));
+	}
+	
+	@Test
+	public void describeToWhenLongLineAbbreviatesValue()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(repeat('a', 1000)).describeTo(description);
+		
+		assertThat(description.toString(), is("equal to \"" + repeat('a', 79) + "..."));
+	}
+	
+	@Test
+	public void describeToWhenShortArrayDescribesValue()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(new Integer[] {1, 2}).describeTo(description);
+		
+		assertThat(description.toString(), is("equal to [<1>, <2>]"));
+	}
+	
+	@Test
+	public void matchesWhenEqualTextReturnsTrue()
+	{
+		assertThat(diffEqualTo("x").matches(new StringBuilder("x")), is(true));
+	}
+	
+	@Test
+	public void matchesWhenUnequalTextReturnsFalse()
+	{
+		assertThat(diffEqualTo("x").matches("y"), is(false));
+	}
+	
+	@Test
+	public void matchesWhenNullReturnsFalse()
+	{
+		assertThat(diffEqualTo("x").matches(null), is(false));
+	}
+	
+	@Test
+	public void matchesWhenEqualArrayReturnsTrue()
+	{
+		assertThat(diffEqualTo(new String[] {"x"}).matches(new String[] {"x"}), is(true));
+	}
+	
+	@Test
+	public void describeMismatchWhenChangedLineDescribesHunk()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo("a\nb\nc").describeMismatch("a\nx\nc", description);
+		
+		assertThat(description.toString(), is("differed:\n"
+			+ "@@ -1,3 +1,3 @@\n"
+			+ "  a\n"
+			+ "- b\n"
+			+ "+ x\n"
+			+ "  c"));
+	}
+	
+	@Test
+	public void describeMismatchWhenDistantChangesDescribesHunksWithContext()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(lines(1, 20)).describeMismatch(lines(1, 20).replace("\n3\n", "\nx\n").replace("18", "y"),
+			description);
+		
+		assertThat(description.toString(), is("differed:\n"
+			+ "@@ -1,6 +1,6 @@\n"
+			+ "  1\n"
+			+ "  2\n"
+			+ "- 3\n"
+			+ "+ x\n"
+			+ "  4\n"
+			+ "  5\n"
+			+ "  6\n"
+			+ "@@ -15,6 +15,6 @@\n"
+			+ "  15\n"
+			+ "  16\n"
+			+ "  17\n"
+			+ "- 18\n"
+			+ "+ y\n"
+			+ "  19\n"
+			+ "  20"));
+	}
+	
+	@Test
+	public void describeMismatchWhenNearbyChangesDescribesSingleHunk()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(lines(1, 10)).describeMismatch(lines(1, 10).replace("2\n", "").replace("8", "y"), description);
+		
+		assertThat(description.toString(), is("differed:\n"
+			+ "@@ -1,10 +1,9 @@\n"
+			+ "  1\n"
+			+ "- 2\n"
+			+ "  3\n"
+			+ "  4\n"
+			+ "  5\n"
+			+ "  6\n"
+			+ "  7\n"
+			+ "- 8\n"
+			+ "+ y\n"
+			+ "  9\n"
+			+ "  10"));
+	}
+	
+	@Test
+	public void describeMismatchWhenListDescribesElementValues()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(asList("a", "b")).describeMismatch(asList("a", "c", "b"), description);
+		
+		assertThat(description.toString(), is("differed:\n"
+			+ "@@ -1,2 +1,3 @@\n"
+			+ "  \"a\"\n"
+			+ "+ \"c\"\n"
+			+ "  \"b\""));
+	}
+	
+	@Test
+	public void describeMismatchWhenArrayDescribesElementValues()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(new Integer[] {1, 2}).describeMismatch(new Integer[] {1}, description);
+		
+		assertThat(description.toString(), is("differed:\n"
+			+ "@@ -1,2 +1,1 @@\n"
+			+ "  <1>\n"
+			+ "- <2>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenArrayOfArraysDescribesOnlyDifferentElements()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(new int[][] {{1}, {2}}).describeMismatch(new int[][] {{1}, {3}}, description);
+		
+		assertThat(description.toString(), is("differed:\n"
+			+ "@@ -1,2 +1,2 @@\n"
+			+ "  [<1>]\n"
+			+ "- [<2>]\n"
+			+ "+ [<3>]"));
+	}
+	
+	@Test
+	public void describeMismatchWhenManyChangesTruncatesDiff()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(lines(1, 1000)).describeMismatch(lines(1, 1000).replace("5\n", "x\n"), description);
+		
+		assertThat(description.toString().endsWith("\n..."), is(true));
+	}
+	
+	@Test
+	public void describeMismatchWhenLargeHunkTruncatesDiff()
+	{
+		StringDescription description = new StringDescription();
+		
+		diffEqualTo(lines(1, 1000)).describeMismatch(lines(1, 1000).replace("\n", "x\n"), description);
+		
+		String[] lines = description.toString().split("\n");
+		assertThat(asList(lines.length, lines[lines.length - 1]), is(asList(103, "...")));
+	}
+	
+	@Test
+	public void describeMismatchWhenLongLineAbbreviatesAroundDifference()
+	{
+		StringDescription description = new StringDescription();
+		String expected = repeat('a', 1000000) + repeat('b', 1000000);
+		
+		diffEqualTo(expected).describeMismatch(expected.replace("ab", "ac"), description);
+		
+		assertThat(description.toString(), is("differed:\n"
+			+ "@@ -1,1 +1,1 @@\n"
+			+ "- ..." + repeat('a', 40) + repeat('b', 40) + "...\n"
+			+ "+ ..." + repeat('a', 40) + "c" + repeat('b', 39) + "..."));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeatureDescribesFeatureDiff()
+	{
+		Matcher<List<String>> matcher = hasFeature("text", list -> list.get(0), diffEqualTo("a\nb"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(asList("a\nc"), description);
+		
+		assertThat(description.toString(), is("text differed:\n"
+			+ "@@ -1,2 +1,2 @@\n"
+			+ "  a\n"
+			+ "- b\n"
+			+ "+ c"));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static String lines(int from, int to)
+	{
+		StringBuilder builder = new StringBuilder();
+		
+		for (int line = from; line <= to; line++)
+		{
+			builder.append(line).append(line < to ? "\n" : "");
+		}
+		
+		return builder.toString();
+	}
+	
+	private static String repeat(char c, int count)
+	{
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+}
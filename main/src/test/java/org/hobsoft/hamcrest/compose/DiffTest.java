@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Diff}.
+ */
+public class DiffTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void ofWhenEqualReturnsSingleRun()
+	{
+		Diff actual = Diff.of(asList("a", "b"), asList("a", "b"));
+		
+		assertThat(runs(actual), is("[0,0,2]"));
+	}
+	
+	@Test
+	public void ofWhenEmptyReturnsEmptyRun()
+	{
+		Diff actual = Diff.of(emptyList(), emptyList());
+		
+		assertThat(runs(actual), is("[0,0,0]"));
+	}
+	
+	@Test
+	public void ofWhenChangedReturnsRunsEitherSide()
+	{
+		Diff actual = Diff.of(asList("a", "b", "c"), asList("a", "x", "c"));
+		
+		assertThat(runs(actual), is("[0,0,1][2,2,1]"));
+	}
+	
+	@Test
+	public void ofWhenInsertedAtStartReturnsEmptyFirstRun()
+	{
+		Diff actual = Diff.of(asList("a", "b"), asList("x", "a", "b"));
+		
+		assertThat(runs(actual), is("[0,0,0][0,1,2]"));
+	}
+	
+	@Test
+	public void ofWhenDeletedAtEndReturnsEmptyLastRun()
+	{
+		Diff actual = Diff.of(asList("a", "b"), asList("a"));
+		
+		assertThat(runs(actual), is("[0,0,1][2,1,0]"));
+	}
+	
+	@Test
+	public void ofWhenNothingInCommonReturnsEmptyRuns()
+	{
+		Diff actual = Diff.of(asList("a", "b"), asList("x", "y", "z"));
+		
+		assertThat(runs(actual), is("[0,0,0][2,3,0]"));
+	}
+	
+	@Test
+	public void ofWhenMaxCostExceededReturnsSingleChange()
+	{
+		Diff actual = Diff.of(asList("a", "b", "c", "d"), asList("x", "b", "y", "d", "z"), false, 0);
+		
+		assertThat(runs(actual), is("[0,0,0][4,5,0]"));
+	}
+	
+	@Test
+	public void ofWhenDeepComparesArraysByContent()
+	{
+		Diff actual = Diff.of(asList(new int[] {1}, new int[] {2}), asList(new int[] {1}, new int[] {3}), true);
+		
+		assertThat(runs(actual), is("[0,0,1][2,2,0]"));
+	}
+	
+	@Test
+	public void ofReturnsLongestCommonSubsequence()
+	{
+		Random random = new Random(0);
+		
+		for (int iteration = 0; iteration < 1000; iteration++)
+		{
+			List<Integer> a = randomList(random);
+			List<Integer> b = randomList(random);
+			
+			Diff actual = Diff.of(a, b);
+			
+			assertThat(a + " " + b, commonLength(actual, a, b), is(lcsLength(a, b)));
+		}
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static String runs(Diff diff)
+	{
+		StringBuilder builder = new StringBuilder();
+		
+		for (int run = 0; run < diff.size(); run++)
+		{
+			builder.append(String.format("[%d,%d,%d]", diff.aStart(run), diff.bStart(run), diff.length(run)));
+		}
+		
+		return builder.toString();
+	}
+	
+	private static List<Integer> randomList(Random random)
+	{
+		List<Integer> list = new ArrayList<>();
+		int size = random.nextInt(20);
+		
+		for (int index = 0; index < size; index++)
+		{
+			list.add(random.nextInt(4));
+		}
+		
+		return list;
+	}
+	
+	private static int commonLength(Diff diff, List<?> a, List<?> b)
+	{
+		int length = 0;
+		
+		for (int run = 0; run < diff.size(); run++)
+		{
+			assertThat(a.subList(diff.aStart(run), diff.aEnd(run)), is(b.subList(diff.bStart(run), diff.bEnd(run))));
+			
+			length += diff.length(run);
+		}
+		
+		assertThat("start", diff.aStart(0) + diff.bStart(0), is(0));
+		assertThat("end a", diff.aEnd(diff.size() - 1), is(a.size()));
+		assertThat("end b", diff.bEnd(diff.size() - 1), is(b.size()));
+		
+		return length;
+	}
+	
+	private static int lcsLength(List<?> a, List<?> b)
+	{
+		int[][] lengths = new int[a.size() + 1][b.size() + 1];
+		
+		for (int i = a.size() - 1; i >= 0; i--)
+		{
+			for (int j = b.size() - 1; j >= 0; j--)
+			{
+				lengths[i][j] = a.get(i).equals(b.get(j)) ? lengths[i + 1][j + 1] + 1
+					: Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+			}
+		}
+		
+		return lengths[0][0];
+	}
+}
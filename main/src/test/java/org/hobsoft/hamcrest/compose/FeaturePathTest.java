@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code FeaturePath}.
+ */
+public class FeaturePathTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void getNameWhenNamedReturnsName()
+	{
+		FeaturePath<String, Integer> path = path("x", String::length);
+		
+		assertThat(path.getName(), is("x"));
+	}
+	
+	@Test
+	public void getNameWhenMethodReferenceReturnsMethodName()
+	{
+		FeaturePath<String, Integer> path = path(String::length);
+		
+		assertThat(path.getName(), is("length"));
+	}
+	
+	@Test
+	public void getNameWhenChainedReturnsDottedName()
+	{
+		FeaturePath<String, String> path = path("x", String::trim).then("y", String::toUpperCase).then(String::intern);
+		
+		assertThat(path.getName(), is("x.y.intern"));
+	}
+	
+	@Test
+	public void getKeyWhenSameMethodReferencesReturnsEqualKey()
+	{
+		assertThat(path(String::trim).then(String::length).getKey(),
+			is(path(String::trim).then(String::length).getKey()));
+	}
+	
+	@Test
+	public void getKeyWhenDifferentPrefixReturnsDifferentKey()
+	{
+		assertThat(path(String::trim).then(String::length).getKey()
+			.equals(path(String::intern).then(String::length).getKey()), is(false));
+	}
+	
+	@Test
+	public void toStringReturnsName()
+	{
+		FeaturePath<String, String> path = path("x", String::trim).then("y", String::toUpperCase);
+		
+		assertThat(path.toString(), is("x.y"));
+	}
+	
+	@Test
+	public void thenDoesNotModifyPath()
+	{
+		FeaturePath<String, String> path = path("x", String::trim);
+		
+		path.then("y", String::toUpperCase);
+		
+		assertThat(path.getName(), is("x"));
+	}
+	
+	@Test
+	public void applyReturnsFeature()
+	{
+		FeaturePath<String, Integer> path = path("x", String::trim).then("y", String::length);
+		
+		assertThat(path.apply(" z "), is(1));
+	}
+	
+	@Test
+	public void applyWhenIntermediateFeatureNullReturnsNull()
+	{
+		FeaturePath<String, Integer> path = path("x", (String s) -> (String) null).then("y", String::length);
+		
+		assertThat(path.apply("z"), is(nullValue()));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void pathWithNullFunctionThrowsException()
+	{
+		path("x", null);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void thenWithNullFunctionThrowsException()
+	{
+		path("x", String::trim).then("y", null);
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import org.hamcrest.Matcher;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.snapshot;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code FeatureSnapshot}.
+ */
+public class FeatureSnapshotTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void recordWritesFeatureNames() throws IOException
+	{
+		Path file = newFile();
+		
+		snapshot(file, String::length)
+			.withFeature("x", String::trim)
+			.withFeature("y", String::isEmpty)
+			.record(emptyList());
+		
+		assertThat(SnapshotFile.map(file).getFeatureNames(), is(asList("x", "y")));
+	}
+	
+	@Test
+	public void recordWritesFeatureValues() throws IOException
+	{
+		Path file = newFile();
+		
+		snapshot(file, (String s) -> s.charAt(0))
+			.withFeature("x", String::length)
+			.withFeature("y", String::isEmpty)
+			.record(asList("ab", "cde"));
+		
+		assertThat(SnapshotFile.map(file).find("c"), is(new String[] {"3", "false"}));
+	}
+	
+	@Test
+	public void recordWhenNullFeatureWritesNull() throws IOException
+	{
+		Path file = newFile();
+		
+		snapshot(file, String::length)
+			.withFeature("x", (String s) -> null)
+			.record(asList("a"));
+		
+		assertThat(SnapshotFile.map(file).find("1"), is(new String[] {"null"}));
+	}
+	
+	@Test
+	public void recordWhenSerializableFunctionWritesFeatureName() throws IOException
+	{
+		Path file = newFile();
+		
+		snapshot(file, String::length)
+			.withFeature(String::trim)
+			.record(emptyList());
+		
+		assertThat(SnapshotFile.map(file).getFeatureNames(), is(asList("trim")));
+	}
+	
+	@Test
+	public void recordWhenFeaturePathWritesPathName() throws IOException
+	{
+		Path file = newFile();
+		
+		snapshot(file, String::length)
+			.withFeature(path("x", String::trim).then("y", String::length))
+			.record(asList(" a "));
+		
+		SnapshotFile snapshotFile = SnapshotFile.map(file);
+		assertThat(snapshotFile.getFeatureNames(), is(asList("x.y")));
+		assertThat(snapshotFile.find("3"), is(new String[] {"1"}));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void recordWhenDuplicateKeysThrowsException() throws IOException
+	{
+		snapshot(newFile(), String::length)
+			.withFeature("x", String::trim)
+			.record(asList("a", "b"));
+	}
+	
+	@Test
+	public void withFeatureDoesNotModifySnapshot() throws IOException
+	{
+		Path file = newFile();
+		FeatureSnapshot<String> snapshot = snapshot(file, String::length);
+		
+		snapshot.withFeature("x", String::trim);
+		snapshot.record(emptyList());
+		
+		assertThat(SnapshotFile.map(file).getFeatureNames(), is(emptyList()));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void withFeatureWithNullNameThrowsException() throws IOException
+	{
+		snapshot(newFile(), String::length).withFeature(null, String::trim);
+	}
+	
+	@Test
+	public void matchesRecordedMatchesRecordedObject() throws IOException
+	{
+		FeatureSnapshot<String> snapshot = snapshot(newFile(), String::length)
+			.withFeature("x", String::trim);
+		snapshot.record(asList("a", "bc"));
+		
+		Matcher<String> matcher = snapshot.matchesRecorded();
+		
+		assertThat(matcher.matches("bc"), is(true));
+	}
+	
+	@Test
+	public void matchesRecordedDoesNotMatchChangedObject() throws IOException
+	{
+		FeatureSnapshot<String> snapshot = snapshot(newFile(), String::length)
+			.withFeature("x", String::trim);
+		snapshot.record(asList("a", "bc"));
+		
+		Matcher<String> matcher = snapshot.matchesRecorded();
+		
+		assertThat(matcher.matches("de"), is(false));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void matchesRecordedWhenDifferentFeaturesThrowsException() throws IOException
+	{
+		Path file = newFile();
+		snapshot(file, String::length).withFeature("x", String::trim).record(emptyList());
+		
+		snapshot(file, String::length).withFeature("y", String::trim).matchesRecorded();
+	}
+	
+	@Test(expected = UncheckedIOException.class)
+	public void matchesRecordedWhenNoFileThrowsException() throws IOException
+	{
+		Path file = temporaryFolder.getRoot().toPath().resolve("missing");
+		
+		snapshot(file, String::length).matchesRecorded();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private Path newFile() throws IOException
+	{
+		return temporaryFolder.newFile().toPath();
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code FeatureTrie}.
+ */
+public class FeatureTrieTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void ofWhenNoFeaturePathsReturnsNull()
+	{
+		FeatureTrie trie = FeatureTrie.of(new Matcher<?>[] {anything(), hasFeature(String::length, anything())});
+		
+		assertThat(trie, is(nullValue()));
+	}
+	
+	@Test
+	public void ofWhenNoSharedPrefixesReturnsNull()
+	{
+		FeatureTrie trie = FeatureTrie.of(new Matcher<?>[] {
+			hasFeature(path("x", String::trim), anything()),
+			hasFeature(path("y", String::trim), anything())
+		});
+		
+		assertThat(trie, is(nullValue()));
+	}
+	
+	@Test
+	public void ofWhenSharedPrefixReturnsTrie()
+	{
+		FeaturePath<String, String> prefix = path("x", String::trim);
+		
+		FeatureTrie trie = FeatureTrie.of(new Matcher<?>[] {
+			hasFeature(prefix.then("y", String::length), anything()),
+			hasFeature(prefix.then("z", String::isEmpty), anything())
+		});
+		
+		assertThat(trie, is(notNullValue()));
+	}
+	
+	@Test
+	public void ofWhenSeparatePathsOfSameMethodReferencesReturnsTrie()
+	{
+		FeatureTrie trie = FeatureTrie.of(new Matcher<?>[] {
+			hasFeature(path(String::trim).then(String::length), anything()),
+			hasFeature(path(String::trim).then(String::isEmpty), anything())
+		});
+		
+		assertThat(trie, is(notNullValue()));
+	}
+	
+	@Test
+	public void extractWhenSharedPrefixExtractsOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		FeaturePath<String, String> prefix = path("x", s -> count.incrementAndGet() + s);
+		FeatureTrie trie = FeatureTrie.of(new Matcher<?>[] {
+			hasFeature(prefix.then("y", String::length), anything()),
+			hasFeature(prefix.then("z", String::isEmpty), anything())
+		});
+		Object[] values = trie.newValues();
+		
+		trie.extract(prefix, "a", values);
+		Object actual = trie.extract(prefix, "a", values);
+		
+		assertThat(actual, is(equalTo("1a")));
+	}
+	
+	@Test
+	public void extractWhenUnsharedPrefixExtracts()
+	{
+		FeaturePath<String, String> prefix = path("x", String::trim);
+		FeaturePath<String, Integer> leaf = prefix.then("y", String::length);
+		FeatureTrie trie = FeatureTrie.of(new Matcher<?>[] {
+			hasFeature(leaf, anything()),
+			hasFeature(prefix.then("z", String::isEmpty), anything())
+		});
+		
+		Object actual = trie.extract(leaf, "ab", trie.newValues());
+		
+		assertThat(actual, is(equalTo(2)));
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasAsyncFeature;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code HasAsyncFeatureMatcher}.
+ */
+public class HasAsyncFeatureMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	
+	private static final Duration SHORT_TIMEOUT = Duration.ofMillis(10);
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void describeToDescribesMatcher()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> completedFuture(s.length()), anything("y"), TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("x y"));
+	}
+	
+	@Test
+	public void describeToWhenNoNameUsesMethodReference()
+	{
+		Matcher<String> matcher = hasAsyncFeature(HasAsyncFeatureMatcherTest::asyncLength, anything("y"), TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("asyncLength y"));
+	}
+	
+	@Test
+	public void matchesWhenFeatureMatcherMatchesReturnsTrue()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> completedFuture(s.length()), equalTo(1), TIMEOUT);
+		
+		assertThat(matcher.matches("z"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenFeatureMatcherDoesNotMatchReturnsFalse()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> completedFuture(s.length()), equalTo(2), TIMEOUT);
+		
+		assertThat(matcher.matches("z"), is(false));
+	}
+	
+	@Test
+	public void matchesWhenFeatureCompletesLaterReturnsTrue()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> CompletableFuture.supplyAsync(s::length), equalTo(1),
+			TIMEOUT);
+		
+		assertThat(matcher.matches("z"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenFeatureTimesOutReturnsFalse()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> new CompletableFuture<Integer>(), anything(),
+			SHORT_TIMEOUT);
+		
+		assertThat(matcher.matches("z"), is(false));
+	}
+	
+	@Test
+	public void matchesWhenFeatureFailsReturnsFalse()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> failedFuture(new IllegalStateException()), anything(),
+			TIMEOUT);
+		
+		assertThat(matcher.matches("z"), is(false));
+	}
+	
+	@Test
+	public void matchesWhenFunctionThrowsExceptionReturnsFalse()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> throwing(new IllegalStateException()), anything(),
+			TIMEOUT);
+		
+		assertThat(matcher.matches("z"), is(false));
+	}
+	
+	@Test
+	public void matchesTwiceAfterMismatchDoesNotStartFeatureAgain()
+	{
+		AtomicInteger starts = new AtomicInteger();
+		Matcher<String> matcher = hasAsyncFeature("x", s -> completedFuture(starts.incrementAndGet()), nothing("y"),
+			TIMEOUT);
+		
+		matcher.matches("z");
+		
+		assertThat(asList(matcher.matches("z"), starts.get()), is(asList(false, 1)));
+	}
+	
+	@Test
+	public void describeMismatchDescribesMismatch()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> completedFuture(s.length()), nothing("y"), TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(), is("x y was <1>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeatureTimesOutDescribesTimeout()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> new CompletableFuture<Integer>(), anything(),
+			SHORT_TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(), is("x timed out after 10 ms"));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeatureFailsDescribesFailure()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> failedFuture(new IllegalStateException("y")), anything(),
+			TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(), is("x failed with <java.lang.IllegalStateException: y>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenFunctionThrowsExceptionDescribesFailure()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> throwing(new IllegalStateException("y")), anything(),
+			TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(), is("x failed with <java.lang.IllegalStateException: y>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenFunctionReturnsNullDescribesFailure()
+	{
+		Matcher<String> matcher = hasAsyncFeature("x", s -> (CompletableFuture<Integer>) null, anything(), TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(),
+			is("x failed with <java.lang.IllegalStateException: feature function returned null>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeatureCancelledDescribesCancellation()
+	{
+		CompletableFuture<Integer> feature = new CompletableFuture<>();
+		feature.cancel(false);
+		Matcher<String> matcher = hasAsyncFeature("x", s -> feature, anything(), TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(), is("x was cancelled"));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesDoesNotStartFeatureAgain()
+	{
+		AtomicInteger starts = new AtomicInteger();
+		Matcher<String> matcher = hasAsyncFeature("x", s -> completedFuture(starts.incrementAndGet()), nothing("y"),
+			TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.matches("z");
+		matcher.describeMismatch("z", description);
+		
+		assertThat(asList(description.toString(), starts.get()), is(asList("x y was <1>", 1)));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void hasAsyncFeatureWithNullTimeoutThrowsException()
+	{
+		hasAsyncFeature("x", s -> completedFuture(s), anything(), null);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static CompletableFuture<Integer> asyncLength(String string)
+	{
+		return completedFuture(string.length());
+	}
+	
+	private static CompletableFuture<Integer> throwing(RuntimeException exception)
+	{
+		throw exception;
+	}
+	
+	private static CompletableFuture<Integer> failedFuture(Throwable throwable)
+	{
+		CompletableFuture<Integer> future = new CompletableFuture<>();
+		future.completeExceptionally(throwable);
+		return future;
+	}
+}
@@ -31,6 +31,12 @@ import static org.junit.Assert.assertThat;
  */
 public class HasFeatureMatcherTest
 {
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final Function<String, Integer> LENGTH = String::length;
+	
 	// ----------------------------------------------------------------------------------------------------------------
 	// tests
 	// ----------------------------------------------------------------------------------------------------------------
@@ -128,6 +134,81 @@ public class HasFeatureMatcherTest
 		assertThat(description.toString(), is("length y was <1>"));
 	}
 
+	@Test
+	public void equalsWhenEqualReturnsTrue()
+	{
+		Matcher<Object> featureMatcher = anything();
+		
+		Matcher<String> matcher1 = hasFeature("x", "y", LENGTH, featureMatcher);
+		Matcher<String> matcher2 = hasFeature("x", "y", LENGTH, featureMatcher);
+		
+		assertThat(matcher1.equals(matcher2), is(true));
+	}
+	
+	@Test
+	public void equalsWhenEqualMethodReferencesReturnsTrue()
+	{
+		Matcher<Object> featureMatcher = anything();
+		
+		Matcher<String> matcher1 = hasFeature(String::length, featureMatcher);
+		Matcher<String> matcher2 = hasFeature(String::length, featureMatcher);
+		
+		assertThat(matcher1.equals(matcher2), is(true));
+	}
+	
+	@Test
+	public void hashCodeWhenEqualMethodReferencesReturnsEqual()
+	{
+		Matcher<Object> featureMatcher = anything();
+		
+		Matcher<String> matcher1 = hasFeature(String::length, featureMatcher);
+		Matcher<String> matcher2 = hasFeature(String::length, featureMatcher);
+		
+		assertThat(matcher1.hashCode(), is(matcher2.hashCode()));
+	}
+	
+	@Test
+	public void equalsWhenDifferentNameReturnsFalse()
+	{
+		Matcher<Object> featureMatcher = anything();
+		
+		Matcher<String> matcher1 = hasFeature("x", "y", LENGTH, featureMatcher);
+		Matcher<String> matcher2 = hasFeature("x", "z", LENGTH, featureMatcher);
+		
+		assertThat(matcher1.equals(matcher2), is(false));
+	}
+	
+	@Test
+	public void equalsWhenDifferentFunctionReturnsFalse()
+	{
+		Matcher<Object> featureMatcher = anything();
+		
+		Matcher<String> matcher1 = hasFeature("x", "y", LENGTH, featureMatcher);
+		Matcher<String> matcher2 = hasFeature("x", "y", stringToLength("z"), featureMatcher);
+		
+		assertThat(matcher1.equals(matcher2), is(false));
+	}
+	
+	@Test
+	public void equalsWhenDifferentMatcherReturnsFalse()
+	{
+		Matcher<String> matcher1 = hasFeature("x", "y", LENGTH, anything());
+		Matcher<String> matcher2 = hasFeature("x", "y", LENGTH, anything());
+		
+		assertThat(matcher1.equals(matcher2), is(false));
+	}
+	
+	@Test
+	public void hashCodeWhenEqualReturnsEqual()
+	{
+		Matcher<Object> featureMatcher = anything();
+		
+		Matcher<String> matcher1 = hasFeature("x", "y", LENGTH, featureMatcher);
+		Matcher<String> matcher2 = hasFeature("x", "y", LENGTH, featureMatcher);
+		
+		assertThat(matcher1.hashCode(), is(matcher2.hashCode()));
+	}
+
 	// ----------------------------------------------------------------------------------------------------------------
 	// private methods
 	// ----------------------------------------------------------------------------------------------------------------
@@ -149,4 +230,28 @@ public class HasFeatureMatcherTest
 			}
 		};
 	}
+	
+	@Test
+	public void asPredicateWhenFeatureMatchesReturnsTrue()
+	{
+		HasFeatureMatcher<String, Integer> matcher = new HasFeatureMatcher<>("x", "y", LENGTH, equalTo(1));
+		
+		assertThat(matcher.asPredicate().test("a"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWhenFeatureDoesNotMatchReturnsFalse()
+	{
+		HasFeatureMatcher<String, Integer> matcher = new HasFeatureMatcher<>("x", "y", LENGTH, equalTo(2));
+		
+		assertThat(matcher.asPredicate().test("a"), is(false));
+	}
+	
+	@Test
+	public void asPredicateWhenNullReturnsFalse()
+	{
+		HasFeatureMatcher<String, Integer> matcher = new HasFeatureMatcher<>("x", "y", LENGTH, anything());
+		
+		assertThat(matcher.asPredicate().test(null), is(false));
+	}
 }
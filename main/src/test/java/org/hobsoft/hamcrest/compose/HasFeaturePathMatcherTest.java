@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code HasFeaturePathMatcher}.
+ */
+public class HasFeaturePathMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void describeToDescribesPathAndMatcher()
+	{
+		Matcher<String> matcher = hasFeature(path("x", String::trim).then("y", String::length), anything("z"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("x.y z"));
+	}
+	
+	@Test
+	public void matchesWhenFeatureMatcherMatchesReturnsTrue()
+	{
+		Matcher<String> matcher = hasFeature(path("x", String::trim).then("y", String::length), equalTo(1));
+		
+		assertThat(matcher.matches(" a "), is(true));
+	}
+	
+	@Test
+	public void matchesWhenFeatureMatcherDoesNotMatchReturnsFalse()
+	{
+		Matcher<String> matcher = hasFeature(path("x", String::trim).then("y", String::length), equalTo(2));
+		
+		assertThat(matcher.matches(" a "), is(false));
+	}
+	
+	@Test
+	public void matchesWhenIntermediateFeatureNullReturnsFalse()
+	{
+		Matcher<String> matcher = hasFeature(path("x", (String s) -> (String) null).then("y", String::length),
+			anything());
+		
+		assertThat(matcher.matches("a"), is(false));
+	}
+	
+	@Test
+	public void matchesWhenFeatureNullAppliesMatcher()
+	{
+		Matcher<String> matcher = hasFeature(path("x", String::trim).then("y", (String s) -> (String) null),
+			nullValue());
+		
+		assertThat(matcher.matches("a"), is(true));
+	}
+	
+	@Test
+	public void describeMismatchDescribesMismatch()
+	{
+		Matcher<String> matcher = hasFeature(path("x", String::trim).then("y", String::length), nothing("z"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(" a ", description);
+		
+		assertThat(description.toString(), is("x.y z was <1>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenIntermediateFeatureNullDescribesNull()
+	{
+		Matcher<String> matcher = hasFeature(path("x", String::trim).then("y", (String s) -> (String) null)
+			.then("z", String::length), anything());
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("a", description);
+		
+		assertThat(description.toString(), is("x.y was null"));
+	}
+	
+	@Test
+	public void describeMismatchWhenNullDescribesNull()
+	{
+		Matcher<String> matcher = hasFeature(path("x", String::trim), anything());
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(null, description);
+		
+		assertThat(description.toString(), is("was null"));
+	}
+	
+	@Test
+	public void asPredicateWhenFeatureMatchesReturnsTrue()
+	{
+		HasFeaturePathMatcher<String, Integer> matcher = new HasFeaturePathMatcher<>(
+			path("x", String::trim).then("y", String::length), equalTo(1));
+		
+		assertThat(matcher.asPredicate().test(" a "), is(true));
+	}
+	
+	@Test
+	public void asPredicateWhenFeatureDoesNotMatchReturnsFalse()
+	{
+		HasFeaturePathMatcher<String, Integer> matcher = new HasFeaturePathMatcher<>(
+			path("x", String::trim).then("y", String::length), equalTo(2));
+		
+		assertThat(matcher.asPredicate().test(" a "), is(false));
+	}
+	
+	@Test
+	public void asPredicateWhenIntermediateFeatureNullReturnsFalse()
+	{
+		HasFeaturePathMatcher<String, Integer> matcher = new HasFeaturePathMatcher<>(
+			path("x", (String s) -> (String) null).then("y", String::length), anything());
+		
+		assertThat(matcher.asPredicate().test("a"), is(false));
+	}
+	
+	@Test
+	public void asPredicateWhenFeatureNullAppliesMatcher()
+	{
+		HasFeaturePathMatcher<String, String> matcher = new HasFeaturePathMatcher<>(
+			path("x", String::trim).then("y", (String s) -> (String) null), nullValue());
+		
+		assertThat(matcher.asPredicate().test("a"), is(true));
+	}
+	
+	@Test
+	public void asPredicateWhenNullReturnsFalse()
+	{
+		HasFeaturePathMatcher<String, String> matcher = new HasFeaturePathMatcher<>(path("x", String::trim),
+			anything());
+		
+		assertThat(matcher.asPredicate().test(null), is(false));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.function.Function;
+
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code HasFeatureValueMatcher}.
+ */
+public class HasFeatureValueMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final Function<String, Integer> LENGTH = String::length;
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void describeToDescribesFeatureValue()
+	{
+		HasFeatureValueMatcher<String, Integer> matcher = new HasFeatureValueMatcher<>("x", "y", LENGTH, 1);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("x <1>"));
+	}
+	
+	@Test
+	public void matchesWhenFeatureValueEqualReturnsTrue()
+	{
+		HasFeatureValueMatcher<String, Integer> matcher = new HasFeatureValueMatcher<>("x", "y", LENGTH, 1);
+		
+		assertThat(matcher.matches("a"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenFeatureValueNotEqualReturnsFalse()
+	{
+		HasFeatureValueMatcher<String, Integer> matcher = new HasFeatureValueMatcher<>("x", "y", LENGTH, 2);
+		
+		assertThat(matcher.matches("a"), is(false));
+	}
+	
+	@Test
+	public void getFeatureFunctionReturnsFunction()
+	{
+		HasFeatureValueMatcher<String, Integer> matcher = new HasFeatureValueMatcher<>("x", "y", LENGTH, 1);
+		
+		assertThat(matcher.getFeatureFunction(), is(sameInstance(LENGTH)));
+	}
+	
+	@Test
+	public void getFeatureValueReturnsValue()
+	{
+		HasFeatureValueMatcher<String, Integer> matcher = new HasFeatureValueMatcher<>("x", "y", LENGTH, 1);
+		
+		assertThat(matcher.getFeatureValue(), is(1));
+	}
+}
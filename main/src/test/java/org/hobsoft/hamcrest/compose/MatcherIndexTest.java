@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeatureValue;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.index;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code MatcherIndex}.
+ */
+public class MatcherIndexTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void findAllWithIndexedFeatureValueReturnsMatchingObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc", "de", "fgh")).withIndex(String::length);
+		
+		List<String> actual = index.findAll(hasFeatureValue(String::length, 2));
+		
+		assertThat(actual, is(asList("bc", "de")));
+	}
+	
+	@Test
+	public void findAllWithIndexedFeatureValueDoesNotApplyFunction()
+	{
+		AtomicInteger count = new AtomicInteger();
+		MatcherIndex<String> index = index(asList("a", "bc", "de")).withIndex(countingLength(count));
+		count.set(0);
+		
+		index.findAll(hasFeatureValue(countingLength(count), 2));
+		
+		assertThat(count.get(), is(0));
+	}
+	
+	@Test
+	public void findAllWithUnindexedFeatureValueReturnsMatchingObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc", "de", "fgh")).withIndex(String::isEmpty);
+		
+		List<String> actual = index.findAll(hasFeatureValue(String::length, 2));
+		
+		assertThat(actual, is(asList("bc", "de")));
+	}
+	
+	@Test
+	public void findAllWithMatcherReturnsMatchingObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc", "bd")).withIndex(String::length);
+		
+		List<String> actual = index.findAll(startsWith("b"));
+		
+		assertThat(actual, is(asList("bc", "bd")));
+	}
+	
+	@Test
+	public void findAllWithIndexedFeatureValuesReturnsIntersection()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc", "bd", "ce", "bfg"))
+			.withIndex(String::length)
+			.withIndex(MatcherIndexTest::first);
+		
+		List<String> actual = index.findAll(compose(hasFeatureValue(String::length, 2))
+			.and(hasFeatureValue(MatcherIndexTest::first, 'b')));
+		
+		assertThat(actual, is(asList("bc", "bd")));
+	}
+	
+	@Test
+	public void findAllWithIndexedFeatureValueAndMatcherReturnsMatchingObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc", "bd", "ce")).withIndex(String::length);
+		
+		List<String> actual = index.findAll(compose(hasFeatureValue(String::length, 2))
+			.and(hasFeature("x", String::trim, equalTo("bd"))));
+		
+		assertThat(actual, is(asList("bd")));
+	}
+	
+	@Test
+	public void findAllWithNestedIndexedFeatureValueReturnsMatchingObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc", "bd", "ce")).withIndex(String::length);
+		
+		List<String> actual = index.findAll(compose(startsWith("b")).and(compose(hasFeatureValue(String::length, 2))));
+		
+		assertThat(actual, is(asList("bc", "bd")));
+	}
+	
+	@Test
+	public void findAllWhenNoIndexedFeatureValueReturnsEmptyList()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc")).withIndex(String::length);
+		
+		List<String> actual = index.findAll(hasFeatureValue(String::length, 3));
+		
+		assertThat(actual, is(emptyList()));
+	}
+	
+	@Test
+	public void findAllWithNullFeatureValueReturnsMatchingObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc")).withIndex(MatcherIndexTest::second);
+		
+		List<String> actual = index.findAll(hasFeatureValue(MatcherIndexTest::second, null));
+		
+		assertThat(actual, is(asList("a")));
+	}
+	
+	@Test
+	public void findAllWithArrayFeatureValueReturnsMatchingObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc")).withIndex(String::toCharArray);
+		
+		List<String> actual = index.findAll(hasFeatureValue(String::toCharArray, new char[] {'b', 'c'}));
+		
+		assertThat(actual, is(asList("bc")));
+	}
+	
+	@Test
+	public void findAllWhenCollectionChangedReturnsIndexedObjects()
+	{
+		List<String> objects = new ArrayList<>(asList("a", "bc"));
+		MatcherIndex<String> index = index(objects).withIndex(String::length);
+		
+		objects.add("de");
+		
+		assertThat(index.findAll(hasFeatureValue(String::length, 2)), is(asList("bc")));
+	}
+	
+	@Test
+	public void sizeReturnsNumberOfObjects()
+	{
+		MatcherIndex<String> index = index(asList("a", "bc"));
+		
+		assertThat(index.size(), is(2));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void indexWithNullObjectThrowsException()
+	{
+		index(asList("a", null));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void withIndexWithNullFunctionThrowsException()
+	{
+		index(asList("a")).withIndex(null);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static char first(String string)
+	{
+		return string.charAt(0);
+	}
+	
+	private static Character second(String string)
+	{
+		return (string.length() > 1) ? string.charAt(1) : null;
+	}
+	
+	private static SerializableFunction<String, Integer> countingLength(AtomicInteger count)
+	{
+		return string ->
+		{
+			count.incrementAndGet();
+			return string.length();
+		};
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code MemoizedFunction}.
+ */
+public class MemoizedFunctionTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final AtomicInteger COUNT = new AtomicInteger();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// JUnit methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@After
+	public void tearDown()
+	{
+		MemoizedFunction.exitScope();
+		COUNT.set(0);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullFunctionThrowsException()
+	{
+		new MemoizedFunction<>(null);
+	}
+	
+	@Test
+	public void applyReturnsResult()
+	{
+		MemoizedFunction<String, Integer> function = new MemoizedFunction<>(String::length);
+		
+		assertThat(function.apply("xy"), is(2));
+	}
+	
+	@Test
+	public void applyOutsideScopeAppliesFunctionEachTime()
+	{
+		MemoizedFunction<String, Integer> function = new MemoizedFunction<>(MemoizedFunctionTest::count);
+		
+		function.apply("x");
+		function.apply("x");
+		
+		assertThat(COUNT.get(), is(2));
+	}
+	
+	@Test
+	public void applyWithinScopeAppliesFunctionOnce()
+	{
+		MemoizedFunction<String, Integer> function = new MemoizedFunction<>(MemoizedFunctionTest::count);
+		MemoizedFunction.enterScope();
+		
+		function.apply("x");
+		
+		assertThat(function.apply("x"), is(1));
+		assertThat(COUNT.get(), is(1));
+	}
+	
+	@Test
+	public void applyWithinScopeToDifferentObjectsAppliesFunctionToEach()
+	{
+		MemoizedFunction<String, Integer> function = new MemoizedFunction<>(MemoizedFunctionTest::count);
+		MemoizedFunction.enterScope();
+		
+		function.apply(new String("x"));
+		function.apply(new String("x"));
+		
+		assertThat(COUNT.get(), is(2));
+	}
+	
+	@Test
+	public void applyWithinScopeWithEqualMethodReferencesAppliesFunctionOnce()
+	{
+		MemoizedFunction<String, Integer> function1 = new MemoizedFunction<>(MemoizedFunctionTest::count);
+		MemoizedFunction<String, Integer> function2 = new MemoizedFunction<>(MemoizedFunctionTest::count);
+		MemoizedFunction.enterScope();
+		
+		function1.apply("x");
+		function2.apply("x");
+		
+		assertThat(COUNT.get(), is(1));
+	}
+	
+	@Test
+	public void applyWithinScopeWithNullResultAppliesFunctionOnce()
+	{
+		AtomicInteger count = new AtomicInteger();
+		MemoizedFunction<String, Integer> function = new MemoizedFunction<>(actual ->
+		{
+			count.incrementAndGet();
+			return null;
+		});
+		MemoizedFunction.enterScope();
+		
+		function.apply("x");
+		function.apply("x");
+		
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void applyAfterScopeExitedAppliesFunctionAgain()
+	{
+		MemoizedFunction<String, Integer> function = new MemoizedFunction<>(MemoizedFunctionTest::count);
+		MemoizedFunction.enterScope();
+		function.apply("x");
+		MemoizedFunction.exitScope();
+		
+		function.apply("x");
+		
+		assertThat(COUNT.get(), is(2));
+	}
+	
+	@Test
+	public void enterScopeWhenOutsideScopeReturnsTrue()
+	{
+		assertThat(MemoizedFunction.enterScope(), is(true));
+	}
+	
+	@Test
+	public void enterScopeWhenWithinScopeReturnsFalse()
+	{
+		MemoizedFunction.enterScope();
+		
+		assertThat(MemoizedFunction.enterScope(), is(false));
+	}
+	
+	@Test
+	public void getNameReturnsFunctionName()
+	{
+		MemoizedFunction<String, Integer> function = new MemoizedFunction<>(String::length);
+		
+		assertThat(function.getName(), is("length"));
+	}
+	
+	@Test
+	public void isUsedByWithMemoizedFeatureMatcherReturnsTrue()
+	{
+		boolean actual = MemoizedFunction.isUsedBy(hasFeature(new MemoizedFunction<>(String::length), anything()));
+		
+		assertThat(actual, is(true));
+	}
+	
+	@Test
+	public void isUsedByWithFeatureMatcherReturnsFalse()
+	{
+		boolean actual = MemoizedFunction.isUsedBy(hasFeature(String::length, anything()));
+		
+		assertThat(actual, is(false));
+	}
+	
+	@Test
+	public void isUsedByWithMemoizedFeaturePathMatcherReturnsTrue()
+	{
+		FeaturePath<String, Integer> featurePath = path(new MemoizedFunction<>(String::trim)).then(String::length);
+		
+		assertThat(MemoizedFunction.isUsedBy(hasFeature(featurePath, equalTo(1))), is(true));
+	}
+	
+	@Test
+	public void isUsedByWithOtherMatcherReturnsFalse()
+	{
+		assertThat(MemoizedFunction.isUsedBy(anything()), is(false));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static int count(String actual)
+	{
+		return COUNT.incrementAndGet();
+	}
+}
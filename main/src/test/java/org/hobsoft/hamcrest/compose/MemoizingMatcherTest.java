@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.StringDescription.asString;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code MemoizingMatcher}.
+ */
+public class MemoizingMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullMatcherThrowsException()
+	{
+		new MemoizingMatcher<>(null, 1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorWithZeroMaximumSizeThrowsException()
+	{
+		new MemoizingMatcher<>(compose(), 0);
+	}
+	
+	@Test
+	public void describeToDescribesMatcher()
+	{
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(compose(equalTo("x")), 1);
+		
+		assertThat(asString(matcher), is("\"x\""));
+	}
+	
+	@Test
+	public void matchesWhenMatchReturnsTrue()
+	{
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(compose(equalTo("x")), 1);
+		
+		assertThat(matcher.matches("x"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenMismatchReturnsFalse()
+	{
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(compose(equalTo("x")), 1);
+		
+		assertThat(matcher.matches("y"), is(false));
+	}
+	
+	@Test
+	public void matchesWhenNullReturnsFalse()
+	{
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(compose(equalTo("x")), 1);
+		
+		assertThat(matcher.matches(null), is(false));
+	}
+	
+	@Test
+	public void matchesWhenSameInstanceMatchedAgainReturnsCachedResult()
+	{
+		AtomicInteger count = new AtomicInteger();
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(counting(count), 1);
+		String actual = "x";
+		
+		matcher.matches(actual);
+		
+		assertThat(matcher.matches(actual), is(true));
+		assertThat(count.get(), is(1));
+	}
+	
+	@Test
+	public void matchesWhenEqualInstanceMatchedEvaluatesMatcherAgain()
+	{
+		AtomicInteger count = new AtomicInteger();
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(counting(count), 2);
+		
+		matcher.matches(new String("x"));
+		matcher.matches(new String("x"));
+		
+		assertThat(count.get(), is(2));
+	}
+	
+	@Test
+	public void matchesWhenFullEvictsResults()
+	{
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(compose(equalTo("x")), 2);
+		
+		matcher.matches(new String("x"));
+		matcher.matches(new String("x"));
+		matcher.matches(new String("x"));
+		
+		assertThat(matcher.size(), is(2));
+	}
+	
+	@Test
+	public void describeMismatchWhenCachedMismatchDescribesMismatch()
+	{
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(compose(hasFeature("x", String::length,
+			equalTo(1))), 1);
+		StringDescription description = new StringDescription();
+		matcher.matches("yy");
+		
+		matcher.describeMismatch("yy", description);
+		
+		assertThat(description.toString(), is("x was <2>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenNullDescribesNull()
+	{
+		MemoizingMatcher<String> matcher = new MemoizingMatcher<>(compose(equalTo("x")), 1);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(null, description);
+		
+		assertThat(description.toString(), is("was null"));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static ConjunctionMatcher<String> counting(AtomicInteger count)
+	{
+		return compose(hasFeature("x", (String actual) -> count.incrementAndGet(), anything()));
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@code MismatchCollector}.
+ */
+public class MismatchCollectorTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorWithNegativeMaximumFailuresThrowsException()
+	{
+		new MismatchCollector(-1);
+	}
+	
+	@Test
+	public void checkThatWhenMatchesReturnsTrue()
+	{
+		MismatchCollector collector = new MismatchCollector();
+		
+		assertThat(collector.checkThat("x", anything()), is(true));
+	}
+	
+	@Test
+	public void checkThatWhenDoesNotMatchReturnsFalse()
+	{
+		MismatchCollector collector = new MismatchCollector();
+		
+		assertThat(collector.checkThat("x", nothing("y")), is(false));
+	}
+	
+	@Test
+	public void checkThatCountsChecks()
+	{
+		MismatchCollector collector = new MismatchCollector();
+		
+		collector.checkThat("x", anything());
+		collector.checkThat("y", nothing("z"));
+		
+		assertThat(collector.getCheckCount(), is(2));
+	}
+	
+	@Test
+	public void checkThatCountsFailures()
+	{
+		MismatchCollector collector = new MismatchCollector(0);
+		
+		collector.checkThat("x", anything());
+		collector.checkThat("y", nothing("z"));
+		collector.checkThat("w", nothing("z"));
+		
+		assertThat(collector.getFailureCount(), is(2));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void checkThatWithNullMatcherThrowsException()
+	{
+		new MismatchCollector().checkThat("x", null);
+	}
+	
+	@Test
+	public void verifyWhenMatchedDoesNotThrowException()
+	{
+		MismatchCollector collector = new MismatchCollector();
+		collector.checkThat("x", anything());
+		
+		collector.verify();
+	}
+	
+	@Test
+	public void verifyWhenMismatchedThrowsExceptionWithReport()
+	{
+		MismatchCollector collector = new MismatchCollector();
+		collector.checkThat("a", "x", compose(nothing("y")).and(nothing("z")));
+		collector.checkThat("w", anything("v"));
+		collector.checkThat("u", nothing("t"));
+		
+		try
+		{
+			collector.verify();
+			fail();
+		}
+		catch (AssertionError exception)
+		{
+			assertThat(exception.getMessage(), is("2 of 3 checks failed\n"
+				+ "\n"
+				+ "1) a\n"
+				+ "Expected: nothing\n"
+				+ "          and nothing\n"
+				+ "     but: y was \"x\"\n"
+				+ "          and z was \"x\"\n"
+				+ "\n"
+				+ "2)\n"
+				+ "Expected: nothing\n"
+				+ "     but: t was \"u\""));
+		}
+	}
+	
+	@Test
+	public void verifyWhenTooManyMismatchesThrowsExceptionWithTruncatedReport()
+	{
+		MismatchCollector collector = new MismatchCollector(1);
+		collector.checkThat("x", nothing("y"));
+		collector.checkThat("z", nothing("w"));
+		
+		try
+		{
+			collector.verify();
+			fail();
+		}
+		catch (AssertionError exception)
+		{
+			assertThat(exception.getMessage(), is("2 of 2 checks failed (showing first 1)\n"
+				+ "\n"
+				+ "1)\n"
+				+ "Expected: nothing\n"
+				+ "     but: y was \"x\""));
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code MismatchHandoff}.
+ */
+public class MismatchHandoffTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void takeAfterPutReturnsMismatch()
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		Object actual = new Object();
+		
+		handoff.put(actual, "x");
+		
+		assertThat(handoff.take(actual), is("x"));
+	}
+	
+	@Test
+	public void takeTwiceReturnsNull()
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		Object actual = new Object();
+		
+		handoff.put(actual, "x");
+		handoff.take(actual);
+		
+		assertThat(handoff.take(actual), is(nullValue()));
+	}
+	
+	@Test
+	public void takeWhenAnotherObjectReturnsNull()
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		
+		handoff.put(new Object(), "x");
+		
+		assertThat(handoff.take(new Object()), is(nullValue()));
+	}
+	
+	@Test
+	public void takeAfterAnotherObjectDiscardsMismatch()
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		Object actual = new Object();
+		
+		handoff.put(actual, "x");
+		handoff.take(new Object());
+		
+		assertThat(handoff.take(actual), is(nullValue()));
+	}
+	
+	@Test
+	public void takeAfterPeekReturnsMismatch()
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		Object actual = new Object();
+		
+		handoff.put(actual, "x");
+		
+		assertThat(asList(handoff.peek(actual), handoff.take(actual)), is(asList("x", "x")));
+	}
+	
+	@Test
+	public void peekWhenAnotherObjectReturnsNull()
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		
+		handoff.put(new Object(), "x");
+		
+		assertThat(handoff.peek(new Object()), is(nullValue()));
+	}
+	
+	@Test
+	public void takeAfterClearReturnsNull()
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		Object actual = new Object();
+		
+		handoff.put(actual, "x");
+		handoff.clear();
+		
+		assertThat(handoff.take(actual), is(nullValue()));
+	}
+	
+	@Test
+	public void takeOnAnotherThreadReturnsNull() throws InterruptedException
+	{
+		MismatchHandoff<String> handoff = new MismatchHandoff<>();
+		Object actual = new Object();
+		String[] taken = {"y"};
+		Thread thread = new Thread(() -> taken[0] = handoff.take(actual));
+		
+		handoff.put(actual, "x");
+		thread.start();
+		thread.join();
+		
+		assertThat(taken[0], is(nullValue()));
+	}
+}
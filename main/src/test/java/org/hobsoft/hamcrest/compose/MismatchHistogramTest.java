@@ -0,0 +1,254 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@code MismatchHistogram}.
+ */
+public class MismatchHistogramTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullMatcherThrowsException()
+	{
+		new MismatchHistogram<>(null);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorWithNegativeMaximumExamplesThrowsException()
+	{
+		new MismatchHistogram<>(anything(), -1);
+	}
+	
+	@Test
+	public void checkThatWhenMatchesReturnsTrue()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(anything());
+		
+		assertThat(histogram.checkThat("x"), is(true));
+	}
+	
+	@Test
+	public void checkThatWhenDoesNotMatchReturnsFalse()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(nothing("y"));
+		
+		assertThat(histogram.checkThat("x"), is(false));
+	}
+	
+	@Test
+	public void checkThatCountsChecksAndFailures()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(equalTo("x"));
+		
+		histogram.checkThat("x");
+		histogram.checkThat("y");
+		histogram.checkThat("z");
+		
+		assertThat(Arrays.asList(histogram.getCheckCount(), histogram.getFailureCount()), is(Arrays.asList(3L, 2L)));
+	}
+	
+	@Test
+	public void getGroupsWhenMatchedReturnsEmptyList()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(anything());
+		histogram.checkThat("x");
+		
+		assertThat(histogram.getGroups().isEmpty(), is(true));
+	}
+	
+	@Test
+	public void getGroupsGroupsMismatchesWithSameSignature()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(nothing("y"));
+		histogram.checkThat("a");
+		histogram.checkThat("b");
+		
+		List<MismatchHistogram.Group> groups = histogram.getGroups();
+		
+		assertThat(groups.size(), is(1));
+		assertThat(groups.get(0).getMatcherDescription(), is("nothing"));
+		assertThat(groups.get(0).getSignature(), is("y was \"?\""));
+		assertThat(groups.get(0).getExampleMismatch(), is("y was \"a\""));
+		assertThat(groups.get(0).getCount(), is(2L));
+		assertThat(groups.get(0).getExampleIndices(), is(Arrays.asList(0L, 1L)));
+	}
+	
+	@Test
+	public void getGroupsGroupsMismatchesByLeafMatcher()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(compose(nothing("y")).and(compose(nothing("z"))));
+		histogram.checkThat("a");
+		
+		List<MismatchHistogram.Group> groups = histogram.getGroups();
+		
+		assertThat(groups.size(), is(2));
+		assertThat(groups.get(0).getExampleMismatch(), is("y was \"a\""));
+		assertThat(groups.get(1).getExampleMismatch(), is("z was \"a\""));
+	}
+	
+	@Test
+	public void getGroupsOrdersGroupsByDescendingCount()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(compose(hasFeature("length", String::length,
+			equalTo(1))).and(equalTo("x")));
+		histogram.checkThat("y");
+		histogram.checkThat("yy");
+		histogram.checkThat("zz");
+		
+		List<MismatchHistogram.Group> groups = histogram.getGroups();
+		
+		assertThat(groups.size(), is(2));
+		assertThat(groups.get(0).getSignature(), is("was \"?\""));
+		assertThat(groups.get(0).getCount(), is(3L));
+		assertThat(groups.get(1).getSignature(), is("length was <?>"));
+		assertThat(groups.get(1).getCount(), is(2L));
+	}
+	
+	@Test
+	public void getGroupsKeepsMaximumExampleIndices()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(nothing("y"), 2);
+		histogram.checkThat("a");
+		histogram.checkThat("b");
+		histogram.checkThat("c");
+		
+		assertThat(histogram.getGroups().get(0).getExampleIndices(), is(Arrays.asList(0L, 1L)));
+	}
+	
+	@Test
+	public void signatureReplacesQuotedValues()
+	{
+		assertThat(MismatchHistogram.signature("name was \"a \\\" b\""), is("name was \"?\""));
+	}
+	
+	@Test
+	public void signatureReplacesBracketedValues()
+	{
+		assertThat(MismatchHistogram.signature("age was <42>"), is("age was <?>"));
+	}
+	
+	@Test
+	public void signatureReplacesNestedBracketedValues()
+	{
+		assertThat(MismatchHistogram.signature("was <[<1>, <2>]>"), is("was <?>"));
+	}
+	
+	@Test
+	public void signatureReplacesBracketedValuesContainingQuotedBrackets()
+	{
+		assertThat(MismatchHistogram.signature("was <[\">\", \"]\"]> and <1>"), is("was <?> and <?>"));
+	}
+	
+	@Test
+	public void signatureReplacesListValues()
+	{
+		assertThat(MismatchHistogram.signature("was [\"a\", \"b\"]"), is("was [?]"));
+	}
+	
+	@Test
+	public void signatureReplacesCharacterValues()
+	{
+		assertThat(MismatchHistogram.signature("was 'a' or '\\n'"), is("was '?' or '?'"));
+	}
+	
+	@Test
+	public void signatureReplacesNumbers()
+	{
+		assertThat(MismatchHistogram.signature("item 12 was 3.5."), is("item ? was ?."));
+	}
+	
+	@Test
+	public void signatureDoesNotReplaceNumbersWithinWords()
+	{
+		assertThat(MismatchHistogram.signature("item2 was 3rd"), is("item2 was 3rd"));
+	}
+	
+	@Test
+	public void signatureDoesNotReplaceApostrophes()
+	{
+		assertThat(MismatchHistogram.signature("wasn't 'ready'"), is("wasn't 'ready'"));
+	}
+	
+	@Test
+	public void signatureDoesNotReplaceUnbalancedBrackets()
+	{
+		assertThat(MismatchHistogram.signature("was < <1"), is("was < <?"));
+	}
+	
+	@Test
+	public void getGroupsGroupsMismatchesWithNestedValues()
+	{
+		MismatchHistogram<List<Integer>> histogram = new MismatchHistogram<>(nothing("x"));
+		histogram.checkThat(Arrays.asList(1, 2));
+		histogram.checkThat(Arrays.asList(3, 4, 5));
+		
+		assertThat(histogram.getGroups().size(), is(1));
+	}
+	
+	@Test
+	public void verifyWhenMatchedDoesNotThrowException()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(anything());
+		histogram.checkThat("x");
+		
+		histogram.verify();
+	}
+	
+	@Test
+	public void verifyWhenMismatchedThrowsExceptionWithReport()
+	{
+		MismatchHistogram<String> histogram = new MismatchHistogram<>(compose(nothing("y")).and(equalTo("b")));
+		histogram.checkThat("a");
+		histogram.checkThat("b");
+		histogram.checkThat("c");
+		
+		try
+		{
+			histogram.verify();
+			fail();
+		}
+		catch (AssertionError exception)
+		{
+			assertThat(exception.getMessage(), is("3 of 3 checks failed in 2 ways\n"
+				+ "\n"
+				+ "1) 3 failures\n"
+				+ "Expected: nothing\n"
+				+ "     but: y was \"a\"\n"
+				+ "      at: [0, 1, 2]\n"
+				+ "\n"
+				+ "2) 2 failures\n"
+				+ "Expected: \"b\"\n"
+				+ "     but: was \"a\"\n"
+				+ "      at: [0, 2]"));
+		}
+	}
+}
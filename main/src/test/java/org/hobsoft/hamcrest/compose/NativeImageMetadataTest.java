@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Scanner;
+
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests the native image metadata resources.
+ */
+public class NativeImageMetadataTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final String METADATA_PATH = "META-INF/native-image/org.hobsoft.hamcrest/hamcrest-compose/";
+	
+	/**
+	 * The matchers whose matched type is found by reflection.
+	 */
+	private static final Class<?>[] TYPE_SAFE_MATCHERS = {
+		DiffMatcher.class,
+		HasAsyncFeatureMatcher.class,
+		HasFeaturePathMatcher.class,
+		PublisherMatcher.class,
+		SnapshotMatcher.class,
+		StreamMatcher.class,
+	};
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void reflectConfigRegistersTypeSafeMatchers() throws IOException
+	{
+		String reflectConfig = readResource("reflect-config.json");
+		
+		for (Class<?> matcherClass : TYPE_SAFE_MATCHERS)
+		{
+			assertThat(TypeSafeDiagnosingMatcher.class.isAssignableFrom(matcherClass), is(true));
+			assertThat(reflectConfig, containsString("\"" + matcherClass.getName() + "\""));
+		}
+	}
+	
+	@Test
+	public void serializationConfigRegistersSerializedLambda() throws IOException
+	{
+		String serializationConfig = readResource("serialization-config.json");
+		
+		assertThat(serializationConfig, containsString("\"java.lang.invoke.SerializedLambda\""));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static String readResource(String name) throws IOException
+	{
+		try (InputStream in = NativeImageMetadataTest.class.getClassLoader().getResourceAsStream(METADATA_PATH + name))
+		{
+			assertThat(name, in, is(notNullValue()));
+			
+			try (Scanner scanner = new Scanner(in, "UTF-8"))
+			{
+				return scanner.useDelimiter("\\A").next();
+			}
+		}
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.publishesEvery;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code PublisherMatcher}.
+ */
+public class PublisherMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void describeToDescribesMatcher()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(anything("x"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("every element x"));
+	}
+	
+	@Test
+	public void describeToWhenCountAndOrderDescribesConstraints()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = ComposeMatchers.<Integer>publishesEvery(anything("x"))
+			.withCount(equalTo(2L))
+			.inOrder(Comparator.naturalOrder());
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("every element x\n"
+			+ "          and element count <2L>\n"
+			+ "          and elements in order"));
+	}
+	
+	@Test
+	public void matchesWhenEveryElementMatchesReturnsTrue()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(not(equalTo(3)));
+		
+		assertThat(matcher.matches(publisher(1, 2)), is(true));
+	}
+	
+	@Test
+	public void matchesWhenEmptyReturnsTrue()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(not(equalTo(3)));
+		
+		assertThat(matcher.matches(new IterablePublisher<>(emptyList())), is(true));
+	}
+	
+	@Test
+	public void matchesWhenElementDoesNotMatchReturnsFalse()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(not(equalTo(3)));
+		
+		assertThat(matcher.matches(publisher(1, 3)), is(false));
+	}
+	
+	@Test
+	public void matchesWhenCountDoesNotMatchReturnsFalse()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(not(equalTo(3))).withCount(equalTo(3L));
+		
+		assertThat(matcher.matches(publisher(1, 2)), is(false));
+	}
+	
+	@Test
+	public void matchesWhenOutOfOrderReturnsFalse()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(not(equalTo(3)))
+			.inOrder(Comparator.naturalOrder());
+		
+		assertThat(matcher.matches(publisher(2, 1)), is(false));
+	}
+	
+	@Test
+	public void matchesWhenManyElementsRequestsBatches()
+	{
+		Matcher<Publisher<?>> matcher = publishesEvery(anything()).requestingBatchesOf(100);
+		IterablePublisher<Integer> publisher = new IterablePublisher<>(() -> IntStream.range(0, 1000).iterator());
+		
+		matcher.matches(publisher);
+		
+		assertThat(publisher.getRequests(), is(asList(100L, 100L, 100L, 100L, 100L, 100L, 100L, 100L, 100L, 100L,
+			100L)));
+	}
+	
+	@Test
+	public void matchesWhenFailureLimitReachedCancels()
+	{
+		Matcher<Publisher<?>> matcher = publishesEvery(nothing("x")).stoppingAfter(2);
+		IterablePublisher<Integer> publisher = new IterablePublisher<>(() -> IntStream.range(0, 1000).iterator());
+		
+		matcher.matches(publisher);
+		
+		assertThat(publisher.getPublishedCount(), is(2L));
+	}
+	
+	@Test
+	public void describeMismatchDescribesElementMismatches()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(nothing("x"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(publisher(1, 2), description);
+		
+		assertThat(description.toString(), is("element 0 x was <1>\n"
+			+ "          and element 1 x was <2>"));
+	}
+	
+	@Test
+	public void describeMismatchDescribesCountMismatch()
+	{
+		Matcher<Publisher<?>> matcher = publishesEvery(anything()).withCount(equalTo(3L));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(publisher(1, 2), description);
+		
+		assertThat(description.toString(), is("element count was <2L>"));
+	}
+	
+	@Test
+	public void describeMismatchDescribesOrderMismatch()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = ComposeMatchers.<Integer>publishesEvery(anything())
+			.inOrder(Comparator.naturalOrder());
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(publisher(1, 3, 2), description);
+		
+		assertThat(description.toString(), is("element 2 was <2> after <3>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenFailureLimitReachedDescribesStop()
+	{
+		Matcher<Publisher<?>> matcher = publishesEvery(nothing("x")).stoppingAfter(1);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(publisher(1, 2), description);
+		
+		assertThat(description.toString(), is("element 0 x was <1>\n"
+			+ "          and stopped after 1 mismatches"));
+	}
+	
+	@Test
+	public void describeMismatchWhenErrorDescribesError()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(anything());
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(failingPublisher(new IllegalStateException("x")), description);
+		
+		assertThat(description.toString(), is("failed with <java.lang.IllegalStateException: x>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenTimeoutDescribesTimeout()
+	{
+		Matcher<Publisher<?>> matcher = publishesEvery(anything()).within(Duration.ofMillis(10));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(neverPublisher(), description);
+		
+		assertThat(description.toString(), is("timed out after 10 ms"));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesDoesNotSubscribeAgain()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(nothing("x"));
+		IterablePublisher<Integer> publisher = publisher(1, 2);
+		
+		matcher.matches(publisher);
+		matcher.describeMismatch(publisher, new StringDescription());
+		
+		assertThat(publisher.getSubscriptionCount(), is(1));
+	}
+	
+	@Test
+	public void matchesAfterDescribeMismatchWhenColdPublisherChangesSubscribesAgain()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(equalTo(1));
+		List<Integer> elements = new ArrayList<>(asList(2));
+		IterablePublisher<Integer> publisher = new IterablePublisher<>(elements);
+		
+		matcher.matches(publisher);
+		matcher.describeMismatch(publisher, new StringDescription());
+		elements.set(0, 1);
+		
+		assertThat(asList(matcher.matches(publisher), publisher.getSubscriptionCount()), is(asList(true, 2)));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesAnotherPublisherSubscribes()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(nothing("x"));
+		IterablePublisher<Integer> publisher = publisher(2);
+		StringDescription description = new StringDescription();
+		
+		matcher.matches(publisher(1));
+		matcher.describeMismatch(publisher, description);
+		
+		assertThat(description.toString(), is("element 0 x was <2>"));
+	}
+	
+	@Test
+	public void matchesTwiceAfterMismatchDoesNotSubscribeAgain()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(nothing("x"));
+		IterablePublisher<Integer> publisher = publisher(1);
+		
+		matcher.matches(publisher);
+		
+		assertThat(asList(matcher.matches(publisher), publisher.getSubscriptionCount()), is(asList(false, 1)));
+	}
+	
+	@Test
+	public void describeMismatchWhenComposedSubscribesOnce()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = compose("a publisher", publishesEvery(nothing("x")));
+		IterablePublisher<Integer> publisher = publisher(1);
+		StringDescription description = new StringDescription();
+		
+		matcher.matches(publisher);
+		matcher.describeMismatch(publisher, description);
+		
+		assertThat(asList(description.toString(), publisher.getSubscriptionCount()),
+			is(asList("element 0 x was <1>", 1)));
+	}
+	
+	@Test
+	public void describeMismatchTwiceSubscribesAgain()
+	{
+		Matcher<Publisher<? extends Integer>> matcher = publishesEvery(nothing("x"));
+		IterablePublisher<Integer> publisher = publisher(1);
+		
+		matcher.matches(publisher);
+		matcher.describeMismatch(publisher, new StringDescription());
+		matcher.describeMismatch(publisher, new StringDescription());
+		
+		assertThat(publisher.getSubscriptionCount(), is(2));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void requestingBatchesOfWithZeroThrowsException()
+	{
+		publishesEvery(anything()).requestingBatchesOf(0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void stoppingAfterWithZeroThrowsException()
+	{
+		publishesEvery(anything()).stoppingAfter(0);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@SafeVarargs
+	private static <T> IterablePublisher<T> publisher(T... elements)
+	{
+		return new IterablePublisher<>(asList(elements));
+	}
+	
+	private static <T> Publisher<T> failingPublisher(Throwable throwable)
+	{
+		return subscriber ->
+		{
+			subscriber.onSubscribe(new NoSubscription());
+			subscriber.onError(throwable);
+		};
+	}
+	
+	private static <T> Publisher<T> neverPublisher()
+	{
+		return subscriber -> subscriber.onSubscribe(new NoSubscription());
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// types
+	// ----------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Synchronous publisher of the elements of an iterable that records demand.
+	 *
+	 * @param <T>
+	 *            the type of the published elements
+	 */
+	private static final class IterablePublisher<T> implements Publisher<T>
+	{
+		private final Iterable<T> elements;
+		
+		private final List<Long> requests = new ArrayList<>();
+		
+		private long publishedCount;
+		
+		private int subscriptionCount;
+		
+		IterablePublisher(Iterable<T> elements)
+		{
+			this.elements = elements;
+		}
+		
+		@Override
+		public void subscribe(Subscriber<? super T> subscriber)
+		{
+			subscriptionCount++;
+			
+			Iterator<T> iterator = elements.iterator();
+			
+			subscriber.onSubscribe(new Subscription()
+			{
+				private boolean cancelled;
+				
+				@Override
+				public void request(long n)
+				{
+					requests.add(n);
+					
+					for (long index = 0; index < n && !cancelled && iterator.hasNext(); index++)
+					{
+						publishedCount++;
+						subscriber.onNext(iterator.next());
+					}
+					
+					if (!cancelled && !iterator.hasNext())
+					{
+						cancelled = true;
+						subscriber.onComplete();
+					}
+				}
+				
+				@Override
+				public void cancel()
+				{
+					cancelled = true;
+				}
+			});
+		}
+		
+		List<Long> getRequests()
+		{
+			return requests;
+		}
+		
+		long getPublishedCount()
+		{
+			return publishedCount;
+		}
+		
+		int getSubscriptionCount()
+		{
+			return subscriptionCount;
+		}
+	}
+	
+	/**
+	 * Subscription that ignores demand.
+	 */
+	private static final class NoSubscription implements Subscription
+	{
+		@Override
+		public void request(long n)
+		{
+			// ignore
+		}
+		
+		@Override
+		public void cancel()
+		{
+			// ignore
+		}
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@code SamplingVerifier}.
+ */
+public class SamplingVerifierTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullMatcherThrowsException()
+	{
+		new SamplingVerifier<>(null);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void withConfidenceWhenOneThrowsException()
+	{
+		new SamplingVerifier<>(equalTo("x")).withConfidence(1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void withMarginOfErrorWhenZeroThrowsException()
+	{
+		new SamplingVerifier<>(equalTo("x")).withMarginOfError(0);
+	}
+	
+	@Test
+	public void getSampleSizeReturnsSampleSizeForConfidenceAndMarginOfError()
+	{
+		SamplingVerifier<String> verifier = new SamplingVerifier<>(equalTo("x")).withConfidence(0.95)
+			.withMarginOfError(0.05);
+		
+		assertThat(verifier.getSampleSize(), is(385));
+	}
+	
+	@Test
+	public void zScoreReturnsNormalQuantile()
+	{
+		assertThat(Math.round(SamplingVerifier.zScore(0.95) * 100), is(196L));
+	}
+	
+	@Test
+	public void sampleIndicesReturnsDistinctIndicesInAscendingOrder()
+	{
+		int[] actual = SamplingVerifier.sampleIndices(100, 50, new Random(0));
+		
+		assertThat(actual.length, is(50));
+		assertThat(IntStream.of(actual).distinct().count(), is(50L));
+		assertThat(IntStream.of(actual).sorted().toArray(), is(actual));
+		assertThat(IntStream.of(actual).allMatch(index -> index >= 0 && index < 100), is(true));
+	}
+	
+	@Test
+	public void sampleWithListSamplesSampleSize()
+	{
+		SamplingVerifier.Result actual = new SamplingVerifier<>(equalTo(0L)).sample(range(10_000_000));
+		
+		assertThat(actual.getPopulationSize(), is(10_000_000L));
+		assertThat(actual.getSampleSize() > 9000 && actual.getSampleSize() < 10_000, is(true));
+	}
+	
+	@Test
+	public void sampleWithSmallListSamplesEveryElement()
+	{
+		SamplingVerifier.Result actual = new SamplingVerifier<>(equalTo("a")).sample(asList("a", "b", "c"));
+		
+		assertThat(Arrays.asList(actual.getSampleSize(), actual.getFailureCount()), is(asList(3, 2)));
+	}
+	
+	@Test
+	public void sampleWithListEstimatesFailureRate()
+	{
+		SamplingVerifier.Result actual = new SamplingVerifier<>(notMultipleOfTen()).sample(range(10_000_000));
+		
+		assertThat(actual.getLowerBound() < 0.1 && actual.getUpperBound() > 0.1, is(true));
+		assertThat(actual.getUpperBound() - actual.getLowerBound() < 0.02, is(true));
+	}
+	
+	@Test
+	public void sampleWithListAndSameSeedReturnsSameSample()
+	{
+		SamplingVerifier<Long> verifier = new SamplingVerifier<>(notMultipleOfTen()).withSeed(1);
+		
+		SamplingVerifier.Result actual1 = verifier.sample(range(10_000_000));
+		SamplingVerifier.Result actual2 = verifier.sample(range(10_000_000));
+		
+		assertThat(actual1.getExampleIndices(), is(actual2.getExampleIndices()));
+	}
+	
+	@Test
+	public void sampleWithListAndDifferentSeedReturnsDifferentSample()
+	{
+		SamplingVerifier<Long> verifier = new SamplingVerifier<>(notMultipleOfTen());
+		
+		SamplingVerifier.Result actual1 = verifier.withSeed(1).sample(range(10_000_000));
+		SamplingVerifier.Result actual2 = verifier.withSeed(2).sample(range(10_000_000));
+		
+		assertThat(actual1.getExampleIndices(), is(not(actual2.getExampleIndices())));
+	}
+	
+	@Test
+	public void sampleWithStreamSamplesSampleSize()
+	{
+		SamplingVerifier<Long> verifier = new SamplingVerifier<>(equalTo(0L));
+		
+		SamplingVerifier.Result actual = verifier.sample(LongStream.range(0, 1_000_000).boxed());
+		
+		assertThat(actual.getPopulationSize(), is(1_000_000L));
+		assertThat(actual.getSampleSize(), is(verifier.getSampleSize()));
+	}
+	
+	@Test
+	public void sampleWithStreamEstimatesFailureRate()
+	{
+		SamplingVerifier.Result actual = new SamplingVerifier<>(notMultipleOfTen())
+			.sample(LongStream.range(0, 1_000_000).boxed());
+		
+		assertThat(actual.getLowerBound() < 0.1 && actual.getUpperBound() > 0.1, is(true));
+	}
+	
+	@Test
+	public void sampleWithStreamReturnsExamplesInAscendingOrder()
+	{
+		SamplingVerifier.Result actual = new SamplingVerifier<>(notMultipleOfTen())
+			.sample(LongStream.range(0, 1_000_000).boxed());
+		
+		List<Long> indices = actual.getExampleIndices();
+		
+		assertThat(indices.size(), is(3));
+		assertThat(indices.get(0) < indices.get(1) && indices.get(1) < indices.get(2), is(true));
+		assertThat(indices.stream().allMatch(index -> index % 10 == 0), is(true));
+	}
+	
+	@Test
+	public void sampleWithSmallStreamSamplesEveryElement()
+	{
+		SamplingVerifier.Result actual = new SamplingVerifier<>(equalTo("a")).sample(asList("a", "b").stream());
+		
+		assertThat(Arrays.asList(actual.getPopulationSize(), actual.getFailureCount()), is(asList(2L, 1)));
+	}
+	
+	@Test
+	public void getFailureRateWhenEmptyReturnsZero()
+	{
+		SamplingVerifier.Result actual = new SamplingVerifier<>(equalTo("a")).sample(asList());
+		
+		assertThat(actual.getFailureRate(), is(0.0));
+	}
+	
+	@Test
+	public void verifyWhenMatchedDoesNotThrowException()
+	{
+		new SamplingVerifier<>(equalTo("a")).sample(asList("a", "a")).verify();
+	}
+	
+	@Test
+	public void verifyWhenMismatchedThrowsExceptionWithReport()
+	{
+		SamplingVerifier.Result result = new SamplingVerifier<>(equalTo("a")).sample(asList("a", "b", "c"));
+		
+		try
+		{
+			result.verify();
+			fail();
+		}
+		catch (AssertionError exception)
+		{
+			assertThat(exception.getMessage(), is(String.format("2 of 3 sampled elements failed: estimated failure "
+				+ "rate %.2f%% (95%% confidence %.2f%% to %.2f%%)\n"
+				+ "\n"
+				+ "1) element 1\n"
+				+ "Expected: \"a\"\n"
+				+ "     but: was \"b\"\n"
+				+ "\n"
+				+ "2) element 2\n"
+				+ "Expected: \"a\"\n"
+				+ "     but: was \"c\"", 66.67, 66.67, 66.67)));
+		}
+	}
+	
+	@Test
+	public void verifyWithMaximumFailureRateWhenUpperBoundBelowDoesNotThrowException()
+	{
+		new SamplingVerifier<>(notMultipleOfTen()).sample(range(10_000_000)).verify(0.2);
+	}
+	
+	@Test(expected = AssertionError.class)
+	public void verifyWithMaximumFailureRateWhenUpperBoundAboveThrowsException()
+	{
+		new SamplingVerifier<>(notMultipleOfTen()).sample(range(10_000_000)).verify(0.1);
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static List<Long> range(int size)
+	{
+		return new AbstractList<Long>()
+		{
+			@Override
+			public Long get(int index)
+			{
+				return (long) index;
+			}
+			
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+	
+	private static Matcher<Long> notMultipleOfTen()
+	{
+		return hasFeature("remainder", (Long value) -> value % 10, not(equalTo(0L)));
+	}
+}
@@ -18,6 +18,7 @@ import java.io.ObjectStreamException;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -63,6 +64,15 @@ public class SerializableFunctionTest
 		assertThat(function.getName(), is("length"));
 	}
 
+	@Test
+	public void getNameWithLambdaCapturingNonSerializableArgumentReturnsLambdaMethodName()
+	{
+		Object argument = new Object();
+		SerializableFunction<String, Integer> function = string -> argument.hashCode();
+		
+		assertThat(function.getName(), startsWith("lambda$"));
+	}
+
 	@Test
 	public void getNameWithNoReplacementReturnsToString()
 	{
@@ -84,4 +94,18 @@ public class SerializableFunctionTest
 		
 		assertThat(function.getName(), is("x"));
 	}
+	
+	@Test
+	public void getNameWhenSerializationNotRegisteredReturnsToString()
+	{
+		SerializableFunction<String, Integer> function = new StringToLengthFunction("x")
+		{
+			private Object writeReplace()
+			{
+				throw new LinkageError("not registered for serialization");
+			}
+		};
+		
+		assertThat(function.getName(), is("x"));
+	}
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code SerializedLambdas}.
+ */
+public class SerializedLambdasTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void ofWithMethodReferenceReturnsSerializedLambda()
+	{
+		SerializableFunction<String, Integer> function = String::length;
+		
+		assertThat(SerializedLambdas.of(function).getImplMethodName(), is("length"));
+	}
+	
+	@Test
+	public void ofWithNonSerializableFunctionReturnsNull()
+	{
+		Function<String, Integer> function = String::length;
+		
+		assertThat(SerializedLambdas.of(function), is(nullValue()));
+	}
+	
+	@Test
+	public void ofWithLambdaCapturingNonSerializableArgumentReturnsSerializedLambda()
+	{
+		Object argument = new Object();
+		SerializableFunction<String, Integer> function = string -> argument.hashCode();
+		
+		assertThat(SerializedLambdas.of(function).getCapturedArg(0), is(sameInstance(argument)));
+	}
+	
+	@Test
+	public void ofWhenSerializationNotRegisteredReturnsNull()
+	{
+		assertThat(SerializedLambdas.of(unregistered()), is(nullValue()));
+	}
+	
+	@Test
+	public void getImplMethodNameWithMethodReferenceReturnsMethodName()
+	{
+		SerializableFunction<String, Integer> function = String::length;
+		
+		assertThat(SerializedLambdas.getImplMethodName(function), is("length"));
+	}
+	
+	@Test
+	public void getImplMethodNameWhenCachedReturnsMethodName()
+	{
+		SerializableFunction<String, Integer> function = String::length;
+		SerializedLambdas.getImplMethodName(function);
+		
+		assertThat(SerializedLambdas.getImplMethodName(function), is("length"));
+	}
+	
+	@Test
+	public void getImplMethodNameWithCapturingLambdasOfSameClassReturnsSameName()
+	{
+		assertThat(SerializedLambdas.getImplMethodName(plus(1)), is(SerializedLambdas.getImplMethodName(plus(2))));
+	}
+	
+	@Test
+	public void getImplMethodNameWithNonSerializableFunctionReturnsNull()
+	{
+		Function<String, Integer> function = String::length;
+		
+		assertThat(SerializedLambdas.getImplMethodName(function), is(nullValue()));
+	}
+	
+	@Test
+	public void keyWithEqualMethodReferencesReturnsEqualKeys()
+	{
+		SerializableFunction<String, Integer> function1 = String::length;
+		SerializableFunction<String, Integer> function2 = String::length;
+		
+		assertThat(SerializedLambdas.key(function1), is(SerializedLambdas.key(function2)));
+	}
+	
+	@Test
+	public void keyWithDifferentMethodReferencesReturnsDifferentKeys()
+	{
+		SerializableFunction<String, Integer> function1 = String::length;
+		SerializableFunction<String, Integer> function2 = String::hashCode;
+		
+		assertThat(SerializedLambdas.key(function1), is(not(equalTo(SerializedLambdas.key(function2)))));
+	}
+	
+	@Test
+	public void keyWithEqualCapturedArgumentsReturnsEqualKeys()
+	{
+		assertThat(SerializedLambdas.key(plus(1)), is(SerializedLambdas.key(plus(1))));
+	}
+	
+	@Test
+	public void keyWithDifferentCapturedArgumentsReturnsDifferentKeys()
+	{
+		assertThat(SerializedLambdas.key(plus(1)), is(not(equalTo(SerializedLambdas.key(plus(2))))));
+	}
+	
+	@Test
+	public void keyWhenSerializationNotRegisteredReturnsFunction()
+	{
+		SerializableFunction<String, Integer> function = unregistered();
+		
+		assertThat(SerializedLambdas.key(function), is(sameInstance(function)));
+	}
+	
+	@Test
+	public void keyWithNonSerializableFunctionReturnsFunction()
+	{
+		Function<String, Integer> function = String::length;
+		
+		assertThat(SerializedLambdas.key(function), is(sameInstance(function)));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static SerializableFunction<String, Integer> plus(int addend)
+	{
+		return string -> string.length() + addend;
+	}
+	
+	/**
+	 * Returns a function that fails to serialize in the same way as a lambda that is not registered in a native image.
+	 */
+	private static SerializableFunction<String, Integer> unregistered()
+	{
+		return new SerializableFunction<String, Integer>()
+		{
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public Integer apply(String string)
+			{
+				return string.length();
+			}
+			
+			private Object writeReplace()
+			{
+				throw new LinkageError("not registered for serialization");
+			}
+		};
+	}
+}
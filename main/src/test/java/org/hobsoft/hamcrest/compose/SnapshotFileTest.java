@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code SnapshotFile}.
+ */
+public class SnapshotFileTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void mapReturnsFeatureNames() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x", "y"), records());
+		
+		assertThat(SnapshotFile.map(file).getFeatureNames(), is(asList("x", "y")));
+	}
+	
+	@Test
+	public void mapReturnsSize() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x"), records(new String[] {"a", "b"}, new String[] {"c", "d"}));
+		
+		assertThat(SnapshotFile.map(file).size(), is(2));
+	}
+	
+	@Test(expected = IOException.class)
+	public void mapWhenNotSnapshotThrowsException() throws IOException
+	{
+		Path file = newFile();
+		Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		
+		SnapshotFile.map(file);
+	}
+	
+	@Test
+	public void findReturnsValues() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x", "y"), records(new String[] {"a", "b", "c"}));
+		
+		assertThat(SnapshotFile.map(file).find("a"), is(new String[] {"b", "c"}));
+	}
+	
+	@Test
+	public void findWhenNoFeaturesReturnsEmptyValues() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, emptyList(), records(new String[] {"a"}));
+		
+		assertThat(SnapshotFile.map(file).find("a"), is(new String[0]));
+	}
+	
+	@Test
+	public void findWhenNonAsciiReturnsValues() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("\u00e9"), records(new String[] {"\u00e0", "\u2603"}));
+		
+		assertThat(SnapshotFile.map(file).find("\u00e0"), is(new String[] {"\u2603"}));
+	}
+	
+	@Test
+	public void findWhenManyRecordsReturnsValues() throws IOException
+	{
+		List<String[]> records = new ArrayList<>();
+		for (int index = 0; index < 1000; index++)
+		{
+			records.add(new String[] {"key" + index, "value" + index});
+		}
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x"), records.iterator());
+		
+		SnapshotFile snapshotFile = SnapshotFile.map(file);
+		
+		assertThat(snapshotFile.find("key0")[0], is("value0"));
+		assertThat(snapshotFile.find("key500")[0], is("value500"));
+		assertThat(snapshotFile.find("key999")[0], is("value999"));
+	}
+	
+	@Test
+	public void findWhenKeysHaveEqualHashCodesReturnsValues() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x"), records(new String[] {"Aa", "a"}, new String[] {"BB", "b"}));
+		
+		SnapshotFile snapshotFile = SnapshotFile.map(file);
+		
+		assertThat(snapshotFile.find("Aa"), is(new String[] {"a"}));
+		assertThat(snapshotFile.find("BB"), is(new String[] {"b"}));
+	}
+	
+	@Test
+	public void findWhenNoRecordReturnsNull() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x"), records(new String[] {"a", "b"}));
+		
+		assertThat(SnapshotFile.map(file).find("c"), is(nullValue()));
+	}
+	
+	@Test
+	public void findWhenNoRecordsReturnsNull() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x"), records());
+		
+		assertThat(SnapshotFile.map(file).find("a"), is(nullValue()));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void writeWhenDuplicateKeysThrowsException() throws IOException
+	{
+		SnapshotFile.write(newFile(), asList("x"), records(new String[] {"a", "b"}, new String[] {"a", "c"}));
+	}
+	
+	@Test
+	public void writeWhenDuplicateKeysDoesNotLeaveFiles() throws IOException
+	{
+		Path file = temporaryFolder.getRoot().toPath().resolve("x");
+		
+		try
+		{
+			SnapshotFile.write(file, asList("x"), records(new String[] {"a", "b"}, new String[] {"a", "c"}));
+		}
+		catch (IllegalArgumentException exception)
+		{
+			// expected
+		}
+		
+		assertThat(temporaryFolder.getRoot().list(), is(new String[0]));
+	}
+	
+	@Test
+	public void writeWhenDuplicateKeysKeepsExistingFile() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x"), records(new String[] {"a", "b"}));
+		
+		try
+		{
+			SnapshotFile.write(file, asList("x"), records(new String[] {"a", "b"}, new String[] {"a", "c"}));
+		}
+		catch (IllegalArgumentException exception)
+		{
+			// expected
+		}
+		
+		assertThat(SnapshotFile.map(file).find("a"), is(new String[] {"b"}));
+	}
+	
+	@Test
+	public void writeWhenKeysHaveEqualHashCodesWritesFile() throws IOException
+	{
+		Path file = newFile();
+		SnapshotFile.write(file, asList("x"), records(new String[] {"Aa", "a"}, new String[] {"BB", "b"}));
+		
+		SnapshotFile snapshotFile = SnapshotFile.map(file);
+		
+		assertThat(asList(snapshotFile.find("Aa")[0], snapshotFile.find("BB")[0]), is(asList("a", "b")));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private Path newFile() throws IOException
+	{
+		return temporaryFolder.newFile().toPath();
+	}
+	
+	private static Iterator<String[]> records(String[]... records)
+	{
+		return asList(records).iterator();
+	}
+}
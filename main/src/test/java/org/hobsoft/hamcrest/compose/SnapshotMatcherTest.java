@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.snapshot;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code SnapshotMatcher}.
+ */
+public class SnapshotMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void describeToDescribesSnapshot() throws IOException
+	{
+		Path file = temporaryFolder.newFile("x.snapshot").toPath();
+		FeatureSnapshot<String> snapshot = snapshot(file, String::length);
+		snapshot.record(asList("a"));
+		StringDescription description = new StringDescription();
+		
+		snapshot.matchesRecorded().describeTo(description);
+		
+		assertThat(description.toString(), is("features as recorded in x.snapshot"));
+	}
+	
+	@Test
+	public void matchesWhenFeaturesEqualReturnsTrue() throws IOException
+	{
+		Matcher<String> matcher = recorded("ab", "cd");
+		
+		assertThat(matcher.matches("ab"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenFeatureNotEqualReturnsFalse() throws IOException
+	{
+		Matcher<String> matcher = recorded("ab", "cd");
+		
+		assertThat(matcher.matches("ax"), is(false));
+	}
+	
+	@Test
+	public void matchesWhenNoRecordReturnsFalse() throws IOException
+	{
+		Matcher<String> matcher = recorded("ab", "cd");
+		
+		assertThat(matcher.matches("ef"), is(false));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeatureNotEqualDescribesMismatch() throws IOException
+	{
+		Matcher<String> matcher = recorded("ab", "cd");
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("ax", description);
+		
+		assertThat(description.toString(), is("y was \"x\""));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeaturesNotEqualDescribesMismatches() throws IOException
+	{
+		Matcher<String> matcher = recorded("ab", "cd");
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("axy", description);
+		
+		assertThat(description.toString(), is("x was \"3\"\n          and y was \"xy\""));
+	}
+	
+	@Test
+	public void describeMismatchWhenNoRecordDescribesMismatch() throws IOException
+	{
+		Matcher<String> matcher = recorded("ab", "cd");
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("ef", description);
+		
+		assertThat(description.toString(), is("no features recorded for \"e\""));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private Matcher<String> recorded(String... objects) throws IOException
+	{
+		FeatureSnapshot<String> snapshot = snapshot(temporaryFolder.newFile().toPath(), (String s) -> s.charAt(0))
+			.withFeature("x", String::length)
+			.withFeature("y", (String s) -> s.substring(1));
+		
+		snapshot.record(asList(objects));
+		
+		return snapshot.matchesRecorded();
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.BaseStream;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anything;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.streamContains;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.streamEveryItem;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.streamHasSize;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.withTimeout;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code StreamMatcher}.
+ */
+public class StreamMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void containsDescribeToDescribesMatchers()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(anything("x"), anything("y"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("a stream containing [x, y]"));
+	}
+	
+	@Test
+	public void containsMatchesWhenItemsMatchReturnsTrue()
+	{
+		assertThat(Stream.of("x", "y"), streamContains(equalTo("x"), equalTo("y")));
+	}
+	
+	@Test
+	public void containsMatchesWhenItemDoesNotMatchReturnsFalse()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(equalTo("x"), equalTo("y"));
+		
+		assertThat(matcher.matches(Stream.of("x", "z")), is(false));
+	}
+	
+	@Test
+	public void containsMatchesWhenFewerItemsReturnsFalse()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(equalTo("x"), equalTo("y"));
+		
+		assertThat(matcher.matches(Stream.of("x")), is(false));
+	}
+	
+	@Test
+	public void containsMatchesWhenMoreItemsReturnsFalse()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(equalTo("x"));
+		
+		assertThat(matcher.matches(Stream.of("x", "y")), is(false));
+	}
+	
+	@Test
+	public void containsMatchesWhenPrimitiveStreamReturnsTrue()
+	{
+		assertThat(IntStream.of(1, 2), streamContains(equalTo(1), equalTo(2)));
+	}
+	
+	@Test
+	public void containsDescribeMismatchDescribesItemMismatches()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(nothing("a"), anything(), nothing("b"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(Stream.of("x", "y", "z"), description);
+		
+		assertThat(description.toString(), is("item 0 a was \"x\"\n"
+			+ "          and item 2 b was \"z\""));
+	}
+	
+	@Test
+	public void containsDescribeMismatchWhenFewerItemsDescribesMissingItem()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(anything(), anything());
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(Stream.of("x"), description);
+		
+		assertThat(description.toString(), is("item 1 was missing"));
+	}
+	
+	@Test
+	public void containsDescribeMismatchWhenMoreItemsDescribesUnexpectedItem()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(nothing("a"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(Stream.of("x", "y"), description);
+		
+		assertThat(description.toString(), is("item 0 a was \"x\"\n"
+			+ "          and item 1 was unexpected \"y\""));
+	}
+	
+	@Test
+	public void everyItemDescribeToDescribesMatcher()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamEveryItem(anything("x"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("every stream item x"));
+	}
+	
+	@Test
+	public void everyItemMatchesWhenItemsMatchReturnsTrue()
+	{
+		assertThat(Stream.of("x", "y"), streamEveryItem(not(equalTo("z"))));
+	}
+	
+	@Test
+	public void everyItemMatchesWhenItemDoesNotMatchReturnsFalse()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamEveryItem(not(equalTo("z")));
+		
+		assertThat(matcher.matches(Stream.of("x", "z")), is(false));
+	}
+	
+	@Test
+	public void everyItemMatchesWhenInfiniteStreamAndItemDoesNotMatchReturnsFalse()
+	{
+		Matcher<BaseStream<? extends Integer, ?>> matcher = streamEveryItem(not(equalTo(1)));
+		
+		assertThat(matcher.matches(Stream.iterate(0, i -> i + 1)), is(false));
+	}
+	
+	@Test
+	public void everyItemDescribeMismatchDescribesFirstItemMismatch()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamEveryItem(nothing("a"));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch(Stream.of("x", "y"), description);
+		
+		assertThat(description.toString(), is("item 0 a was \"x\""));
+	}
+	
+	@Test
+	public void hasSizeDescribeToDescribesMatcher()
+	{
+		Matcher<BaseStream<?, ?>> matcher = streamHasSize(2);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeTo(description);
+		
+		assertThat(description.toString(), is("a stream with size <2L>"));
+	}
+	
+	@Test
+	public void hasSizeMatchesWhenSizeMatchesReturnsTrue()
+	{
+		assertThat(Stream.of("x", "y"), streamHasSize(2));
+	}
+	
+	@Test
+	public void hasSizeMatchesWhenSizeDoesNotMatchReturnsFalse()
+	{
+		assertThat(streamHasSize(2).matches(Stream.of("x")), is(false));
+	}
+	
+	@Test
+	public void hasSizeDescribeMismatchDescribesSize()
+	{
+		StringDescription description = new StringDescription();
+		
+		streamHasSize(2).describeMismatch(Stream.of("x"), description);
+		
+		assertThat(description.toString(), is("size was <1L>"));
+	}
+	
+	@Test
+	public void matchesTwiceAfterMismatchReturnsFalse()
+	{
+		Matcher<BaseStream<?, ?>> matcher = streamHasSize(2);
+		Stream<String> stream = Stream.of("x");
+		
+		matcher.matches(stream);
+		
+		assertThat(matcher.matches(stream), is(false));
+	}
+	
+	@Test
+	public void describeMismatchWhenComposedDescribesMismatch()
+	{
+		Matcher<Stream<String>> matcher = compose("a stream", streamHasSize(2));
+		Stream<String> stream = Stream.of("x");
+		StringDescription description = new StringDescription();
+		
+		matcher.matches(stream);
+		matcher.describeMismatch(stream, description);
+		
+		assertThat(description.toString(), is("size was <1L>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenFeatureDescribesMismatch()
+	{
+		Matcher<Stream<String>> matcher = hasFeature("items", Function.identity(), streamHasSize(2));
+		Stream<String> stream = Stream.of("x");
+		StringDescription description = new StringDescription();
+		
+		matcher.matches(stream);
+		matcher.describeMismatch(stream, description);
+		
+		assertThat(description.toString(), is("items size was <1L>"));
+	}
+	
+	@Test
+	public void describeMismatchWhenTimeoutDescribesMismatch()
+	{
+		Matcher<BaseStream<?, ?>> matcher = withTimeout(streamHasSize(2), Duration.ofMinutes(1));
+		Stream<String> stream = Stream.of("x");
+		StringDescription description = new StringDescription();
+		
+		matcher.matches(stream);
+		matcher.describeMismatch(stream, description);
+		
+		assertThat(description.toString(), is("size was <1L>"));
+	}
+	
+	@Test
+	public void matchesClosesStream()
+	{
+		AtomicBoolean closed = new AtomicBoolean();
+		
+		streamHasSize(1).matches(Stream.of("x").onClose(() -> closed.set(true)));
+		
+		assertThat(closed.get(), is(true));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesAnotherStreamConsumesStream()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(nothing("a"));
+		StringDescription description = new StringDescription();
+		
+		matcher.matches(Stream.of("x"));
+		matcher.describeMismatch(Stream.of("y"), description);
+		
+		assertThat(description.toString(), is("item 0 a was \"y\""));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesDoesNotConsumeStreamAgain()
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(nothing("a"));
+		Stream<String> stream = Stream.of("x");
+		StringDescription description = new StringDescription();
+		
+		matcher.matches(stream);
+		matcher.describeMismatch(stream, description);
+		
+		assertThat(description.toString(), is("item 0 a was \"x\""));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesOnAnotherThreadDoesNotConsumeStreamAgain() throws InterruptedException
+	{
+		Matcher<BaseStream<? extends String, ?>> matcher = streamContains(nothing("a"));
+		Stream<String> stream = Stream.of("x");
+		StringDescription description = new StringDescription();
+		Thread thread = new Thread(() -> matcher.matches(Stream.of("y")));
+		
+		matcher.matches(stream);
+		thread.start();
+		thread.join();
+		matcher.describeMismatch(stream, description);
+		
+		assertThat(description.toString(), is("item 0 a was \"x\""));
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.StringDescription.asString;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.cached;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.compose;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasAsyncFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.hasFeature;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.path;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.snapshot;
+import static org.hobsoft.hamcrest.compose.ComposeMatchers.streamHasSize;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Stress tests the thread-safety of matchers that are shared between threads.
+ */
+public class ThreadSafetyTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final int THREADS = 8;
+	
+	private static final int ITERATIONS = 2000;
+	
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// fields
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test
+	public void composeMatchesConcurrently() throws InterruptedException
+	{
+		Matcher<String> matcher = compose(hasFeature("x", String::length, equalTo(3)))
+			.and(hasFeature("y", String::trim, equalTo("ham")));
+		
+		runConcurrently(iteration ->
+		{
+			boolean even = iteration % 2 == 0;
+			assertThat(matcher.matches(even ? "ham" : "jam"), is(even));
+		});
+	}
+	
+	@Test
+	public void composeDescribeMismatchConcurrently() throws InterruptedException
+	{
+		Matcher<String> matcher = compose(hasFeature("x", String::length, equalTo(3)))
+			.and(hasFeature("y", String::trim, equalTo("ham")));
+		
+		runConcurrently(iteration ->
+		{
+			String actual = "jam" + iteration;
+			String expectedMismatch = "x was <" + actual.length() + ">\n          and y was \"" + actual + "\"";
+			
+			assertThat(mismatch(matcher, actual), is(expectedMismatch));
+		});
+	}
+	
+	@Test
+	public void composeDescribeToConcurrently() throws InterruptedException
+	{
+		String expectedDescription = asString(newComposition("ham"));
+		List<Matcher<String>> matchers = new ArrayList<>();
+		
+		for (int iteration = 0; iteration < ITERATIONS; iteration++)
+		{
+			matchers.add(newComposition("ham"));
+		}
+		
+		// every thread races to render the description of each matcher for the first time
+		runConcurrently(iteration ->
+		{
+			Matcher<String> matcher = matchers.get(iteration);
+			
+			assertThat(asString(matcher), is(expectedDescription));
+			assertThat(mismatch(matcher, "jam"), is("x was \"jam\""));
+		});
+	}
+	
+	@Test
+	public void composeWithSharedFeaturePathsMatchesConcurrently() throws InterruptedException
+	{
+		FeaturePath<String, String> trimmed = path("x", String::trim);
+		Matcher<String> matcher = compose(hasFeature(trimmed.then("y", String::length), equalTo(3)))
+			.and(hasFeature(trimmed.then("z", String::toUpperCase), equalTo("HAM")))
+			.freeze();
+		
+		runConcurrently(iteration ->
+		{
+			String actual = (iteration % 2 == 0) ? " ham " : " jam" + iteration;
+			String expectedMismatch = (iteration % 2 == 0) ? "" : "x.y was <" + actual.trim().length()
+				+ ">\n          and x.z was \"" + actual.trim().toUpperCase() + "\"";
+			
+			assertThat(mismatch(matcher, actual), is(expectedMismatch));
+		});
+	}
+	
+	@Test
+	public void composeWithAsyncFeaturesMatchesConcurrently() throws InterruptedException
+	{
+		Matcher<String> matcher = compose(hasAsyncFeature("x", (String s) -> completedFuture(s.length()), equalTo(3),
+			TIMEOUT))
+			.and(hasAsyncFeature("y", (String s) -> completedFuture(s.trim()), equalTo("ham"), TIMEOUT));
+		
+		runConcurrently(iteration ->
+		{
+			boolean even = iteration % 2 == 0;
+			assertThat(matcher.matches(even ? "ham" : "jam"), is(even));
+		});
+	}
+	
+	@Test
+	public void getNameConcurrently() throws InterruptedException
+	{
+		SerializableFunction<String, Integer> function = String::length;
+		
+		runConcurrently(iteration -> assertThat(function.getName(), is("length")));
+	}
+	
+	@Test
+	public void hasFeatureWithSerializableFunctionDescribesConcurrently() throws InterruptedException
+	{
+		Matcher<String> matcher = hasFeature(String::length, equalTo(3));
+		
+		runConcurrently(iteration -> assertThat(asString(matcher), is("length <3>")));
+	}
+	
+	@Test
+	public void cachedMatchesConcurrently() throws InterruptedException
+	{
+		Function<Integer, Matcher<String>> factory = cached(length -> hasFeature("x", String::length, equalTo(length)),
+			10);
+		
+		runConcurrently(iteration ->
+		{
+			int length = iteration % 20;
+			assertThat(factory.apply(length).matches(new String(new char[length])), is(true));
+		});
+	}
+	
+	@Test
+	public void streamHasSizeMatchesConcurrently() throws InterruptedException
+	{
+		Matcher<?> matcher = streamHasSize(2);
+		
+		runConcurrently(iteration ->
+		{
+			Stream<Integer> stream = Stream.of(1, 2, 3).limit(1 + iteration % 2);
+			String expectedMismatch = (iteration % 2 == 0) ? "size was <1L>" : "";
+			
+			assertThat(mismatch(matcher, stream), is(expectedMismatch));
+		});
+	}
+	
+	@Test
+	public void snapshotMatchesConcurrently() throws InterruptedException, IOException
+	{
+		FeatureSnapshot<String> snapshot = snapshot(temporaryFolder.newFile().toPath(), (String s) -> s)
+			.withFeature("x", String::length);
+		snapshot.record(asList("a", "bc", "def"));
+		Matcher<String> matcher = snapshot.matchesRecorded();
+		
+		runConcurrently(iteration ->
+		{
+			String actual = asList("a", "bc", "def", "ghij").get(iteration % 4);
+			String expectedMismatch = (iteration % 4 == 3) ? "no features recorded for \"ghij\"" : "";
+			
+			assertThat(mismatch(matcher, actual), is(expectedMismatch));
+		});
+	}
+	
+	@Test
+	public void mismatchCollectorCountsConcurrently() throws InterruptedException
+	{
+		MismatchCollector collector = new MismatchCollector(10);
+		
+		runConcurrently(iteration -> collector.checkThat(iteration, equalTo(0)));
+		
+		assertThat(collector.getCheckCount(), is(THREADS * ITERATIONS));
+		assertThat(collector.getFailureCount(), is(THREADS * ITERATIONS - THREADS));
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static Matcher<String> newComposition(String expected)
+	{
+		return compose("a string with", hasFeature("x", String::trim, equalTo(expected)))
+			.and(hasFeature("y", String::length, equalTo(expected.length())));
+	}
+	
+	private static void runConcurrently(IntConsumer task) throws InterruptedException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		
+		try
+		{
+			for (int thread = 0; thread < THREADS; thread++)
+			{
+				futures.add(executor.submit(() ->
+				{
+					start.await();
+					
+					for (int iteration = 0; iteration < ITERATIONS; iteration++)
+					{
+						task.accept(iteration);
+					}
+					
+					return null;
+				}));
+			}
+			
+			start.countDown();
+			
+			for (Future<?> future : futures)
+			{
+				join(future);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	private static void join(Future<?> future) throws InterruptedException
+	{
+		try
+		{
+			future.get();
+		}
+		catch (ExecutionException exception)
+		{
+			if (exception.getCause() instanceof Error)
+			{
+				throw (Error) exception.getCause();
+			}
+			
+			throw new IllegalStateException(exception.getCause());
+		}
+	}
+	
+	private static String mismatch(Matcher<?> matcher, Object actual)
+	{
+		if (matcher.matches(actual))
+		{
+			return "";
+		}
+		
+		StringDescription description = new StringDescription();
+		matcher.describeMismatch(actual, description);
+		return description.toString();
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hamcrest.compose;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.After;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.StringDescription.asString;
+import static org.hobsoft.hamcrest.compose.TestMatchers.nothing;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code TimeoutMatcher}.
+ */
+public class TimeoutMatcherTest
+{
+	// ----------------------------------------------------------------------------------------------------------------
+	// constants
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// JUnit methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@After
+	public void tearDown() throws InterruptedException
+	{
+		// matches that time out may still be running until they respond to interruption
+		awaitNoRunaways();
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// tests
+	// ----------------------------------------------------------------------------------------------------------------
+
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullMatcherThrowsException()
+	{
+		new TimeoutMatcher<>(null, TIMEOUT);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void constructorWithNullTimeoutThrowsException()
+	{
+		new TimeoutMatcher<>(equalTo("x"), null);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorWithNegativeTimeoutThrowsException()
+	{
+		new TimeoutMatcher<>(equalTo("x"), Duration.ofMillis(-1));
+	}
+	
+	@Test
+	public void describeToDescribesMatcher()
+	{
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(equalTo("x"), TIMEOUT);
+		
+		assertThat(asString(matcher), is("\"x\""));
+	}
+	
+	@Test
+	public void matchesWhenMatcherMatchesReturnsTrue()
+	{
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(equalTo("x"), TIMEOUT);
+		
+		assertThat(matcher.matches("x"), is(true));
+	}
+	
+	@Test
+	public void matchesWhenMatcherDoesNotMatchReturnsFalse()
+	{
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(equalTo("x"), TIMEOUT);
+		
+		assertThat(matcher.matches("y"), is(false));
+	}
+	
+	@Test
+	public void describeMismatchWhenMatcherDoesNotMatchDescribesMismatch()
+	{
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(nothing("x"), TIMEOUT);
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("y", description);
+		
+		assertThat(description.toString(), is("x was \"y\""));
+	}
+	
+	@Test
+	public void matchesWhenMatcherTimesOutReturnsFalse()
+	{
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(blocking(new CountDownLatch(1)), Duration.ofMillis(1));
+		
+		assertThat(matcher.matches("x"), is(false));
+	}
+	
+	@Test
+	public void describeMismatchWhenMatcherTimesOutDescribesTimeout()
+	{
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(blocking(new CountDownLatch(1)), Duration.ofMillis(1));
+		StringDescription description = new StringDescription();
+		
+		matcher.describeMismatch("x", description);
+		
+		assertThat(description.toString(), is("timed out after 1 ms"));
+	}
+	
+	@Test
+	public void describeMismatchAfterMatchesWhenMatcherTimesOutDoesNotWaitAgain()
+	{
+		AtomicInteger matches = new AtomicInteger();
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(counting(blocking(new CountDownLatch(1)), matches),
+			Duration.ofMillis(100));
+		StringDescription description = new StringDescription();
+		
+		matcher.matches("x");
+		matcher.describeMismatch("x", description);
+		
+		assertThat(asList(description.toString(), matches.get()), is(asList("timed out after 100 ms", 1)));
+	}
+	
+	@Test
+	public void matchesWhenMatcherTimesOutInterruptsMatcher() throws InterruptedException
+	{
+		CountDownLatch interrupted = new CountDownLatch(1);
+		// long enough for the matcher to start, as a matcher that is cancelled before it starts is never run
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(blocking(interrupted), Duration.ofMillis(500));
+		
+		matcher.matches("x");
+		
+		assertThat(interrupted.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS), is(true));
+	}
+	
+	@Test(timeout = 10000)
+	public void describeMismatchWhenTooManyRunawayMatchesDescribesRunaways() throws InterruptedException
+	{
+		AtomicBoolean released = new AtomicBoolean();
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(uninterruptible(released), Duration.ofMillis(10));
+		StringDescription description = new StringDescription();
+		
+		try
+		{
+			while (TimeoutMatcher.getRunawayCount() < TimeoutMatcher.MAXIMUM_RUNAWAYS)
+			{
+				// a distinct object each time, as a mismatch is kept for the same object until it is described
+				matcher.matches(new String("x"));
+			}
+			
+			matcher.describeMismatch("x", description);
+		}
+		finally
+		{
+			released.set(true);
+			awaitNoRunaways();
+		}
+		
+		assertThat(description.toString(), is(String.format(
+			"was not matched while %d timed out matches are still running", TimeoutMatcher.MAXIMUM_RUNAWAYS)));
+	}
+	
+	@Test(timeout = 10000)
+	public void matchesWhenRunawayMatchesCompleteReturnsTrue() throws InterruptedException
+	{
+		AtomicBoolean released = new AtomicBoolean();
+		TimeoutMatcher<String> runawayMatcher = new TimeoutMatcher<>(uninterruptible(released), Duration.ofMillis(10));
+		
+		while (TimeoutMatcher.getRunawayCount() < TimeoutMatcher.MAXIMUM_RUNAWAYS)
+		{
+			runawayMatcher.matches(new String("x"));
+		}
+		
+		released.set(true);
+		awaitNoRunaways();
+		
+		assertThat(new TimeoutMatcher<>(equalTo("x"), TIMEOUT).matches("x"), is(true));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void matchesWhenMatcherThrowsExceptionThrowsException()
+	{
+		TimeoutMatcher<String> matcher = new TimeoutMatcher<>(throwing(new IllegalStateException()), TIMEOUT);
+		
+		matcher.matches("x");
+	}
+	
+	// ----------------------------------------------------------------------------------------------------------------
+	// private methods
+	// ----------------------------------------------------------------------------------------------------------------
+
+	private static Matcher<String> blocking(CountDownLatch interrupted)
+	{
+		return new BaseMatcher<String>()
+		{
+			@Override
+			public boolean matches(Object actual)
+			{
+				try
+				{
+					new CountDownLatch(1).await();
+				}
+				catch (InterruptedException exception)
+				{
+					interrupted.countDown();
+				}
+				
+				return true;
+			}
+			
+			@Override
+			public void describeTo(Description description)
+			{
+				description.appendText("blocking");
+			}
+		};
+	}
+	
+	private static Matcher<String> counting(Matcher<String> matcher, AtomicInteger matches)
+	{
+		return new BaseMatcher<String>()
+		{
+			@Override
+			public boolean matches(Object actual)
+			{
+				matches.incrementAndGet();
+				return matcher.matches(actual);
+			}
+			
+			@Override
+			public void describeTo(Description description)
+			{
+				matcher.describeTo(description);
+			}
+		};
+	}
+	
+	private static Matcher<String> uninterruptible(AtomicBoolean released)
+	{
+		return new BaseMatcher<String>()
+		{
+			@Override
+			public boolean matches(Object actual)
+			{
+				// ignore interruption like a long-running regular expression
+				while (!released.get())
+				{
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+				}
+				
+				return true;
+			}
+			
+			@Override
+			public void describeTo(Description description)
+			{
+				description.appendText("x");
+			}
+		};
+	}
+	
+	private static void awaitNoRunaways() throws InterruptedException
+	{
+		while (TimeoutMatcher.getRunawayCount() > 0)
+		{
+			Thread.sleep(1);
+		}
+	}
+	
+	private static Matcher<String> throwing(RuntimeException exception)
+	{
+		return new BaseMatcher<String>()
+		{
+			@Override
+			public boolean matches(Object actual)
+			{
+				throw exception;
+			}
+			
+			@Override
+			public void describeTo(Description description)
+			{
+				description.appendText("throwing");
+			}
+		};
+	}
+}